@@ -44,9 +44,12 @@ package com.marpies.ane.facebook.accountkit {
          *     }
          * };
          * </listing>
+         *
+         * @return ID of the request that can be passed to <code>AccountKit.cancelRequest</code>,
+         *         or <code>-1</code> if not available.
          */
-        public function loadPreferences( callback:Function ):void {
-            AccountKit.loadPreferences( callback );
+        public function loadPreferences( callback:Function ):int {
+            return AccountKit.loadPreferences( callback );
         }
 
         /**
@@ -64,11 +67,14 @@ package com.marpies.ane.facebook.accountkit {
          *     }
          * };
          * </listing>
+         *
+         * @return ID of the request that can be passed to <code>AccountKit.cancelRequest</code>,
+         *         or <code>-1</code> if not available.
          */
-        public function loadPreference( key:String, callback:Function ):void {
+        public function loadPreference( key:String, callback:Function ):int {
             if( key === null ) throw new ArgumentError( "Parameter key cannot be null." );
 
-            AccountKit.loadPreference( key, callback );
+            return AccountKit.loadPreference( key, callback );
         }
 
         /**
@@ -87,12 +93,15 @@ package com.marpies.ane.facebook.accountkit {
          *     }
          * };
          * </listing>
+         *
+         * @return ID of the request that can be passed to <code>AccountKit.cancelRequest</code>,
+         *         or <code>-1</code> if not available.
          */
-        public function setPreference( key:String, value:String, callback:Function ):void {
+        public function setPreference( key:String, value:String, callback:Function ):int {
             if( key === null ) throw new ArgumentError( "Parameter key cannot be null." );
             if( value === null ) throw new ArgumentError( "Parameter value cannot be null." );
 
-            AccountKit.setPreference( key, value, callback );
+            return AccountKit.setPreference( key, value, callback );
         }
 
         /**
@@ -110,11 +119,138 @@ package com.marpies.ane.facebook.accountkit {
          *     }
          * };
          * </listing>
+         *
+         * @return ID of the request that can be passed to <code>AccountKit.cancelRequest</code>,
+         *         or <code>-1</code> if not available.
          */
-        public function deletePreference( key:String, callback:Function ):void {
+        public function deletePreference( key:String, callback:Function ):int {
             if( key === null ) throw new ArgumentError( "Parameter key cannot be null." );
 
-            AccountKit.deletePreference( key, callback );
+            return AccountKit.deletePreference( key, callback );
+        }
+
+        /**
+         * Sets multiple preferences at once. The result for every key is returned in a single callback.
+         *
+         * @param preferences Object with preference keys and values, e.g. <code>{ "key1": "value1", "key2": "value2" }</code>.
+         * @param callback Function with the following signature:
+         * <listing version="3.0">
+         * function onAccountKitPreferencesSet( preferences:Object, errors:Object, errorMessage:String ):void {
+         *     if( errorMessage != null ) {
+         *         trace( errorMessage );
+         *     } else {
+         *         for( var key:String in preferences ) {
+         *             trace( "Preference", key, "has been set to", preferences[key] );
+         *         }
+         *         for( key in errors ) {
+         *             trace( "Preference", key, "failed to set:", errors[key] );
+         *         }
+         *     }
+         * };
+         * </listing>
+         *
+         * @return ID of the request that can be passed to <code>AccountKit.cancelRequest</code>,
+         *         or <code>-1</code> if not available.
+         */
+        public function setPreferences( preferences:Object, callback:Function ):int {
+            if( preferences === null ) throw new ArgumentError( "Parameter preferences cannot be null." );
+
+            var keyValuePairs:Array = [];
+            for( var key:String in preferences ) {
+                var value:String = preferences[key];
+                if( value === null ) throw new ArgumentError( "Value for preference '" + key + "' cannot be null." );
+                keyValuePairs[keyValuePairs.length] = key;
+                keyValuePairs[keyValuePairs.length] = value;
+            }
+
+            return AccountKit.setPreferences( keyValuePairs, callback );
+        }
+
+        /**
+         * Deletes multiple preferences at once. The result for every key is returned in a single callback.
+         *
+         * @param keys The keys for the preferences to delete.
+         * @param callback Function with the following signature:
+         * <listing version="3.0">
+         * function onAccountKitPreferencesDeleted( keys:Vector.&lt;String&gt;, errors:Object, errorMessage:String ):void {
+         *     if( errorMessage != null ) {
+         *         trace( errorMessage );
+         *     } else {
+         *         trace( "Deleted preferences:", keys );
+         *         for( var key:String in errors ) {
+         *             trace( "Preference", key, "failed to delete:", errors[key] );
+         *         }
+         *     }
+         * };
+         * </listing>
+         *
+         * @return ID of the request that can be passed to <code>AccountKit.cancelRequest</code>,
+         *         or <code>-1</code> if not available.
+         */
+        public function deletePreferences( keys:Vector.<String>, callback:Function ):int {
+            if( keys === null ) throw new ArgumentError( "Parameter keys cannot be null." );
+
+            return AccountKit.deletePreferences( keys, callback );
+        }
+
+        /**
+         * Configures native in-memory cache of preferences. Values that are loaded, set or deleted
+         * are kept in the cache, repeated loads are served from the cache without contacting the server.
+         * The cache is cleared when user logs out. Android only.
+         *
+         * @param maxEntries Maximum number of preferences held in the cache. Least recently used
+         *                   preferences are evicted first.
+         * @param ttlSeconds Number of seconds after which a cached preference expires.
+         *                   Set to <code>0</code> to disable the cache.
+         */
+        public function setCacheOptions( maxEntries:int = 100, ttlSeconds:Number = 300 ):void {
+            if( maxEntries < 1 ) throw new ArgumentError( "Parameter maxEntries must be greater than zero." );
+            if( ttlSeconds < 0 ) throw new ArgumentError( "Parameter ttlSeconds cannot be negative." );
+
+            AccountKit.setPreferenceCacheOptions( maxEntries, ttlSeconds );
+        }
+
+        /**
+         * Enables persisting the last known preferences of the logged in account in the app's files directory.
+         * When enabled, <code>loadPreference</code> and <code>loadPreferences</code> call the callback right away
+         * with the persisted (stale) values, for example after the app is restarted, and call it again once
+         * the server responds. Callbacks can declare an additional <code>stale:Boolean</code> parameter to tell
+         * these results apart. The persisted preferences are deleted when user logs out. Android only.
+         *
+         * @param value <code>true</code> to persist preferences and return stale results.
+         */
+        public function setDiskSnapshotEnabled( value:Boolean ):void {
+            AccountKit.setPreferenceSnapshotEnabled( value );
+        }
+
+        /**
+         * Enables queueing preference writes while offline. When enabled, <code>setPreference</code>,
+         * <code>deletePreference</code> and their batch variants call the callback as soon as the write
+         * is accepted locally, and the write is sent to the server in the background, retrying with backoff
+         * on network errors. Multiple writes to the same key are coalesced so that only the latest one is sent.
+         * Queued writes survive app restarts and are discarded when user logs out. Writes with keys longer
+         * than 100 characters (or characters other than letters, numerals and the underscore) or values longer
+         * than 1000 characters are rejected right away. Writes the server rejects later, and writes discarded
+         * on logout, are reported to <code>AccountKit.offlineWriteFailureCallback</code>. Android only.
+         *
+         * @param value <code>true</code> to queue preference writes and acknowledge them immediately.
+         *
+         * @see com.marpies.ane.facebook.accountkit.AccountKit#offlineWriteFailureCallback
+         */
+        public function setOfflineWritesEnabled( value:Boolean ):void {
+            AccountKit.setOfflineWritesEnabled( value );
+        }
+
+        /**
+         * Enables delta results for <code>loadPreferences</code>. When enabled, the extension remembers
+         * the last preferences it delivered and subsequent loads only transfer keys that were added, changed
+         * or removed since then. The callback still receives the complete map of preferences.
+         * Android only.
+         *
+         * @param value <code>true</code> to transfer only changed preferences when loading all preferences.
+         */
+        public function setDeltaLoadsEnabled( value:Boolean ):void {
+            AccountKit.setPreferenceDeltasEnabled( value );
         }
 
     }
@@ -5,6 +5,12 @@ package com.marpies.ane.facebook.accountkit {
      */
     public class AKConfiguration {
 
+        /**
+         * @private
+         * Version of the packed configuration format, must match the native decoder.
+         */
+        internal static const PACKED_FORMAT_VERSION:int = 1;
+
         private var mLoginType:String;
         private var mInitialAuthState:String;
         private var mInitialEmail:String;
@@ -232,6 +238,48 @@ package com.marpies.ane.facebook.accountkit {
             mSmsBlackList = value;
         }
 
+        /**
+         * @private
+         * Packs the whole configuration into a single JSON string so that the native side
+         * can read it in one call instead of querying each property separately.
+         */
+        internal function toPackedString():String {
+            var packed:Object = {
+                v: PACKED_FORMAT_VERSION,
+                loginType: mLoginType,
+                titleType: mTitleType,
+                enableFacebookNotification: mEnableFacebookNotification,
+                enableReadPhoneState: mEnableReadPhoneState,
+                receiveSms: mReceiveSms
+            };
+            if( mInitialAuthState !== null ) packed.initialAuthState = mInitialAuthState;
+            if( mInitialEmail !== null ) packed.initialEmail = mInitialEmail;
+            if( mDefaultCountryCode !== null ) packed.defaultCountryCode = mDefaultCountryCode;
+            if( mInitialPhoneNumber !== null ) {
+                packed.initialPhoneNumber = mInitialPhoneNumber;
+                packed.initialPhoneNumberCountryCode = mPhoneNumberCountryCode;
+            }
+            if( mSmsWhiteList !== null ) packed.smsWhiteList = vectorToArray( mSmsWhiteList );
+            if( mSmsBlackList !== null ) packed.smsBlackList = vectorToArray( mSmsBlackList );
+            return JSON.stringify( packed );
+        }
+
+        /**
+         *
+         *
+         * Private API
+         *
+         *
+         */
+
+        private function vectorToArray( vector:Vector.<String> ):Array {
+            var result:Array = [];
+            for each( var item:String in vector ) {
+                result[result.length] = item;
+            }
+            return result;
+        }
+
     }
 
 }
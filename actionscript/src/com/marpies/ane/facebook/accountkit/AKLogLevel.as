@@ -0,0 +1,37 @@
+package com.marpies.ane.facebook.accountkit {
+
+    /**
+     * Levels of native log messages.
+     */
+    public class AKLogLevel {
+
+        /**
+         * Detailed messages about each request.
+         */
+        public static const DEBUG:String = "debug";
+
+        /**
+         * Configuration changes and other notable events.
+         */
+        public static const INFO:String = "info";
+
+        /**
+         * Failed requests and dropped events.
+         */
+        public static const WARN:String = "warn";
+
+        /**
+         * Errors only.
+         */
+        public static const ERROR:String = "error";
+
+        /**
+         * @private
+         */
+        internal static function isValid( value:String ):Boolean {
+            return (value == DEBUG) || (value == INFO) || (value == WARN) || (value == ERROR);
+        }
+
+    }
+
+}
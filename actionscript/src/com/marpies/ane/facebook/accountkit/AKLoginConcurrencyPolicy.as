@@ -0,0 +1,33 @@
+package com.marpies.ane.facebook.accountkit {
+
+    /**
+     * Determines how <code>AccountKit.login</code> calls are handled while another login is in progress.
+     */
+    public class AKLoginConcurrencyPolicy {
+
+        /**
+         * The call joins the running login, its callback is called with the same result.
+         * Configuration of the joining call is ignored.
+         */
+        public static const JOIN:String = "join";
+
+        /**
+         * The call waits for the running login to finish and then launches its own login.
+         */
+        public static const QUEUE:String = "queue";
+
+        /**
+         * The call fails right away, its callback is called with an error message.
+         */
+        public static const REJECT:String = "reject";
+
+        /**
+         * @private
+         */
+        internal static function isValid( value:String ):Boolean {
+            return (value == JOIN) || (value == QUEUE) || (value == REJECT);
+        }
+
+    }
+
+}
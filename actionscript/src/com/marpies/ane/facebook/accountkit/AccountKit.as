@@ -23,6 +23,7 @@ package com.marpies.ane.facebook.accountkit {
     }
 
     import flash.system.Capabilities;
+    import flash.utils.ByteArray;
     import flash.utils.Dictionary;
 
     public class AccountKit {
@@ -41,20 +42,55 @@ package com.marpies.ane.facebook.accountkit {
         private static const LOGIN_SUCCESS:String = "loginSuccess";
         private static const LOGIN_CANCEL:String = "loginCancel";
         private static const LOGIN_ERROR:String = "loginError";
+        private static const TOKEN_CHANGED:String = "tokenChanged";
         private static const ACCOUNT_REQUEST:String = "accountRequest";
+        private static const ACCOUNT_UPDATE:String = "accountUpdate";
         private static const SET_PREFERENCE:String  = "setPreference";
         private static const LOAD_PREFERENCE:String  = "loadPreference";
         private static const DELETE_PREFERENCE:String  = "deletePreference";
         private static const LOAD_PREFERENCES:String  = "loadPreferences";
+        private static const SET_PREFERENCES:String  = "setPreferences";
+        private static const DELETE_PREFERENCES:String  = "deletePreferences";
+        private static const PREFERENCE_WRITE_FAILED:String  = "preferenceWriteFailed";
+        private static const BINARY_EVENT:String  = "binaryEvent";
+        private static const BATCH:String  = "batch";
+        private static const PAYLOAD_EVENT:String  = "payloadEvent";
+
+        /* Number of bytes retrieved in a single call when pulling large event payload */
+        private static const PAYLOAD_CHUNK_SIZE:int = 256 * 1024;
+
+        /* Binary event opcodes */
+        private static const OPCODE_LOAD_PREFERENCE:int = 1;
+        private static const OPCODE_LOAD_PREFERENCES:int = 2;
+        private static const OPCODE_SET_PREFERENCE:int = 3;
+        private static const OPCODE_DELETE_PREFERENCE:int = 4;
+        private static const OPCODE_PREFERENCES_DELTA:int = 5;
+        private static const BINARY_STATUS_ERROR:int = 1;
+        private static const BINARY_STATUS_STALE:int = 2;
 
         /* Callbacks */
         private static var mCallbackMap:Dictionary;
         private static var mCallbackIdCounter:int;
         private static var mInitCallback:Function;
+        private static var mAccountUpdateCallback:Function;
+        private static var mAccessTokenChangeCallback:Function;
+        private static var mOfflineWriteFailureCallback:Function;
 
         /* Misc */
         private static var mInitialized:Boolean;
         private static var mLogEnabled:Boolean;
+        private static var mAccountCacheMaxAge:Number = 300;
+        private static var mRequestTimeout:Number = 30;
+        private static var mLoginConcurrencyPolicy:String = AKLoginConcurrencyPolicy.JOIN;
+        private static var mUseBinaryEvents:Boolean;
+        /* Arguments of the last setEventBatching and setLargePayloadOptions calls, null if not called */
+        private static var mEventBatchingArgs:Array;
+        private static var mPayloadOptionsArgs:Array;
+
+        /* Local copy of preferences that delta results are applied to */
+        private static var mPreferenceDeltas:Boolean;
+        private static var mPreferences:Object;
+        private static var mPreferencesVersion:int = -1;
 
         /**
          * @private
@@ -105,7 +141,10 @@ package com.marpies.ane.facebook.accountkit {
                 mContext.addEventListener( StatusEvent.STATUS, onStatus );
             }
 
-            mCallbackMap = new Dictionary();
+            /* Callbacks of requests sent before the context was disposed are kept, their results are replayed */
+            if( mCallbackMap === null ) {
+                mCallbackMap = new Dictionary();
+            }
 
             /* Call init */
             CONFIG::ane {
@@ -147,7 +186,8 @@ package com.marpies.ane.facebook.accountkit {
 
             CONFIG::ane {
                 if( callback === null ) throw new ArgumentError( "Parameter callback cannot be null." );
-                mContext.call( "login", configuration, registerCallback( callback ) );
+                /* Android reads the packed configuration in a single call, the configuration object itself is the fallback */
+                mContext.call( "login", configuration, registerCallback( callback ), ANDROID ? configuration.toPackedString() : null );
             }
         }
 
@@ -164,14 +204,39 @@ package com.marpies.ane.facebook.accountkit {
          *     }
          * };
          * </listing>
+         *
+         * @return ID of the request that can be passed to <code>cancelRequest</code>, or <code>-1</code> if not supported.
+         *
+         * @see #cancelRequest()
          */
-        public static function getCurrentAccount( callback:Function ):void {
-            if( !isSupported || !initExtensionContext() ) return;
+        public static function getCurrentAccount( callback:Function ):int {
+            if( !isSupported || !initExtensionContext() ) return -1;
 
             CONFIG::ane {
                 if( callback === null ) throw new ArgumentError( "Parameter callback cannot be null." );
-                mContext.call( "getCurrentAccount", registerCallback( callback ) );
+                var requestId:int = registerCallback( callback );
+                mContext.call( "getCurrentAccount", requestId );
+                return requestId;
             }
+            return -1;
+        }
+
+        /**
+         * Cancels pending account or preference request. The request callback is called
+         * with an error message right away and the SDK response, if it ever comes, is ignored. Android only.
+         *
+         * @param requestId ID returned by the request function, e.g. <code>getCurrentAccount</code>.
+         * @return <code>true</code> if the request was pending and has been cancelled, <code>false</code> otherwise.
+         *
+         * @see #requestTimeout
+         */
+        public static function cancelRequest( requestId:int ):Boolean {
+            if( !ANDROID || !initExtensionContext() ) return false;
+
+            CONFIG::ane {
+                return mContext.call( "cancel", requestId ) as Boolean;
+            }
+            return false;
         }
 
         /**
@@ -181,10 +246,128 @@ package com.marpies.ane.facebook.accountkit {
             if( !isSupported || !initExtensionContext() ) return;
 
             CONFIG::ane {
+                resetPreferences();
                 mContext.call( "logout" );
             }
         }
 
+        /**
+         * Enables batching of native events. Results that arrive within the flush interval are delivered
+         * to the AS side together in a single status event. Login results are always delivered immediately.
+         * Android only.
+         *
+         * @param flushInterval Number of milliseconds events are held before they are delivered.
+         *                      Set to <code>0</code> to disable batching.
+         * @param maxBatchSize Number of held events that causes the batch to be delivered before the flush interval elapses.
+         * @param maxQueueSize Maximum number of events that can be held, further events are dropped.
+         */
+        public static function setEventBatching( flushInterval:int, maxBatchSize:int = 32, maxQueueSize:int = 256 ):void {
+            if( flushInterval < 0 ) throw new ArgumentError( "Parameter flushInterval cannot be negative." );
+            if( maxBatchSize < 1 ) throw new ArgumentError( "Parameter maxBatchSize must be greater than zero." );
+            if( maxQueueSize < maxBatchSize ) throw new ArgumentError( "Parameter maxQueueSize cannot be less than maxBatchSize." );
+            if( !ANDROID || !initExtensionContext() ) return;
+
+            mEventBatchingArgs = [flushInterval, maxBatchSize, maxQueueSize];
+            CONFIG::ane {
+                mContext.call( "setEventBatching", flushInterval, maxBatchSize, maxQueueSize );
+            }
+        }
+
+        /**
+         * Configures delivery of large native results. Results longer than the threshold are not copied
+         * into the status event, the event only carries a handle the extension uses to retrieve the result
+         * in chunks. Results that are not retrieved within the timeout are discarded, as well as the oldest
+         * results once their total size exceeds the memory budget. Android only.
+         *
+         * @param threshold Number of characters above which the result is retrieved using a handle.
+         *                  Set to <code>0</code> to always copy results into the status event.
+         * @param timeout Number of seconds after which unclaimed results are discarded.
+         * @param memoryBudget Maximum number of bytes of results waiting to be retrieved.
+         */
+        public static function setLargePayloadOptions( threshold:int, timeout:Number = 30, memoryBudget:int = 4194304 ):void {
+            if( threshold < 0 ) throw new ArgumentError( "Parameter threshold cannot be negative." );
+            if( timeout <= 0 ) throw new ArgumentError( "Parameter timeout must be greater than zero." );
+            if( memoryBudget < 0 ) throw new ArgumentError( "Parameter memoryBudget cannot be negative." );
+            if( !ANDROID || !initExtensionContext() ) return;
+
+            mPayloadOptionsArgs = [threshold, timeout, memoryBudget];
+            CONFIG::ane {
+                mContext.call( "setPayloadOptions", threshold, timeout, memoryBudget );
+            }
+        }
+
+        /**
+         * Configures the in-memory buffer of recent native log messages, which can be retrieved
+         * using <code>dumpNativeLogs()</code> even if <code>showLogs</code> is disabled. Existing
+         * messages are discarded. Android only.
+         *
+         * @param bufferLevel Lowest level of messages that are stored in the buffer.
+         * @param bufferSize Number of stored messages. Set to <code>0</code> to disable the buffer.
+         *
+         * @see com.marpies.ane.facebook.accountkit.AKLogLevel
+         */
+        public static function setNativeLogOptions( bufferLevel:String = "warn", bufferSize:int = 64 ):void {
+            if( !AKLogLevel.isValid( bufferLevel ) ) throw new ArgumentError( "Parameter bufferLevel must be one of the values defined in AKLogLevel class." );
+            if( bufferSize < 0 ) throw new ArgumentError( "Parameter bufferSize cannot be negative." );
+            if( !ANDROID || !initExtensionContext() ) return;
+
+            CONFIG::ane {
+                mContext.call( "setLogOptions", bufferLevel, bufferSize );
+            }
+        }
+
+        /**
+         * Returns recent native log messages, oldest first, one message per line.
+         * Returns <code>null</code> if not available. Android only.
+         *
+         * @see #setNativeLogOptions()
+         */
+        public static function dumpNativeLogs():String {
+            if( !ANDROID || !initExtensionContext() ) return null;
+
+            CONFIG::ane {
+                return mContext.call( "dumpLogs" ) as String;
+            }
+            return null;
+        }
+
+        /**
+         * Enables recording of native request phases (decoding arguments, SDK call and callback,
+         * serialization and dispatch of the result, login activity round trip). Recorded events are
+         * discarded whenever this method is called. Android only.
+         *
+         * @param enabled <code>true</code> to record request phases.
+         * @param capacity Maximum number of recorded events, the oldest events are overwritten once it is reached.
+         *
+         * @see #exportNativeTrace()
+         */
+        public static function setNativeTracing( enabled:Boolean, capacity:int = 2048 ):void {
+            if( capacity < 1 ) throw new ArgumentError( "Parameter capacity must be greater than zero." );
+            if( !ANDROID || !initExtensionContext() ) return;
+
+            CONFIG::ane {
+                mContext.call( "setTracing", enabled, capacity );
+            }
+        }
+
+        /**
+         * Writes recorded native request phases to a file in the app's files directory, in the Chrome
+         * trace-event format that can be opened in <code>chrome://tracing</code> or Perfetto.
+         * Android only.
+         *
+         * @return Path of the written file, or <code>null</code> if it could not be written.
+         *
+         * @see #setNativeTracing()
+         */
+        public static function exportNativeTrace():String {
+            if( !ANDROID || !initExtensionContext() ) return null;
+
+            CONFIG::ane {
+                return mContext.call( "exportTrace" ) as String;
+            }
+            return null;
+        }
+
         /**
          * Disposes native extension context.
          */
@@ -219,6 +402,182 @@ package com.marpies.ane.facebook.accountkit {
             return AKAccountPreferences.getInstance();
         }
 
+        /**
+         * Function that is called when account information returned by <code>getCurrentAccount</code>
+         * from the native cache is found to be out of date. Android only.
+         * The function is expected to have the following signature:
+         * <listing version="3.0">
+         * function onAccountKitAccountUpdated( account:AKAccount ):void {
+         *     trace( account.id, account.email, account.phoneNumber );
+         * };
+         * </listing>
+         */
+        public static function get accountUpdateCallback():Function {
+            return mAccountUpdateCallback;
+        }
+
+        /**
+         * @private
+         */
+        public static function set accountUpdateCallback( value:Function ):void {
+            mAccountUpdateCallback = value;
+        }
+
+        /**
+         * Number of seconds after which cached account information is revalidated in the background.
+         * <code>getCurrentAccount</code> always answers from the cache when possible, changes
+         * found during revalidation are delivered to <code>accountUpdateCallback</code>. Android only.
+         *
+         * @default 300
+         *
+         * @see #accountUpdateCallback
+         */
+        public static function get accountCacheMaxAge():Number {
+            return mAccountCacheMaxAge;
+        }
+
+        /**
+         * @private
+         */
+        public static function set accountCacheMaxAge( value:Number ):void {
+            if( value < 0 ) throw new ArgumentError( "Parameter value cannot be negative." );
+            mAccountCacheMaxAge = value;
+
+            if( !ANDROID || !initExtensionContext() ) return;
+
+            CONFIG::ane {
+                mContext.call( "setAccountCacheMaxAge", value );
+            }
+        }
+
+        /**
+         * Determines how <code>login</code> calls are handled while another login is in progress.
+         * Only one login screen is displayed at a time. Android only.
+         *
+         * @default AKLoginConcurrencyPolicy.JOIN
+         *
+         * @see com.marpies.ane.facebook.accountkit.AKLoginConcurrencyPolicy
+         */
+        public static function get loginConcurrencyPolicy():String {
+            return mLoginConcurrencyPolicy;
+        }
+
+        /**
+         * @private
+         */
+        public static function set loginConcurrencyPolicy( value:String ):void {
+            if( !AKLoginConcurrencyPolicy.isValid( value ) ) throw new ArgumentError( "Parameter value must be one of the values defined in AKLoginConcurrencyPolicy class." );
+            mLoginConcurrencyPolicy = value;
+
+            if( !ANDROID || !initExtensionContext() ) return;
+
+            CONFIG::ane {
+                mContext.call( "setLoginPolicy", value );
+            }
+        }
+
+        /**
+         * Number of seconds the SDK is given to respond to account and preference requests.
+         * When it does not respond in time, the request callback is called with an error message.
+         * Set to <code>0</code> to wait for the response indefinitely. Android only.
+         *
+         * @default 30
+         *
+         * @see #cancelRequest()
+         */
+        public static function get requestTimeout():Number {
+            return mRequestTimeout;
+        }
+
+        /**
+         * @private
+         */
+        public static function set requestTimeout( value:Number ):void {
+            if( value < 0 ) throw new ArgumentError( "Parameter value cannot be negative." );
+            mRequestTimeout = value;
+
+            if( !ANDROID || !initExtensionContext() ) return;
+
+            CONFIG::ane {
+                mContext.call( "setRequestTimeout", value );
+            }
+        }
+
+        /**
+         * Function that is called when the current access token changes, e.g. after login,
+         * logout or token refresh. Use it instead of polling <code>accessToken</code>. Android only.
+         * The function is expected to have the following signature:
+         * <listing version="3.0">
+         * function onAccountKitAccessTokenChanged( token:AKAccessToken ):void {
+         *     if( token == null ) {
+         *         // user logged out
+         *     } else {
+         *         trace( token.accountId, token.lastRefresh );
+         *     }
+         * };
+         * </listing>
+         *
+         * @see #accessToken
+         */
+        public static function get accessTokenChangeCallback():Function {
+            return mAccessTokenChangeCallback;
+        }
+
+        /**
+         * @private
+         */
+        public static function set accessTokenChangeCallback( value:Function ):void {
+            mAccessTokenChangeCallback = value;
+        }
+
+        /**
+         * Function that is called when the server rejects a preference write that was queued while offline
+         * writes are enabled. The write callback has already reported success, the value has been removed
+         * from the native caches. Android only.
+         * The function is expected to have the following signature:
+         * <listing version="3.0">
+         * function onAccountKitOfflineWriteFailed( key:String, value:String, errorMessage:String ):void {
+         *     // value is null for a failed delete
+         *     trace( key, errorMessage );
+         * };
+         * </listing>
+         *
+         * @see com.marpies.ane.facebook.accountkit.AKAccountPreferences#setOfflineWritesEnabled()
+         */
+        public static function get offlineWriteFailureCallback():Function {
+            return mOfflineWriteFailureCallback;
+        }
+
+        /**
+         * @private
+         */
+        public static function set offlineWriteFailureCallback( value:Function ):void {
+            mOfflineWriteFailureCallback = value;
+        }
+
+        /**
+         * Set to <code>true</code> to receive results of preference requests in a compact binary form
+         * instead of JSON. This reduces the cost of transferring and parsing large sets of preferences.
+         * Android only.
+         *
+         * @default false
+         */
+        public static function get useBinaryEvents():Boolean {
+            return mUseBinaryEvents;
+        }
+
+        /**
+         * @private
+         */
+        public static function set useBinaryEvents( value:Boolean ):void {
+            if( !ANDROID || !initExtensionContext() ) return;
+
+            mUseBinaryEvents = value;
+            CONFIG::ane {
+                mContext.call( "setBinaryEvents", value );
+            }
+        }
+
         /**
          * Current access token, or <code>null</code> if it does not exist.
          */
@@ -233,6 +592,23 @@ package com.marpies.ane.facebook.accountkit {
             return null;
         }
 
+        /**
+         * Diagnostic counters of the native extension, e.g. number of queued and dropped events, depth of the
+         * result serialization queue, or SDK initialization state and the time (in ms since context creation)
+         * each init phase was reached.
+         * Returns <code>null</code> if not available. Android only.
+         */
+        public static function get nativeStats():Object {
+            if( !ANDROID || !initExtensionContext() ) return null;
+
+            CONFIG::ane {
+                var json:String = mContext.call( "getNativeStats" ) as String;
+                if( json === null ) return null;
+                return JSON.parse( json );
+            }
+            return null;
+        }
+
         /**
          * Native AccountKit SDK version.
          */
@@ -276,44 +652,144 @@ package com.marpies.ane.facebook.accountkit {
         /**
          * @private
          */
-        internal static function setPreference( key:String, value:String, callback:Function ):void {
-            if( !isSupported || !initExtensionContext() ) return;
+        internal static function setPreference( key:String, value:String, callback:Function ):int {
+            if( !isSupported || !initExtensionContext() ) return -1;
 
             CONFIG::ane {
-                mContext.call( "setPreference", key, value, registerCallback( callback ) );
+                var requestId:int = registerCallback( callback );
+                mContext.call( "setPreference", key, value, requestId );
+                return requestId;
             }
+            return -1;
         }
 
         /**
          * @private
          */
-        internal static function loadPreference( key:String, callback:Function ):void {
-            if( !isSupported || !initExtensionContext() ) return;
+        internal static function loadPreference( key:String, callback:Function ):int {
+            if( !isSupported || !initExtensionContext() ) return -1;
 
             CONFIG::ane {
-                mContext.call( "loadPreference", key, registerCallback( callback ) );
+                var requestId:int = registerCallback( callback );
+                mContext.call( "loadPreference", key, requestId );
+                return requestId;
             }
+            return -1;
         }
 
         /**
          * @private
          */
-        internal static function loadPreferences( callback:Function ):void {
-            if( !isSupported || !initExtensionContext() ) return;
+        internal static function loadPreferences( callback:Function ):int {
+            if( !isSupported || !initExtensionContext() ) return -1;
 
             CONFIG::ane {
-                mContext.call( "loadPreferences", registerCallback( callback ) );
+                var requestId:int = registerCallback( callback );
+                if( mPreferenceDeltas ) {
+                    mContext.call( "loadPreferences", requestId, mPreferencesVersion );
+                } else {
+                    mContext.call( "loadPreferences", requestId );
+                }
+                return requestId;
             }
+            return -1;
         }
 
         /**
          * @private
          */
-        internal static function deletePreference( key:String, callback:Function ):void {
-            if( !isSupported || !initExtensionContext() ) return;
+        internal static function deletePreference( key:String, callback:Function ):int {
+            if( !isSupported || !initExtensionContext() ) return -1;
 
             CONFIG::ane {
-                mContext.call( "deletePreference", key, registerCallback( callback ) );
+                var requestId:int = registerCallback( callback );
+                mContext.call( "deletePreference", key, requestId );
+                return requestId;
+            }
+            return -1;
+        }
+
+        /**
+         * @private
+         */
+        internal static function setPreferences( keyValuePairs:Array, callback:Function ):int {
+            if( !isSupported || !initExtensionContext() ) return -1;
+
+            CONFIG::ane {
+                if( ANDROID ) {
+                    var requestId:int = registerCallback( callback );
+                    mContext.call( "setPreferences", packStrings( keyValuePairs ), requestId );
+                    return requestId;
+                }
+                runPreferenceBatch( keyValuePairs, false, callback );
+            }
+            return -1;
+        }
+
+        /**
+         * @private
+         */
+        internal static function deletePreferences( keys:Vector.<String>, callback:Function ):int {
+            if( !isSupported || !initExtensionContext() ) return -1;
+
+            CONFIG::ane {
+                if( ANDROID ) {
+                    var requestId:int = registerCallback( callback );
+                    mContext.call( "deletePreferences", packStrings( keys ), requestId );
+                    return requestId;
+                }
+                var keyArray:Array = [];
+                for each( var key:String in keys ) {
+                    keyArray[keyArray.length] = key;
+                }
+                runPreferenceBatch( keyArray, true, callback );
+            }
+            return -1;
+        }
+
+        /**
+         * @private
+         */
+        internal static function setPreferenceCacheOptions( maxEntries:int, ttlSeconds:Number ):void {
+            if( !ANDROID || !initExtensionContext() ) return;
+
+            CONFIG::ane {
+                mContext.call( "setPreferenceCacheOptions", maxEntries, ttlSeconds );
+            }
+        }
+
+        /**
+         * @private
+         */
+        internal static function setPreferenceSnapshotEnabled( value:Boolean ):void {
+            if( !ANDROID || !initExtensionContext() ) return;
+
+            CONFIG::ane {
+                mContext.call( "setPreferenceSnapshot", value );
+            }
+        }
+
+        /**
+         * @private
+         */
+        internal static function setOfflineWritesEnabled( value:Boolean ):void {
+            if( !ANDROID || !initExtensionContext() ) return;
+
+            CONFIG::ane {
+                mContext.call( "setOfflineWrites", value );
+            }
+        }
+
+        /**
+         * @private
+         */
+        internal static function setPreferenceDeltasEnabled( value:Boolean ):void {
+            if( !ANDROID || !initExtensionContext() ) return;
+
+            CONFIG::ane {
+                mPreferenceDeltas = value;
+                resetPreferences();
+                mContext.call( "setPreferenceDeltas", value );
             }
         }
 
@@ -326,11 +802,16 @@ package com.marpies.ane.facebook.accountkit {
          */
 
         private static function onStatus( event:StatusEvent ):void {
+            handleEvent( event.code, event.level );
+        }
+
+        private static function handleEvent( code:String, level:String ):void {
             var json:Object;
             var callbackId:int = -1;
             var callback:Function = null;
             var loginResult:AKLoginResult;
-            switch( event.code ) {
+            var isStale:Boolean;
+            switch( code ) {
                 case INIT:
                     if( mInitCallback !== null ) {
                         mInitCallback();
@@ -338,7 +819,7 @@ package com.marpies.ane.facebook.accountkit {
                     }
                     return;
                 case LOGIN_SUCCESS:
-                    json = JSON.parse( event.level );
+                    json = JSON.parse( level );
                     loginResult = new AKLoginResult();
                     if( "accessToken" in json ) {
                         loginResult.mAccessToken = AKAccessToken.fromJSON( json.accessToken );
@@ -352,16 +833,21 @@ package com.marpies.ane.facebook.accountkit {
                 case LOGIN_CANCEL:
                     loginResult = new AKLoginResult();
                     loginResult.mCancelled = true;
-                    triggerLoginCallback( int( event.level ), loginResult );
+                    triggerLoginCallback( int( level ), loginResult );
                     return;
                 case LOGIN_ERROR:
-                    json = JSON.parse( event.level );
+                    json = JSON.parse( level );
                     loginResult = new AKLoginResult();
                     loginResult.mErrorMessage = json.errorMessage;
                     triggerLoginCallback( json.listenerID, loginResult );
                     return;
+                case TOKEN_CHANGED:
+                    if( mAccessTokenChangeCallback !== null ) {
+                        mAccessTokenChangeCallback( (level.length > 0) ? AKAccessToken.fromJSON( level ) : null );
+                    }
+                    return;
                 case ACCOUNT_REQUEST:
-                    json = JSON.parse( event.level );
+                    json = JSON.parse( level );
                     callbackId = getCallbackIdFromJSON( json );
                     callback = getCallback( callbackId );
                     if( callback !== null ) {
@@ -373,8 +859,19 @@ package com.marpies.ane.facebook.accountkit {
                         }
                     }
                     return;
+                case PREFERENCE_WRITE_FAILED:
+                    if( mOfflineWriteFailureCallback !== null ) {
+                        json = JSON.parse( level );
+                        mOfflineWriteFailureCallback( json.key, ("value" in json) ? json.value : null, json.errorMessage );
+                    }
+                    return;
+                case ACCOUNT_UPDATE:
+                    if( mAccountUpdateCallback !== null ) {
+                        mAccountUpdateCallback( AKAccount.fromJSON( JSON.parse( level ) ) );
+                    }
+                    return;
                 case SET_PREFERENCE:
-                    json = JSON.parse( event.level );
+                    json = JSON.parse( level );
                     callbackId = getCallbackIdFromJSON( json );
                     callback = getCallback( callbackId );
                     if( callback !== null ) {
@@ -386,31 +883,40 @@ package com.marpies.ane.facebook.accountkit {
                     }
                     return;
                 case LOAD_PREFERENCE:
-                    json = JSON.parse( event.level );
+                    json = JSON.parse( level );
                     callbackId = getCallbackIdFromJSON( json );
-                    callback = getCallback( callbackId );
+                    /* Stale result from the disk snapshot is followed by the server result */
+                    isStale = json.stale === true;
+                    callback = isStale ? peekCallback( callbackId ) : getCallback( callbackId );
                     if( callback !== null ) {
                         if( "errorMessage" in json ) {
-                            callback( null, null, json.errorMessage );
+                            callPreferenceCallback( callback, [null, null, json.errorMessage], false );
                         } else {
-                            callback( json.key, json.value, null );
+                            callPreferenceCallback( callback, [json.key, json.value, null], isStale );
                         }
                     }
                     return;
                 case LOAD_PREFERENCES:
-                    json = JSON.parse( event.level );
+                    json = JSON.parse( level );
                     callbackId = getCallbackIdFromJSON( json );
-                    callback = getCallback( callbackId );
+                    isStale = json.stale === true;
+                    callback = isStale ? peekCallback( callbackId ) : getCallback( callbackId );
                     if( callback !== null ) {
                         if( "errorMessage" in json ) {
-                            callback( null, json.errorMessage );
+                            callPreferenceCallback( callback, [null, json.errorMessage], false );
+                        } else if( !isStale && "version" in json ) {
+                            if( "baseVersion" in json ) {
+                                applyPreferencesDelta( callback, json.version, json.baseVersion, getPreferencesMap( json.changed ), json.removed as Array );
+                            } else {
+                                applyPreferencesDelta( callback, json.version, -1, getPreferencesMap( json.preferences ), null );
+                            }
                         } else {
-                            callback( getPreferencesMap( json.preferences ), null );
+                            callPreferenceCallback( callback, [getPreferencesMap( json.preferences ), null], isStale );
                         }
                     }
                     return;
                 case DELETE_PREFERENCE:
-                    json = JSON.parse( event.level );
+                    json = JSON.parse( level );
                     callbackId = getCallbackIdFromJSON( json );
                     callback = getCallback( callbackId );
                     if( callback !== null ) {
@@ -421,9 +927,206 @@ package com.marpies.ane.facebook.accountkit {
                         }
                     }
                     return;
+                case BATCH:
+                    var events:Array = JSON.parse( level ) as Array;
+                    var numEvents:int = events.length;
+                    for( var i:int = 0; i < numEvents; ) {
+                        var batchedCode:String = events[i++];
+                        var batchedLevel:String = events[i++];
+                        handleEvent( batchedCode, batchedLevel );
+                    }
+                    return;
+                case BINARY_EVENT:
+                    onBinaryEvent( int( level ) );
+                    return;
+                case PAYLOAD_EVENT:
+                    onPayloadEvent( JSON.parse( level ) );
+                    return;
+                case SET_PREFERENCES:
+                case DELETE_PREFERENCES:
+                    json = JSON.parse( level );
+                    callbackId = getCallbackIdFromJSON( json );
+                    callback = getCallback( callbackId );
+                    if( callback !== null ) {
+                        if( "errorMessage" in json ) {
+                            callback( null, null, json.errorMessage );
+                        } else {
+                            triggerPreferenceBatchCallback( callback, json.results, code == DELETE_PREFERENCES );
+                        }
+                    }
+                    return;
+            }
+        }
+
+        /**
+         * Retrieves message of large event in chunks and handles the event as if the message was dispatched directly.
+         */
+        private static function onPayloadEvent( json:Object ):void {
+            var handle:int = json.handle;
+            var size:int = json.size;
+            var bytes:ByteArray = new ByteArray();
+            CONFIG::ane {
+                while( bytes.length < size ) {
+                    var chunk:ByteArray = mContext.call( "readEventPayload", handle, bytes.length, PAYLOAD_CHUNK_SIZE ) as ByteArray;
+                    if( chunk === null || chunk.length == 0 ) {
+                        log( "Payload of event " + json.event + " is no longer available." );
+                        return;
+                    }
+                    bytes.writeBytes( chunk );
+                }
+            }
+            bytes.position = 0;
+            handleEvent( json.event, bytes.readUTFBytes( bytes.length ) );
+        }
+
+        /**
+         * Retrieves binary payload with the given handle and triggers the callback it belongs to.
+         */
+        private static function onBinaryEvent( handle:int ):void {
+            var bytes:ByteArray;
+            CONFIG::ane {
+                bytes = mContext.call( "getEventPayload", handle ) as ByteArray;
+            }
+            if( bytes === null ) return;
+
+            bytes.position = 0;
+            var opcode:int = bytes.readByte();
+            var callbackId:int = bytes.readInt();
+            var status:int = bytes.readByte();
+            var isError:Boolean = status == BINARY_STATUS_ERROR;
+            var isStale:Boolean = status == BINARY_STATUS_STALE;
+            var callback:Function = isStale ? peekCallback( callbackId ) : getCallback( callbackId );
+            if( callback === null ) return;
+
+            var key:String;
+            if( isError ) {
+                var errorMessage:String = readBinaryString( bytes );
+                if( opcode == OPCODE_LOAD_PREFERENCE || opcode == OPCODE_SET_PREFERENCE ) {
+                    callPreferenceCallback( callback, [null, null, errorMessage], false );
+                } else {
+                    callPreferenceCallback( callback, [null, errorMessage], false );
+                }
+                return;
+            }
+            switch( opcode ) {
+                case OPCODE_LOAD_PREFERENCE:
+                case OPCODE_SET_PREFERENCE:
+                    key = readBinaryString( bytes );
+                    callPreferenceCallback( callback, [key, readBinaryString( bytes ), null], isStale );
+                    return;
+                case OPCODE_DELETE_PREFERENCE:
+                    callback( readBinaryString( bytes ), null );
+                    return;
+                case OPCODE_LOAD_PREFERENCES:
+                    var preferences:Object = {};
+                    var numPreferences:int = bytes.readInt();
+                    for( var i:int = 0; i < numPreferences; ++i ) {
+                        key = readBinaryString( bytes );
+                        preferences[key] = readBinaryString( bytes );
+                    }
+                    callPreferenceCallback( callback, [preferences, null], isStale );
+                    return;
+                case OPCODE_PREFERENCES_DELTA:
+                    var version:int = bytes.readInt();
+                    var baseVersion:int = bytes.readInt();
+                    var changed:Object = {};
+                    var numChanged:int = bytes.readInt();
+                    for( var j:int = 0; j < numChanged; ++j ) {
+                        key = readBinaryString( bytes );
+                        changed[key] = readBinaryString( bytes );
+                    }
+                    var removed:Array = [];
+                    var numRemoved:int = bytes.readInt();
+                    for( var k:int = 0; k < numRemoved; ++k ) {
+                        removed[k] = readBinaryString( bytes );
+                    }
+                    applyPreferencesDelta( callback, version, baseVersion, changed, removed );
+                    return;
             }
         }
 
+        /**
+         * Applies full result (base version of -1) or delta to the local copy of preferences and calls
+         * the callback with a copy of the result. If the delta was computed against a version other than
+         * the local one, full result is requested again using the same callback.
+         */
+        private static function applyPreferencesDelta( callback:Function, version:int, baseVersion:int, changed:Object, removed:Array ):void {
+            var key:String;
+            if( baseVersion < 0 ) {
+                mPreferences = {};
+            } else if( baseVersion != mPreferencesVersion || mPreferences === null ) {
+                log( "Preferences delta is based on version " + baseVersion + ", local version is " + mPreferencesVersion + ". Requesting full result." );
+                resetPreferences();
+                CONFIG::ane {
+                    mContext.call( "loadPreferences", registerCallback( callback ), -1 );
+                }
+                return;
+            }
+            for( key in changed ) {
+                mPreferences[key] = changed[key];
+            }
+            for each( key in removed ) {
+                delete mPreferences[key];
+            }
+            mPreferencesVersion = version;
+
+            var result:Object = {};
+            for( key in mPreferences ) {
+                result[key] = mPreferences[key];
+            }
+            callPreferenceCallback( callback, [result, null], false );
+        }
+
+        /**
+         * Discards local copy of preferences so that the next load requests full result.
+         */
+        private static function resetPreferences():void {
+            mPreferences = null;
+            mPreferencesVersion = -1;
+        }
+
+        /**
+         * Calls preference callback with the given arguments, appending the stale flag if the callback declares it.
+         */
+        private static function callPreferenceCallback( callback:Function, args:Array, isStale:Boolean ):void {
+            if( callback.length > args.length ) {
+                args[args.length] = isStale;
+            }
+            callback.apply( null, args );
+        }
+
+        /**
+         * Writes list of strings to ByteArray so that it is passed to the native side in a single call:
+         * number of strings followed by each string prefixed with its length in bytes, length of -1 stands for null.
+         */
+        private static function packStrings( strings:Object ):ByteArray {
+            var bytes:ByteArray = new ByteArray();
+            bytes.writeInt( strings.length );
+            for each( var string:Object in strings ) {
+                if( string == null ) {
+                    bytes.writeInt( -1 );
+                    continue;
+                }
+                var lengthPosition:uint = bytes.position;
+                bytes.writeInt( 0 );
+                bytes.writeUTFBytes( String( string ) );
+                var endPosition:uint = bytes.position;
+                bytes.position = lengthPosition;
+                bytes.writeInt( endPosition - lengthPosition - 4 );
+                bytes.position = endPosition;
+            }
+            return bytes;
+        }
+
+        /**
+         * Reads string prefixed with its length in bytes, length of -1 stands for null.
+         */
+        private static function readBinaryString( bytes:ByteArray ):String {
+            var length:int = bytes.readInt();
+            if( length < 0 ) return null;
+            return bytes.readUTFBytes( length );
+        }
+
         /**
          * Returns map of key/value from array ( ["key1", "value1", "key2", "value2"] )
          */
@@ -444,6 +1147,70 @@ package com.marpies.ane.facebook.accountkit {
             return result;
         }
 
+        /**
+         * Triggers batch callback with results ( [{ key: "key1", value: "value1" }, { key: "key2", errorMessage: "error" }] )
+         */
+        private static function triggerPreferenceBatchCallback( callback:Function, results:Array, isDelete:Boolean ):void {
+            var preferences:Object = isDelete ? null : {};
+            var deletedKeys:Vector.<String> = isDelete ? new <String>[] : null;
+            var errors:Object = null;
+            for each( var result:Object in results ) {
+                if( "errorMessage" in result ) {
+                    if( errors === null ) {
+                        errors = {};
+                    }
+                    errors[result.key] = result.errorMessage;
+                } else if( isDelete ) {
+                    deletedKeys[deletedKeys.length] = result.key;
+                } else {
+                    preferences[result.key] = result.value;
+                }
+            }
+            callback( isDelete ? deletedKeys : preferences, errors, null );
+        }
+
+        /**
+         * Performs batch of preference requests one by one, used where native batch calls are not available.
+         * @param items Array of key/value pairs ( ["key1", "value1", "key2", "value2"] ) when setting, or array of keys when deleting.
+         */
+        private static function runPreferenceBatch( items:Array, isDelete:Boolean, callback:Function ):void {
+            var results:Array = [];
+            var numPending:int = isDelete ? items.length : (items.length / 2);
+            if( numPending == 0 ) {
+                triggerPreferenceBatchCallback( callback, results, isDelete );
+                return;
+            }
+            var length:int = items.length;
+            for( var i:int = 0; i < length; ) {
+                var result:Object = { key: items[i++] };
+                if( !isDelete ) {
+                    result.value = items[i++];
+                }
+                results[results.length] = result;
+                var onComplete:Function = getPreferenceBatchItemCallback( result, function():void {
+                    if( --numPending == 0 ) {
+                        triggerPreferenceBatchCallback( callback, results, isDelete );
+                    }
+                } );
+                if( isDelete ) {
+                    deletePreference( result.key, onComplete );
+                } else {
+                    setPreference( result.key, result.value, onComplete );
+                }
+            }
+        }
+
+        private static function getPreferenceBatchItemCallback( result:Object, onComplete:Function ):Function {
+            return function( ...args ):void {
+                /* Error message is always the last argument */
+                var errorMessage:String = args[args.length - 1];
+                if( errorMessage !== null ) {
+                    result.errorMessage = errorMessage;
+                }
+                onComplete();
+            };
+        }
+
         public static function getCallbackIdFromJSON( json:Object ):int {
             return ("callbackId" in json) ? json.callbackId : (("listenerID" in json) ? json.listenerID : -1);
         }
@@ -466,12 +1233,41 @@ package com.marpies.ane.facebook.accountkit {
             CONFIG::ane {
                 if( mContext === null ) {
                     mContext = ExtensionContext.createExtensionContext( EXTENSION_ID, null );
+                    if( mContext !== null ) {
+                        applyContextSettings();
+                    }
                 }
                 return mContext !== null;
             }
             return false;
         }
 
+        /**
+         * Sends settings that the native side keeps for each extension context, so that a context
+         * created after <code>dispose()</code> uses the same settings as the previous one.
+         */
+        private static function applyContextSettings():void {
+            if( !ANDROID ) return;
+
+            CONFIG::ane {
+                mContext.call( "setBinaryEvents", mUseBinaryEvents );
+                mContext.call( "setRequestTimeout", mRequestTimeout );
+                mContext.call( "setLoginPolicy", mLoginConcurrencyPolicy );
+                mContext.call( "setAccountCacheMaxAge", mAccountCacheMaxAge );
+                if( mPreferenceDeltas ) {
+                    /* Local copy of preferences belongs to the previous context */
+                    resetPreferences();
+                    mContext.call( "setPreferenceDeltas", true );
+                }
+                if( mEventBatchingArgs !== null ) {
+                    mContext.call( "setEventBatching", mEventBatchingArgs[0], mEventBatchingArgs[1], mEventBatchingArgs[2] );
+                }
+                if( mPayloadOptionsArgs !== null ) {
+                    mContext.call( "setPayloadOptions", mPayloadOptionsArgs[0], mPayloadOptionsArgs[1], mPayloadOptionsArgs[2] );
+                }
+            }
+        }
+
         /**
          * Registers given callback and generates ID which is used to look the callback up when it is time to call it.
          * @param callback Function to register.
@@ -496,6 +1292,16 @@ package com.marpies.ane.facebook.accountkit {
             return callback;
         }
 
+        /**
+         * Gets registered callback with given ID without removing it from the map.
+         * @param callbackID ID of the callback to retrieve.
+         * @return Callback registered with given ID, or <code>null</code> if no such callback exists.
+         */
+        private static function peekCallback( callbackID:int ):Function {
+            if( callbackID == -1 || !(callbackID in mCallbackMap) ) return null;
+            return mCallbackMap[callbackID];
+        }
+
         /**
          * Unregisters callback with given ID.
          * @param callbackID ID of the callback to unregister.
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.benchmark;
+
+import com.marpies.ane.facebook.accountkit.utils.BinaryEventEncoder;
+import com.marpies.ane.facebook.accountkit.utils.StringUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary and JSON encoding of the same loadPreferences result.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class BinaryEventsBenchmark {
+
+	@Param( { "1", "10", "100", "1000", "10000" } )
+	public int numPreferences;
+
+	private Map<String, String> mPreferences;
+
+	@Setup
+	public void setup() {
+		mPreferences = Payloads.preferences( numPreferences );
+	}
+
+	@Benchmark
+	public byte[] binaryPreferences() {
+		return BinaryEventEncoder.encodePreferences( 42, mPreferences, false );
+	}
+
+	@Benchmark
+	public String jsonPreferences() {
+		return StringUtils.getPreferencesJSON( 42, mPreferences, false );
+	}
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.benchmark;
+
+import com.facebook.accountkit.AccessToken;
+import com.marpies.ane.facebook.accountkit.utils.AKAccessTokenUtils;
+import com.marpies.ane.facebook.accountkit.utils.StringUtils;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of the fixed-size event payloads that are dispatched to AS3.
+ * The org.json methods build the same payloads with JSONObject, as baseline for <code>-prof gc</code>.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class EventJSONBenchmark {
+
+	private AccessToken mAccessToken;
+	private String mErrorMessage;
+
+	@Setup
+	public void setup() {
+		mAccessToken = new AccessToken( "EMAWdcYH8MVZBbnRlaCEwHmQmOIZCc7ZAafBiV4cV8mSbvAUWAZDZD", "1054275264674931",
+				"1699370663678931", 2592000, new Date( 1490536800000L ) );
+		mErrorMessage = "Value for key 'highscore_level_12' not found.";
+	}
+
+	@Benchmark
+	public String accessTokenJSON() {
+		return AKAccessTokenUtils.toJSON( mAccessToken );
+	}
+
+	@Benchmark
+	public String accessTokenOrgJSON() throws JSONException {
+		JSONObject json = new JSONObject();
+		json.put( "accountId", mAccessToken.getAccountId() );
+		json.put( "applicationId", mAccessToken.getApplicationId() );
+		json.put( "token", mAccessToken.getToken() );
+		json.put( "lastRefreshTime", mAccessToken.getLastRefresh().getTime() );
+		json.put( "tokenRefreshIntervalInSeconds", mAccessToken.getTokenRefreshIntervalSeconds() );
+		return json.toString();
+	}
+
+	@Benchmark
+	public String eventErrorJSON() {
+		return StringUtils.getEventErrorJSON( 42, mErrorMessage );
+	}
+
+	@Benchmark
+	public String eventErrorOrgJSON() throws JSONException {
+		JSONObject json = new JSONObject();
+		json.put( "listenerID", 42 );
+		json.put( "errorMessage", mErrorMessage );
+		return json.toString();
+	}
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.benchmark;
+
+import android.os.Bundle;
+import com.adobe.fre.FREArray;
+import com.adobe.fre.FREByteArray;
+import com.marpies.ane.facebook.accountkit.utils.FREObjectUtils;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of the arguments passed from AS3.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class MarshallingBenchmark {
+
+	@Param( { "1", "10", "100", "1000", "10000" } )
+	public int numPreferences;
+
+	private FREArray mKeyValueArray;
+	private FREArray mKeyVector;
+	private FREByteArray mPackedKeyValues;
+	private FREByteArray mPackedKeys;
+
+	@Setup
+	public void setup() throws Exception {
+		Map<String, String> preferences = Payloads.preferences( numPreferences );
+		mKeyValueArray = Payloads.keyValueArray( preferences );
+		mKeyVector = Payloads.keyVector( preferences );
+		mPackedKeyValues = Payloads.packedKeyValues( preferences );
+		mPackedKeys = Payloads.packedKeys( preferences );
+	}
+
+	@Benchmark
+	public Bundle getBundle() {
+		return FREObjectUtils.getBundle( mKeyValueArray );
+	}
+
+	@Benchmark
+	public JSONObject getJSONObject() {
+		return FREObjectUtils.getJSONObject( mKeyValueArray );
+	}
+
+	@Benchmark
+	public String[] getArrayOfString() {
+		return FREObjectUtils.getArrayOfString( mKeyVector );
+	}
+
+	@Benchmark
+	public String[] getKeyValuePairs() {
+		return FREObjectUtils.getArrayOfString( mKeyValueArray );
+	}
+
+	@Benchmark
+	public String[] getKeyValuePairsPacked() {
+		return FREObjectUtils.getArrayOfString( mPackedKeyValues );
+	}
+
+	@Benchmark
+	public String[] getArrayOfStringPacked() {
+		return FREObjectUtils.getArrayOfString( mPackedKeys );
+	}
+
+}
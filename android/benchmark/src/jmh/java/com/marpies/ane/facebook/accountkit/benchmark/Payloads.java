@@ -0,0 +1,131 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.benchmark;
+
+import com.adobe.fre.FREArray;
+import com.adobe.fre.FREByteArray;
+import com.adobe.fre.FREObject;
+import com.marpies.ane.facebook.accountkit.utils.FREObjectUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates preference payloads within the Account Kit limits - keys of up to 100 characters
+ * (letters, numerals and the underscore) and values of up to 1000 characters.
+ */
+class Payloads {
+
+	private static final String KEY_CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_";
+	private static final String VALUE_CHARACTERS = KEY_CHARACTERS + " .,:;-+=/\"\\{}[]\u00e1\u00e9\u00ed\u00f3\u00fa\u20ac";
+
+	private static final int MIN_KEY_LENGTH = 8;
+	private static final int MAX_KEY_LENGTH = 32;
+	private static final int MIN_VALUE_LENGTH = 4;
+	private static final int MAX_VALUE_LENGTH = 256;
+
+	static Map<String, String> preferences( int numPreferences ) {
+		Random random = new Random( numPreferences );
+		Map<String, String> preferences = new LinkedHashMap<String, String>( numPreferences * 2 );
+		for( int i = 0; i < numPreferences; i++ ) {
+			/* Index suffix keeps the keys unique */
+			String key = randomString( random, KEY_CHARACTERS, MIN_KEY_LENGTH, MAX_KEY_LENGTH ) + "_" + i;
+			preferences.put( key, randomString( random, VALUE_CHARACTERS, MIN_VALUE_LENGTH, MAX_VALUE_LENGTH ) );
+		}
+		return preferences;
+	}
+
+	/**
+	 * Returns array of keys and values ( ["key1", "value1", "key2", "value2"] ), as passed from AS3.
+	 */
+	static FREArray keyValueArray( Map<String, String> preferences ) throws Exception {
+		FREArray array = FREArray.newArray( preferences.size() * 2 );
+		long index = 0;
+		for( Map.Entry<String, String> preference : preferences.entrySet() ) {
+			array.setObjectAt( index++, FREObject.newObject( preference.getKey() ) );
+			array.setObjectAt( index++, FREObject.newObject( preference.getValue() ) );
+		}
+		return array;
+	}
+
+	/**
+	 * Returns Vector of preference keys, as passed from AS3.
+	 */
+	static FREArray keyVector( Map<String, String> preferences ) throws Exception {
+		FREArray vector = FREArray.newArray( "String", preferences.size(), true );
+		long index = 0;
+		for( String key : preferences.keySet() ) {
+			vector.setObjectAt( index++, FREObject.newObject( key ) );
+		}
+		return vector;
+	}
+
+	/**
+	 * Returns ByteArray with packed keys and values, as passed from AS3 in a single call.
+	 */
+	static FREByteArray packedKeyValues( Map<String, String> preferences ) {
+		List<String> pairs = new ArrayList<String>( preferences.size() * 2 );
+		for( Map.Entry<String, String> preference : preferences.entrySet() ) {
+			pairs.add( preference.getKey() );
+			pairs.add( preference.getValue() );
+		}
+		return packStrings( pairs );
+	}
+
+	/**
+	 * Returns ByteArray with packed preference keys, as passed from AS3 in a single call.
+	 */
+	static FREByteArray packedKeys( Map<String, String> preferences ) {
+		return packStrings( preferences.keySet() );
+	}
+
+	/**
+	 * Writes strings in the layout AS3 packs them: count followed by each string prefixed with its length in bytes.
+	 */
+	private static FREByteArray packStrings( Collection<String> strings ) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream( 4 + strings.size() * 16 );
+			DataOutputStream output = new DataOutputStream( bytes );
+			output.writeInt( strings.size() );
+			for( String string : strings ) {
+				byte[] utf = string.getBytes( "UTF-8" );
+				output.writeInt( utf.length );
+				output.write( utf );
+			}
+			return FREObjectUtils.newByteArray( bytes.toByteArray() );
+		} catch( IOException e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	private static String randomString( Random random, String characters, int minLength, int maxLength ) {
+		int length = minLength + random.nextInt( maxLength - minLength + 1 );
+		StringBuilder builder = new StringBuilder( length );
+		for( int i = 0; i < length; i++ ) {
+			builder.append( characters.charAt( random.nextInt( characters.length() ) ) );
+		}
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.benchmark;
+
+import com.marpies.ane.facebook.accountkit.utils.StringUtils;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flattening of the preferences map in the loadPreferences result.
+ * The org.json methods build the result the way it was built before JSONWriter, as baseline for <code>-prof gc</code>.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class PreferencesJSONBenchmark {
+
+	@Param( { "1", "10", "100", "1000", "10000" } )
+	public int numPreferences;
+
+	private Map<String, String> mPreferences;
+
+	@Setup
+	public void setup() {
+		mPreferences = Payloads.preferences( numPreferences );
+	}
+
+	@Benchmark
+	public String preferencesJSON() {
+		return StringUtils.getPreferencesJSON( 42, mPreferences, false );
+	}
+
+	@Benchmark
+	public String preferencesOrgJSON() throws JSONException {
+		JSONObject response = new JSONObject();
+		response.put( "callbackId", 42 );
+		JSONArray preferences = new JSONArray();
+		for( Map.Entry<String, String> preference : mPreferences.entrySet() ) {
+			preferences.put( preference.getKey() );
+			preferences.put( preference.getValue() );
+		}
+		response.put( "preferences", preferences );
+		return response.toString();
+	}
+
+}
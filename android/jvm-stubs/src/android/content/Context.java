@@ -0,0 +1,56 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.content;
+
+import android.content.pm.PackageManager;
+
+import java.io.File;
+
+/**
+ * JVM stand-in for Android Context. Files are stored in a temporary directory.
+ */
+public class Context {
+
+	private final PackageManager mPackageManager = new PackageManager();
+	private File mFilesDir;
+
+	public Context getApplicationContext() {
+		return this;
+	}
+
+	public synchronized File getFilesDir() {
+		if( mFilesDir == null ) {
+			try {
+				mFilesDir = File.createTempFile( "files", "" );
+				mFilesDir.delete();
+				mFilesDir.mkdirs();
+			} catch( Exception e ) {
+				throw new IllegalStateException( e );
+			}
+		}
+		return mFilesDir;
+	}
+
+	public PackageManager getPackageManager() {
+		return mPackageManager;
+	}
+
+	public String getPackageName() {
+		return "air.com.marpies.ane.facebook.accountkit";
+	}
+
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.content;
+
+import android.os.Bundle;
+import android.os.Parcelable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM stand-in for Android Intent, extras are kept in a hash map.
+ */
+public class Intent implements Parcelable {
+
+	private final Class<?> mComponent;
+	private final Map<String, Object> mExtras = new HashMap<String, Object>();
+
+	public Intent() {
+		mComponent = null;
+	}
+
+	public Intent( Context context, Class<?> cls ) {
+		mComponent = cls;
+	}
+
+	public Intent putExtra( String name, Parcelable value ) {
+		mExtras.put( name, value );
+		return this;
+	}
+
+	public Intent putExtras( Bundle extras ) {
+		mExtras.put( Bundle.class.getName(), extras );
+		return this;
+	}
+
+	@SuppressWarnings( "unchecked" )
+	public <T extends Parcelable> T getParcelableExtra( String name ) {
+		return (T) mExtras.get( name );
+	}
+
+	/**
+	 * Stand-in only, returns the class of the component that should handle the intent.
+	 */
+	public Class<?> getComponentClass() {
+		return mComponent;
+	}
+
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.content.pm;
+
+import android.content.Intent;
+
+/**
+ * JVM stand-in for Android PackageManager. Every activity resolves and the application has no meta-data.
+ */
+public class PackageManager {
+
+	public static final int GET_META_DATA = 0x00000080;
+
+	public static class NameNotFoundException extends Exception {
+	}
+
+	public ResolveInfo resolveActivity( Intent intent, int flags ) {
+		return new ResolveInfo();
+	}
+
+	public ApplicationInfo getApplicationInfo( String packageName, int flags ) throws NameNotFoundException {
+		return new ApplicationInfo();
+	}
+
+}
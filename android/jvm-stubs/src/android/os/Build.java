@@ -1,4 +1,4 @@
-/*
+/**
  * Copyright 2016 Marcel Piestansky (http://marpies.com)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
@@ -14,21 +14,20 @@
  * limitations under the License.
  */
 
-package com.marpies.ane.facebook.accountkit.utils;
+package android.os;
 
-import org.json.JSONException;
-import org.json.JSONObject;
+/**
+ * JVM stand-in for Android Build.
+ */
+public class Build {
 
-public class JSONUtils {
+	public static class VERSION {
+		public static final int SDK_INT = VERSION_CODES.LOLLIPOP;
+	}
 
-	public static void addToJSON( JSONObject response, String key, Object value ) {
-		if( key != null && value != null ) {
-			try {
-				response.put( key, value );
-			} catch( JSONException e ) {
-				e.printStackTrace();
-			}
-		}
+	public static class VERSION_CODES {
+		public static final int ICE_CREAM_SANDWICH = 14;
+		public static final int LOLLIPOP = 21;
 	}
 
 }
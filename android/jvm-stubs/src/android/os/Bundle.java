@@ -0,0 +1,55 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.os;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM stand-in for Android Bundle, values are kept in a hash map.
+ */
+public final class Bundle {
+
+	private final Map<String, Object> mValues = new HashMap<String, Object>();
+
+	public void putString( String key, String value ) {
+		mValues.put( key, value );
+	}
+
+	public String getString( String key ) {
+		Object value = mValues.get( key );
+		return (value instanceof String) ? (String) value : null;
+	}
+
+	public void putBoolean( String key, boolean value ) {
+		mValues.put( key, value );
+	}
+
+	public boolean getBoolean( String key ) {
+		return getBoolean( key, false );
+	}
+
+	public boolean getBoolean( String key, boolean defaultValue ) {
+		Object value = mValues.get( key );
+		return (value instanceof Boolean) ? (Boolean) value : defaultValue;
+	}
+
+	public int size() {
+		return mValues.size();
+	}
+
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.os;
+
+/**
+ * JVM stand-in for Android Handler, posts runnables to the looper's message queue.
+ */
+public class Handler {
+
+	private final Looper mLooper;
+
+	public Handler() {
+		this( Looper.getMainLooper() );
+	}
+
+	public Handler( Looper looper ) {
+		mLooper = looper;
+	}
+
+	public final boolean post( Runnable r ) {
+		return postDelayed( r, 0 );
+	}
+
+	public final boolean postDelayed( Runnable r, long delayMillis ) {
+		mLooper.enqueue( this, r, SystemClock.uptimeMillis() + Math.max( 0, delayMillis ) );
+		return true;
+	}
+
+	public final void removeCallbacks( Runnable r ) {
+		mLooper.remove( this, r );
+	}
+
+	public final Looper getLooper() {
+		return mLooper;
+	}
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.os;
+
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/**
+ * JVM stand-in for Android Looper. Only the main looper exists, it runs its message queue
+ * on a daemon thread named "main".
+ */
+public final class Looper {
+
+	private static final Looper sMainLooper = new Looper( "main" );
+
+	private final PriorityQueue<Message> mQueue = new PriorityQueue<Message>();
+	private final Thread mThread;
+	private long mSequence;
+	private volatile int mNumUncaughtExceptions;
+
+	private Looper( String name ) {
+		mThread = new Thread( new Runnable() {
+			@Override
+			public void run() {
+				loop();
+			}
+		}, name );
+		mThread.setDaemon( true );
+		mThread.start();
+	}
+
+	public static Looper getMainLooper() {
+		return sMainLooper;
+	}
+
+	public static Looper myLooper() {
+		return (Thread.currentThread() == sMainLooper.mThread) ? sMainLooper : null;
+	}
+
+	public Thread getThread() {
+		return mThread;
+	}
+
+	/**
+	 * Stand-in only, returns the number of messages waiting in the queue.
+	 */
+	public synchronized int getQueueSize() {
+		return mQueue.size();
+	}
+
+	/**
+	 * Stand-in only, returns the number of exceptions thrown by the messages. The looper logs them and continues.
+	 */
+	public int getNumUncaughtExceptions() {
+		return mNumUncaughtExceptions;
+	}
+
+	synchronized void enqueue( Handler handler, Runnable callback, long uptimeMillis ) {
+		mQueue.add( new Message( handler, callback, uptimeMillis, mSequence++ ) );
+		notifyAll();
+	}
+
+	synchronized void remove( Handler handler, Runnable callback ) {
+		Iterator<Message> it = mQueue.iterator();
+		while( it.hasNext() ) {
+			Message message = it.next();
+			if( message.handler == handler && message.callback == callback ) {
+				it.remove();
+			}
+		}
+	}
+
+	private void loop() {
+		while( true ) {
+			Message message;
+			synchronized( this ) {
+				while( true ) {
+					message = mQueue.peek();
+					long now = SystemClock.uptimeMillis();
+					if( message != null && message.when <= now ) {
+						mQueue.poll();
+						break;
+					}
+					try {
+						wait( (message == null) ? 0 : (message.when - now) );
+					} catch( InterruptedException e ) {
+						return;
+					}
+				}
+			}
+			try {
+				message.callback.run();
+			} catch( Throwable e ) {
+				mNumUncaughtExceptions++;
+				System.err.println( "Uncaught exception on the main looper:" );
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private static final class Message implements Comparable<Message> {
+		final Handler handler;
+		final Runnable callback;
+		final long when;
+		final long sequence;
+
+		Message( Handler handler, Runnable callback, long when, long sequence ) {
+			this.handler = handler;
+			this.callback = callback;
+			this.when = when;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo( Message other ) {
+			if( when != other.when ) return (when < other.when) ? -1 : 1;
+			return (sequence < other.sequence) ? -1 : ((sequence == other.sequence) ? 0 : 1);
+		}
+	}
+
+}
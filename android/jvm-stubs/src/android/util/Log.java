@@ -0,0 +1,41 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.util;
+
+/**
+ * JVM stand-in for Android Log, writes to the standard error output.
+ */
+public final class Log {
+
+	public static final int VERBOSE = 2;
+	public static final int DEBUG = 3;
+	public static final int INFO = 4;
+	public static final int WARN = 5;
+	public static final int ERROR = 6;
+
+	private static final String LEVELS = "??VDIWE";
+
+	private Log() {
+	}
+
+	public static int println( int priority, String tag, String msg ) {
+		char level = (priority >= 0 && priority < LEVELS.length()) ? LEVELS.charAt( priority ) : '?';
+		System.err.println( level + "/" + tag + ": " + msg );
+		return msg.length();
+	}
+
+}
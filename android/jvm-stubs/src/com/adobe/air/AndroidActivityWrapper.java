@@ -0,0 +1,71 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adobe.air;
+
+import android.app.Activity;
+import android.content.Intent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * JVM stand-in for the AIR activity wrapper. The activity is set by the host,
+ * activity results are delivered to the registered listeners.
+ */
+public class AndroidActivityWrapper {
+
+	private static final AndroidActivityWrapper sInstance = new AndroidActivityWrapper();
+
+	private final List<ActivityResultCallback> mResultListeners = new CopyOnWriteArrayList<ActivityResultCallback>();
+	private volatile Activity mActivity;
+
+	interface ActivityResultCallback {
+		void onActivityResult( int requestCode, int resultCode, Intent intent );
+	}
+
+	public static AndroidActivityWrapper GetAndroidActivityWrapper() {
+		return sInstance;
+	}
+
+	public Activity getActivity() {
+		return mActivity;
+	}
+
+	/**
+	 * Stand-in only, sets the activity returned by this wrapper and by every extension context.
+	 */
+	public void setActivity( Activity activity ) {
+		mActivity = activity;
+	}
+
+	public void onActivityResult( int requestCode, int resultCode, Intent intent ) {
+		for( ActivityResultCallback listener : mResultListeners ) {
+			listener.onActivityResult( requestCode, resultCode, intent );
+		}
+	}
+
+	public void addActivityResultListener( ActivityResultCallback listener ) {
+		if( !mResultListeners.contains( listener ) ) {
+			mResultListeners.add( listener );
+		}
+	}
+
+	public void removeActivityResultListener( ActivityResultCallback listener ) {
+		mResultListeners.remove( listener );
+	}
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adobe.fre;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JVM stand-in for AS3 Array and Vector, elements are kept in a list.
+ */
+public class FREArray extends FREObject {
+
+	private final List<FREObject> mElements;
+	private final boolean mFixed;
+
+	protected FREArray( int length, boolean fixed ) {
+		super( (Object) null );
+		mElements = new ArrayList<FREObject>( length );
+		for( int i = 0; i < length; i++ ) {
+			mElements.add( null );
+		}
+		mFixed = fixed;
+	}
+
+	public static FREArray newArray( String classType, int numElements, boolean fixed ) throws FREASErrorException, FRENoSuchNameException, FREWrongThreadException, IllegalStateException {
+		return new FREArray( numElements, fixed );
+	}
+
+	public static FREArray newArray( int numElements ) throws FREASErrorException, FREWrongThreadException, IllegalStateException {
+		return new FREArray( numElements, false );
+	}
+
+	public long getLength() throws FREInvalidObjectException, FREWrongThreadException {
+		return mElements.size();
+	}
+
+	public void setLength( long length ) throws FREInvalidObjectException, IllegalArgumentException, FREReadOnlyException, FREWrongThreadException {
+		if( mFixed ) throw new FREReadOnlyException();
+		while( mElements.size() > length ) {
+			mElements.remove( mElements.size() - 1 );
+		}
+		while( mElements.size() < length ) {
+			mElements.add( null );
+		}
+	}
+
+	public FREObject getObjectAt( long index ) throws FREInvalidObjectException, IllegalArgumentException, FREWrongThreadException {
+		if( index < 0 || index >= mElements.size() ) throw new IllegalArgumentException( "Index out of range: " + index );
+		return mElements.get( (int) index );
+	}
+
+	public void setObjectAt( long index, FREObject value ) throws FREInvalidObjectException, FRETypeMismatchException, FREWrongThreadException {
+		if( index >= mElements.size() ) {
+			if( mFixed ) throw new FREInvalidObjectException();
+			while( mElements.size() <= index ) {
+				mElements.add( null );
+			}
+		}
+		mElements.set( (int) index, value );
+	}
+
+}
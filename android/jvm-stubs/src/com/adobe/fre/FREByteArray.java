@@ -0,0 +1,66 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adobe.fre;
+
+import java.nio.ByteBuffer;
+
+/**
+ * JVM stand-in for AS3 ByteArray. The length is set by writing the <code>length</code> property, like in AS3.
+ */
+public class FREByteArray extends FREObject {
+
+	private ByteBuffer mBytes = ByteBuffer.allocate( 0 );
+
+	protected FREByteArray() {
+		super( (Object) null );
+	}
+
+	public static FREByteArray newByteArray() throws FREASErrorException, FREWrongThreadException, IllegalStateException {
+		return new FREByteArray();
+	}
+
+	public long getLength() throws FREInvalidObjectException, FREWrongThreadException, IllegalStateException {
+		return mBytes.capacity();
+	}
+
+	public ByteBuffer getBytes() throws FREInvalidObjectException, FREWrongThreadException, IllegalStateException {
+		return mBytes;
+	}
+
+	public void acquire() throws FREInvalidObjectException, FREWrongThreadException, IllegalStateException {
+		mBytes.rewind();
+	}
+
+	public void release() throws FREInvalidObjectException, FREWrongThreadException, IllegalStateException {
+	}
+
+	@Override
+	public void setProperty( String name, FREObject value ) throws FRETypeMismatchException, FREInvalidObjectException, FREASErrorException, FRENoSuchNameException, FREReadOnlyException, FREWrongThreadException, IllegalStateException {
+		if( "length".equals( name ) ) {
+			ByteBuffer bytes = ByteBuffer.allocate( value.getAsInt() );
+			mBytes.rewind();
+			while( mBytes.hasRemaining() && bytes.hasRemaining() ) {
+				bytes.put( mBytes.get() );
+			}
+			bytes.rewind();
+			mBytes = bytes;
+			return;
+		}
+		super.setProperty( name, value );
+	}
+
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adobe.fre;
+
+import android.app.Activity;
+import com.adobe.air.AndroidActivityWrapper;
+
+import java.util.Map;
+
+/**
+ * JVM stand-in for the extension context. Status events are passed to the listener set by the host.
+ */
+public abstract class FREContext {
+
+	/**
+	 * Stand-in only, receives the status events dispatched by the extension.
+	 */
+	public interface StatusEventListener {
+		void onStatusEvent( FREContext context, String code, String level );
+	}
+
+	private FREObject mActionScriptData;
+	private volatile StatusEventListener mStatusEventListener;
+
+	public abstract Map<String, FREFunction> getFunctions();
+
+	public abstract void dispose();
+
+	public FREObject getActionScriptData() throws FREWrongThreadException, IllegalStateException {
+		return mActionScriptData;
+	}
+
+	public void setActionScriptData( FREObject data ) throws FREWrongThreadException, IllegalArgumentException, IllegalStateException {
+		mActionScriptData = data;
+	}
+
+	public Activity getActivity() throws IllegalStateException {
+		return AndroidActivityWrapper.GetAndroidActivityWrapper().getActivity();
+	}
+
+	public int getResourceId( String name ) throws IllegalArgumentException, IllegalStateException {
+		return 0;
+	}
+
+	public void dispatchStatusEventAsync( String code, String level ) throws IllegalArgumentException, IllegalStateException {
+		StatusEventListener listener = mStatusEventListener;
+		if( listener != null ) {
+			listener.onStatusEvent( this, code, level );
+		}
+	}
+
+	/**
+	 * Stand-in only, sets the listener of the status events, or <code>null</code> to ignore them.
+	 */
+	public void setStatusEventListener( StatusEventListener listener ) {
+		mStatusEventListener = listener;
+	}
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adobe.fre;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM stand-in for the AIR runtime object, holds a primitive value or a map of properties in memory.
+ */
+public class FREObject {
+
+	private final Object mValue;
+	private final Map<String, FREObject> mProperties = new HashMap<String, FREObject>();
+
+	protected FREObject( Object value ) {
+		mValue = value;
+	}
+
+	public static FREObject newObject( int value ) throws FREWrongThreadException {
+		return new FREObject( value );
+	}
+
+	public static FREObject newObject( double value ) throws FREWrongThreadException {
+		return new FREObject( value );
+	}
+
+	public static FREObject newObject( boolean value ) throws FREWrongThreadException {
+		return new FREObject( value );
+	}
+
+	public static FREObject newObject( String value ) throws FREWrongThreadException {
+		return new FREObject( value );
+	}
+
+	public static FREObject newObject( String className, FREObject[] constructorArgs ) throws FRETypeMismatchException, FREInvalidObjectException, FREASErrorException, FRENoSuchNameException, FREWrongThreadException, IllegalStateException {
+		return new FREObject( (Object) null );
+	}
+
+	public int getAsInt() throws FRETypeMismatchException, FREInvalidObjectException, FREWrongThreadException, IllegalStateException {
+		if( !(mValue instanceof Number) ) throw new FRETypeMismatchException();
+		return ((Number) mValue).intValue();
+	}
+
+	public double getAsDouble() throws FRETypeMismatchException, FREInvalidObjectException, FREWrongThreadException, IllegalStateException {
+		if( !(mValue instanceof Number) ) throw new FRETypeMismatchException();
+		return ((Number) mValue).doubleValue();
+	}
+
+	public boolean getAsBool() throws FRETypeMismatchException, FREInvalidObjectException, FREWrongThreadException, IllegalStateException {
+		if( !(mValue instanceof Boolean) ) throw new FRETypeMismatchException();
+		return (Boolean) mValue;
+	}
+
+	public String getAsString() throws FRETypeMismatchException, FREInvalidObjectException, FREWrongThreadException, IllegalStateException {
+		if( !(mValue instanceof String) ) throw new FRETypeMismatchException();
+		return (String) mValue;
+	}
+
+	public FREObject getProperty( String name ) throws FRETypeMismatchException, FREInvalidObjectException, FREASErrorException, FRENoSuchNameException, FREWrongThreadException, IllegalStateException {
+		return mProperties.get( name );
+	}
+
+	public void setProperty( String name, FREObject value ) throws FRETypeMismatchException, FREInvalidObjectException, FREASErrorException, FRENoSuchNameException, FREReadOnlyException, FREWrongThreadException, IllegalStateException {
+		mProperties.put( name, value );
+	}
+
+	public FREObject callMethod( String methodName, FREObject[] args ) throws FRETypeMismatchException, FREInvalidObjectException, FREASErrorException, FRENoSuchNameException, FREWrongThreadException, IllegalStateException {
+		throw new FRENoSuchNameException();
+	}
+
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.accountkit;
+
+import java.util.Date;
+
+/**
+ * JVM stand-in for the AccountKit access token.
+ */
+public final class AccessToken {
+
+	private final String mToken;
+	private final String mAccountId;
+	private final String mApplicationId;
+	private final long mTokenRefreshIntervalSeconds;
+	private final Date mLastRefresh;
+
+	public AccessToken( String token, String accountId, String applicationId, long tokenRefreshIntervalSeconds, Date lastRefresh ) {
+		mToken = token;
+		mAccountId = accountId;
+		mApplicationId = applicationId;
+		mTokenRefreshIntervalSeconds = tokenRefreshIntervalSeconds;
+		mLastRefresh = lastRefresh;
+	}
+
+	public String getAccountId() {
+		return mAccountId;
+	}
+
+	public String getApplicationId() {
+		return mApplicationId;
+	}
+
+	public Date getLastRefresh() {
+		return mLastRefresh;
+	}
+
+	public String getToken() {
+		return mToken;
+	}
+
+	public long getTokenRefreshIntervalSeconds() {
+		return mTokenRefreshIntervalSeconds;
+	}
+
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.accountkit;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * JVM stand-in for the AccountKit access token tracker. Token changes are announced
+ * by the simulated SDK instead of a local broadcast.
+ */
+public abstract class AccessTokenTracker extends Tracker {
+
+	private static final List<AccessTokenTracker> sTrackers = new CopyOnWriteArrayList<AccessTokenTracker>();
+
+	protected abstract void onCurrentAccessTokenChanged( AccessToken oldAccessToken, AccessToken currentAccessToken );
+
+	@Override
+	public void startTracking() {
+		super.startTracking();
+		if( !sTrackers.contains( this ) ) {
+			sTrackers.add( this );
+		}
+	}
+
+	@Override
+	public void stopTracking() {
+		super.stopTracking();
+		sTrackers.remove( this );
+	}
+
+	/**
+	 * Stand-in only, notifies every tracker that the current access token changed.
+	 */
+	public static void notifyCurrentAccessTokenChanged( AccessToken oldAccessToken, AccessToken currentAccessToken ) {
+		for( AccessTokenTracker tracker : sTrackers ) {
+			tracker.onCurrentAccessTokenChanged( oldAccessToken, currentAccessToken );
+		}
+	}
+
+}
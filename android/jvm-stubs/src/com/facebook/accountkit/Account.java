@@ -0,0 +1,48 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.accountkit;
+
+import android.os.Parcelable;
+
+/**
+ * JVM stand-in for the AccountKit account.
+ */
+public final class Account implements Parcelable {
+
+	private final String mId;
+	private final PhoneNumber mPhoneNumber;
+	private final String mEmail;
+
+	public Account( String id, PhoneNumber phoneNumber, String email ) {
+		mId = id;
+		mPhoneNumber = phoneNumber;
+		mEmail = email;
+	}
+
+	public String getEmail() {
+		return mEmail;
+	}
+
+	public String getId() {
+		return mId;
+	}
+
+	public PhoneNumber getPhoneNumber() {
+		return mPhoneNumber;
+	}
+
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.accountkit;
+
+import android.content.Context;
+
+/**
+ * JVM stand-in for the AccountKit SDK entry point. Every call is delegated to the backend set by the host.
+ */
+public final class AccountKit {
+
+	/**
+	 * Stand-in only, simulates the SDK.
+	 */
+	public interface Backend {
+		void initialize( Context context, InitializeCallback callback );
+
+		boolean isInitialized();
+
+		void logOut();
+
+		AccessToken getCurrentAccessToken();
+
+		AccountPreferences getAccountPreferences();
+
+		void getCurrentAccount( AccountKitCallback<Account> callback );
+	}
+
+	public interface InitializeCallback {
+		void onInitialized();
+	}
+
+	private static volatile Backend sBackend;
+
+	private AccountKit() {
+	}
+
+	/**
+	 * Stand-in only, sets the backend that simulates the SDK.
+	 */
+	public static void setBackend( Backend backend ) {
+		sBackend = backend;
+	}
+
+	public static void initialize( Context applicationContext, InitializeCallback initializeCallback ) {
+		getBackend().initialize( applicationContext, initializeCallback );
+	}
+
+	public static boolean isInitialized() {
+		return getBackend().isInitialized();
+	}
+
+	public static void logOut() {
+		getBackend().logOut();
+	}
+
+	public static AccessToken getCurrentAccessToken() {
+		return getBackend().getCurrentAccessToken();
+	}
+
+	public static AccountPreferences getAccountPreferences() {
+		return getBackend().getAccountPreferences();
+	}
+
+	public static void getCurrentAccount( AccountKitCallback<Account> callback ) {
+		getBackend().getCurrentAccount( callback );
+	}
+
+	private static Backend getBackend() {
+		Backend backend = sBackend;
+		if( backend == null ) throw new IllegalStateException( "AccountKit backend is not set." );
+		return backend;
+	}
+
+}
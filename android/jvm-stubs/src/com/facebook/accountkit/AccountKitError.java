@@ -0,0 +1,79 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.accountkit;
+
+import android.os.Parcelable;
+
+/**
+ * JVM stand-in for the AccountKit error.
+ */
+public final class AccountKitError implements Parcelable {
+
+	public enum Type {
+		NETWORK_CONNECTION_ERROR( 100, "A request failed due to a network error" ),
+		SERVER_ERROR( 200, "Server generated an error" ),
+		LOGIN_INVALIDATED( 300, "The login has expired" ),
+		INTERNAL_ERROR( 400, "An internal consistency error has occurred" ),
+		INITIALIZATION_ERROR( 500, "Initialization error" ),
+		ARGUMENT_ERROR( 600, "Invalid argument provided" );
+
+		private final int mCode;
+		private final String mMessage;
+
+		Type( int code, String message ) {
+			mCode = code;
+			mMessage = message;
+		}
+
+		public String getMessage() {
+			return mMessage;
+		}
+
+		public int getCode() {
+			return mCode;
+		}
+
+		@Override
+		public String toString() {
+			return mCode + ": " + mMessage;
+		}
+	}
+
+	private final Type mErrorType;
+
+	public AccountKitError( Type errorType ) {
+		mErrorType = errorType;
+	}
+
+	public Type getErrorType() {
+		return mErrorType;
+	}
+
+	public int getDetailErrorCode() {
+		return -1;
+	}
+
+	public String getUserFacingMessage() {
+		return mErrorType.getMessage();
+	}
+
+	@Override
+	public String toString() {
+		return mErrorType.toString();
+	}
+
+}
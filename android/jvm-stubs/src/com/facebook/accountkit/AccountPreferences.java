@@ -0,0 +1,50 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.accountkit;
+
+import java.util.Map;
+
+/**
+ * JVM stand-in for the AccountKit account preferences.
+ */
+public interface AccountPreferences {
+
+	interface OnDeletePreferenceListener {
+		void onDeletePreference( String key, AccountKitError error );
+	}
+
+	interface OnLoadPreferenceListener {
+		void onLoadPreference( String key, String value, AccountKitError error );
+	}
+
+	interface OnLoadPreferencesListener {
+		void onLoadPreferences( Map<String, String> preferences, AccountKitError error );
+	}
+
+	interface OnSetPreferenceListener {
+		void onSetPreference( String key, String value, AccountKitError error );
+	}
+
+	void deletePreference( String key, OnDeletePreferenceListener listener );
+
+	void loadPreference( String key, OnLoadPreferenceListener listener );
+
+	void loadPreferences( OnLoadPreferencesListener listener );
+
+	void setPreference( String key, String value, OnSetPreferenceListener listener );
+
+}
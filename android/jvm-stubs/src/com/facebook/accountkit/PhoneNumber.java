@@ -0,0 +1,57 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.accountkit;
+
+import android.os.Parcelable;
+
+/**
+ * JVM stand-in for the AccountKit phone number.
+ */
+public final class PhoneNumber implements Parcelable {
+
+	private final String mCountryCode;
+	private final String mPhoneNumber;
+	private final String mCountryCodeIso;
+
+	public PhoneNumber( String countryCode, String phoneNumber, String countryCodeIso ) {
+		mCountryCode = countryCode;
+		mPhoneNumber = phoneNumber;
+		mCountryCodeIso = countryCodeIso;
+	}
+
+	public PhoneNumber( String countryCode, String phoneNumber ) {
+		this( countryCode, phoneNumber, null );
+	}
+
+	public String getPhoneNumber() {
+		return mPhoneNumber;
+	}
+
+	public String getCountryCode() {
+		return mCountryCode;
+	}
+
+	public String getCountryCodeIso() {
+		return mCountryCodeIso;
+	}
+
+	@Override
+	public String toString() {
+		return "+" + mCountryCode + mPhoneNumber;
+	}
+
+}
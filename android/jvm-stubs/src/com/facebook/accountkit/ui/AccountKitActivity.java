@@ -0,0 +1,38 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.accountkit.ui;
+
+import android.app.Activity;
+
+/**
+ * JVM stand-in for the AccountKit login activity.
+ */
+public class AccountKitActivity extends Activity {
+
+	public static final String ACCOUNT_KIT_ACTIVITY_CONFIGURATION = "AccountKitConfiguration";
+
+	public enum ResponseType {
+		CODE,
+		TOKEN
+	}
+
+	public enum TitleType {
+		APP_NAME,
+		LOGIN
+	}
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.accountkit.ui;
+
+import android.os.Parcelable;
+import com.facebook.accountkit.PhoneNumber;
+
+/**
+ * JVM stand-in for the AccountKit login configuration.
+ */
+public final class AccountKitConfiguration implements Parcelable {
+
+	private final LoginType mLoginType;
+	private final AccountKitActivity.ResponseType mResponseType;
+	private final String mInitialAuthState;
+	private final String mInitialEmail;
+	private final PhoneNumber mInitialPhoneNumber;
+
+	private AccountKitConfiguration( AccountKitConfigurationBuilder builder ) {
+		mLoginType = builder.mLoginType;
+		mResponseType = builder.mResponseType;
+		mInitialAuthState = builder.mInitialAuthState;
+		mInitialEmail = builder.mInitialEmail;
+		mInitialPhoneNumber = builder.mInitialPhoneNumber;
+	}
+
+	public LoginType getLoginType() {
+		return mLoginType;
+	}
+
+	public AccountKitActivity.ResponseType getResponseType() {
+		return mResponseType;
+	}
+
+	public String getInitialAuthState() {
+		return mInitialAuthState;
+	}
+
+	public String getInitialEmail() {
+		return mInitialEmail;
+	}
+
+	public PhoneNumber getInitialPhoneNumber() {
+		return mInitialPhoneNumber;
+	}
+
+	public static class AccountKitConfigurationBuilder {
+
+		private final LoginType mLoginType;
+		private final AccountKitActivity.ResponseType mResponseType;
+		private String mInitialAuthState;
+		private String mInitialEmail;
+		private PhoneNumber mInitialPhoneNumber;
+
+		public AccountKitConfigurationBuilder( LoginType loginType, AccountKitActivity.ResponseType responseType ) {
+			mLoginType = loginType;
+			mResponseType = responseType;
+		}
+
+		public AccountKitConfigurationBuilder setDefaultCountryCode( String defaultCountryCode ) {
+			return this;
+		}
+
+		public AccountKitConfigurationBuilder setFacebookNotificationsEnabled( boolean enabled ) {
+			return this;
+		}
+
+		public AccountKitConfigurationBuilder setInitialAuthState( String initialAuthState ) {
+			mInitialAuthState = initialAuthState;
+			return this;
+		}
+
+		public AccountKitConfigurationBuilder setInitialEmail( String initialEmail ) {
+			mInitialEmail = initialEmail;
+			return this;
+		}
+
+		public AccountKitConfigurationBuilder setInitialPhoneNumber( PhoneNumber initialPhoneNumber ) {
+			mInitialPhoneNumber = initialPhoneNumber;
+			return this;
+		}
+
+		public AccountKitConfigurationBuilder setReadPhoneStateEnabled( boolean enabled ) {
+			return this;
+		}
+
+		public AccountKitConfigurationBuilder setReceiveSMS( boolean enabled ) {
+			return this;
+		}
+
+		public AccountKitConfigurationBuilder setSMSBlacklist( String[] blacklist ) {
+			return this;
+		}
+
+		public AccountKitConfigurationBuilder setSMSWhitelist( String[] whitelist ) {
+			return this;
+		}
+
+		public AccountKitConfigurationBuilder setTitleType( AccountKitActivity.TitleType titleType ) {
+			return this;
+		}
+
+		public AccountKitConfiguration build() {
+			return new AccountKitConfiguration( this );
+		}
+
+	}
+
+}
@@ -0,0 +1,334 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.loadtest;
+
+import com.adobe.fre.FREObject;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulated ActionScript client. Calls randomly picked functions and keeps at most <code>window</code>
+ * asynchronous requests in flight. Settings functions are called with the values the test started with.
+ */
+class ClientDriver implements Runnable {
+
+	private static final int RECENT_REQUESTS = 64;
+
+	private final int mId;
+	private final LoadTestOptions mOptions;
+	private final RequestLedger mLedger;
+	private final ExtensionCaller mCaller;
+	private final AtomicInteger mRemainingRequests;
+	private final long mDeadlineNanos;
+	private final Random mRandom;
+	private final Semaphore mWindow;
+	private final Operation[] mOperations;
+	private final int[] mCumulativeWeights;
+	private final int[] mRecentRequests = new int[RECENT_REQUESTS];
+	private int mNumRecentRequests;
+	private volatile boolean mIsStopped;
+
+	ClientDriver( int id, LoadTestOptions options, RequestLedger ledger, ExtensionCaller caller, AtomicInteger remainingRequests, long deadlineNanos ) {
+		mId = id;
+		mOptions = options;
+		mLedger = ledger;
+		mCaller = caller;
+		mRemainingRequests = remainingRequests;
+		mDeadlineNanos = deadlineNanos;
+		mRandom = new Random( options.seed * 31 + id );
+		mWindow = new Semaphore( options.window );
+
+		int numOperations = 0;
+		for( Operation operation : Operation.values() ) {
+			if( operation.weight > 0 ) numOperations++;
+		}
+		mOperations = new Operation[numOperations];
+		mCumulativeWeights = new int[numOperations];
+		int total = 0;
+		int index = 0;
+		for( Operation operation : Operation.values() ) {
+			if( operation.weight <= 0 ) continue;
+			total += operation.weight;
+			mOperations[index] = operation;
+			mCumulativeWeights[index++] = total;
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			while( !mIsStopped ) {
+				if( !mWindow.tryAcquire( 100, TimeUnit.MILLISECONDS ) ) continue;
+				if( !hasRemainingRequests() ) {
+					mWindow.release();
+					break;
+				}
+				submit( pickOperation() );
+			}
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	void stop() {
+		mIsStopped = true;
+	}
+
+	/**
+	 * Settings arguments the test started with, shared with the harness setup.
+	 */
+	static FREObject[] getSettingsArgs( Operation operation, LoadTestOptions options ) {
+		switch( operation ) {
+			case SET_LOGIN_POLICY:
+				return FREValues.args( FREValues.of( options.loginPolicy ) );
+			case SET_REQUEST_TIMEOUT:
+				return FREValues.args( FREValues.of( (double) options.requestTimeoutSeconds ) );
+			case SET_PREFERENCE_CACHE_OPTIONS:
+				return FREValues.args( FREValues.of( 256 ), FREValues.of( 30.0 ) );
+			case SET_PREFERENCE_SNAPSHOT:
+				return FREValues.args( FREValues.of( options.snapshot ) );
+			case SET_OFFLINE_WRITES:
+				return FREValues.args( FREValues.of( options.offline ) );
+			case SET_PREFERENCE_DELTAS:
+				return FREValues.args( FREValues.of( options.deltas ) );
+			case SET_PAYLOAD_OPTIONS:
+				return FREValues.args( FREValues.of( options.payloadThreshold ), FREValues.of( 30.0 ), FREValues.of( 4 * 1024 * 1024 ) );
+			case SET_ACCOUNT_CACHE_MAX_AGE:
+				return FREValues.args( FREValues.of( 60.0 ) );
+			case SET_BINARY_EVENTS:
+				return FREValues.args( FREValues.of( options.binary ) );
+			case SET_EVENT_BATCHING:
+				return FREValues.args( FREValues.of( options.batching ? 16 : 0 ), FREValues.of( 32 ), FREValues.of( 4096 ) );
+			case SET_LOG_OPTIONS:
+				return FREValues.args( FREValues.of( "warn" ), FREValues.of( 256 ) );
+			case SET_TRACING:
+				return FREValues.args( FREValues.of( true ), FREValues.of( 4096 ) );
+			default:
+				throw new IllegalArgumentException( operation + " is not a settings function." );
+		}
+	}
+
+	/**
+	 * Login arguments: configuration object, callback id and the packed configuration.
+	 */
+	static FREObject[] getLoginArgs( int callbackId, String loginType ) {
+		String packed = "{\"v\":1,\"loginType\":\"" + loginType + "\",\"initialAuthState\":\"state-" + callbackId + "\"}";
+		return FREValues.args( FREValues.object(), FREValues.of( callbackId ), FREValues.of( packed ) );
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private boolean hasRemainingRequests() {
+		if( mDeadlineNanos > 0 ) return System.nanoTime() < mDeadlineNanos;
+		return mRemainingRequests.getAndDecrement() > 0;
+	}
+
+	private Operation pickOperation() {
+		int value = mRandom.nextInt( mCumulativeWeights[mCumulativeWeights.length - 1] );
+		for( int i = 0; i < mCumulativeWeights.length; i++ ) {
+			if( value < mCumulativeWeights[i] ) return mOperations[i];
+		}
+		return mOperations[mOperations.length - 1];
+	}
+
+	private void submit( Operation operation ) {
+		if( operation.isAsync() ) {
+			submitRequest( operation );
+		} else {
+			submitCall( operation );
+		}
+	}
+
+	/**
+	 * Strings packed in ByteArray like the AS side passes them, or a Vector like older AS code.
+	 */
+	private FREObject pickStrings( String[] strings ) {
+		return mRandom.nextBoolean() ? FREValues.packed( strings ) : FREValues.vector( strings );
+	}
+
+	private void submitRequest( Operation operation ) {
+		int callbackId = mLedger.nextCallbackId();
+		String[] keys = null;
+		String[] values = null;
+		FREObject[] args;
+		switch( operation ) {
+			case LOGIN:
+				args = getLoginArgs( callbackId, mRandom.nextBoolean() ? "phone" : "email" );
+				break;
+			case GET_CURRENT_ACCOUNT:
+				args = FREValues.args( FREValues.of( callbackId ) );
+				break;
+			case LOAD_PREFERENCES:
+				if( mOptions.deltas ) {
+					args = FREValues.args( FREValues.of( callbackId ), FREValues.of( mLedger.preferencesVersion.get() ) );
+				} else {
+					args = FREValues.args( FREValues.of( callbackId ) );
+				}
+				break;
+			case SET_PREFERENCE:
+				keys = new String[]{ pickKey() };
+				values = new String[]{ RequestLedger.createValue( keys[0], callbackId ) };
+				args = FREValues.args( FREValues.of( keys[0] ), FREValues.of( values[0] ), FREValues.of( callbackId ) );
+				break;
+			case LOAD_PREFERENCE:
+			case DELETE_PREFERENCE:
+				keys = new String[]{ pickKey() };
+				args = FREValues.args( FREValues.of( keys[0] ), FREValues.of( callbackId ) );
+				break;
+			case SET_PREFERENCES:
+				keys = pickKeys();
+				values = new String[keys.length];
+				String[] pairs = new String[keys.length * 2];
+				for( int i = 0; i < keys.length; i++ ) {
+					values[i] = RequestLedger.createValue( keys[i], callbackId );
+					pairs[2 * i] = keys[i];
+					pairs[2 * i + 1] = values[i];
+				}
+				args = FREValues.args( pickStrings( pairs ), FREValues.of( callbackId ) );
+				break;
+			case DELETE_PREFERENCES:
+				keys = pickKeys();
+				args = FREValues.args( pickStrings( keys ), FREValues.of( callbackId ) );
+				break;
+			default:
+				throw new IllegalArgumentException( operation + " is not an asynchronous function." );
+		}
+
+		mLedger.submit( callbackId, operation, keys, values, new Runnable() {
+			@Override
+			public void run() {
+				mWindow.release();
+			}
+		} );
+		rememberRequest( callbackId );
+		mCaller.post( operation, args, new ExtensionCaller.Callback() {
+			@Override
+			public void onResult( FREObject result, Throwable error ) {
+				if( error != null ) {
+					onCallException( error );
+				}
+			}
+		} );
+	}
+
+	private void submitCall( final Operation operation ) {
+		final FREObject[] args;
+		switch( operation ) {
+			case CANCEL:
+				args = FREValues.args( FREValues.of( pickRecentRequest() ) );
+				break;
+			case GET_ACCESS_TOKEN:
+			case GET_SDK_VERSION:
+			case IS_SUPPORTED:
+			case GET_NATIVE_STATS:
+			case DUMP_LOGS:
+			case EXPORT_TRACE:
+				args = new FREObject[0];
+				break;
+			default:
+				args = getSettingsArgs( operation, mOptions );
+				break;
+		}
+
+		final long submitNanos = System.nanoTime();
+		mCaller.post( operation, args, new ExtensionCaller.Callback() {
+			@Override
+			public void onResult( FREObject result, Throwable error ) {
+				if( error != null ) {
+					onCallException( error );
+				} else {
+					mLedger.onCall( operation, submitNanos, isValidReturnValue( operation, result ) );
+				}
+				mWindow.release();
+			}
+		} );
+	}
+
+	private static boolean isValidReturnValue( Operation operation, FREObject result ) {
+		try {
+			switch( operation ) {
+				case CANCEL:
+					result.getAsBool();
+					return true;
+				case GET_ACCESS_TOKEN:
+					/* The user stays logged in during the test */
+					return new JSONObject( result.getAsString() ).has( "token" );
+				case GET_SDK_VERSION:
+					return result.getAsString().length() > 0;
+				case IS_SUPPORTED:
+					return result.getAsBool();
+				case GET_NATIVE_STATS:
+					return new JSONObject( result.getAsString() ).has( "requests" );
+				case DUMP_LOGS:
+					return result.getAsString() != null;
+				case EXPORT_TRACE:
+					return new File( result.getAsString() ).isFile();
+				default:
+					return result == null;
+			}
+		} catch( Exception e ) {
+			return false;
+		}
+	}
+
+	private void onCallException( Throwable error ) {
+		mLedger.callExceptions.incrementAndGet();
+		System.err.println( "Client " + mId + " function call failed:" );
+		error.printStackTrace();
+	}
+
+	private String pickKey() {
+		return "key" + mRandom.nextInt( mOptions.keys );
+	}
+
+	/**
+	 * Picks up to 4 distinct keys.
+	 */
+	private String[] pickKeys() {
+		int count = Math.min( mOptions.keys, 2 + mRandom.nextInt( 3 ) );
+		String[] keys = new String[count];
+		int first = mRandom.nextInt( mOptions.keys );
+		for( int i = 0; i < count; i++ ) {
+			keys[i] = "key" + ((first + i) % mOptions.keys);
+		}
+		return keys;
+	}
+
+	private synchronized void rememberRequest( int callbackId ) {
+		mRecentRequests[mNumRecentRequests++ % RECENT_REQUESTS] = callbackId;
+	}
+
+	/**
+	 * Picks one of the recent requests of this client, it may have completed already.
+	 */
+	private synchronized int pickRecentRequest() {
+		if( mNumRecentRequests == 0 ) return -1;
+		return mRecentRequests[mRandom.nextInt( Math.min( mNumRecentRequests, RECENT_REQUESTS ) )];
+	}
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.loadtest;
+
+import com.adobe.fre.FREContext;
+import com.marpies.ane.facebook.accountkit.AccountKitExtension;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Disposes the extension context and creates a new one at a fixed interval while the clients keep
+ * sending requests, like an app that disposes the extension and initializes it again. SDK responses
+ * that arrive while there is no context must be replayed to the new context.
+ */
+class ContextRecycler implements Runnable {
+
+	private final AccountKitExtension mExtension;
+	private final LoadTestOptions mOptions;
+	private final ExtensionCaller mCaller;
+	private final EventRecorder mRecorder;
+
+	private volatile FREContext mContext;
+	private volatile boolean mIsStopped;
+	private volatile int mNumRecreated;
+
+	ContextRecycler( AccountKitExtension extension, FREContext context, LoadTestOptions options, ExtensionCaller caller, EventRecorder recorder ) {
+		mExtension = extension;
+		mContext = context;
+		mOptions = options;
+		mCaller = caller;
+		mRecorder = recorder;
+	}
+
+	@Override
+	public void run() {
+		try {
+			while( !mIsStopped ) {
+				Thread.sleep( mOptions.recreateMillis );
+				if( mIsStopped ) return;
+
+				recreate();
+			}
+		} catch( Exception e ) {
+			throw new IllegalStateException( "Extension context could not be recreated.", e );
+		}
+	}
+
+	void stop() {
+		mIsStopped = true;
+	}
+
+	FREContext getContext() {
+		return mContext;
+	}
+
+	int getNumRecreated() {
+		return mNumRecreated;
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private void recreate() throws Exception {
+		LoadTest.runOnMainThread( new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				mCaller.setContext( null );
+				mContext.dispose();
+				mExtension.dispose();
+				return null;
+			}
+		} );
+
+		/* Responses to the requests in flight arrive while there is no context */
+		Thread.sleep( mOptions.detachedMillis );
+
+		mContext = LoadTest.runOnMainThread( new Callable<FREContext>() {
+			@Override
+			public FREContext call() throws Exception {
+				FREContext context = mExtension.createContext( null );
+				context.setStatusEventListener( mRecorder );
+				/* Like AccountKit.as, only settings kept by the context are sent again */
+				for( Operation setting : LoadTest.CONTEXT_SETTINGS ) {
+					mCaller.callDirect( context, setting, ClientDriver.getSettingsArgs( setting, mOptions ) );
+				}
+				mCaller.callDirect( context, Operation.INIT, FREValues.of( "accessToken" ), FREValues.of( false ) );
+				mCaller.setContext( context );
+				return context;
+			}
+		} );
+		mNumRecreated++;
+	}
+
+}
@@ -0,0 +1,301 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.loadtest;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.adobe.fre.FREByteArray;
+import com.adobe.fre.FREContext;
+import com.adobe.fre.FREObject;
+import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Receives the status events dispatched by the extension. Events are handled on the main looper,
+ * like the AIR runtime delivers them to ActionScript. Batches are split, binary payloads are pulled
+ * using the getEventPayload function, large messages using the readEventPayload function, and every result is passed to the ledger.
+ */
+class EventRecorder implements FREContext.StatusEventListener {
+
+	private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+	/* Small chunks so that large payloads are pulled in several calls */
+	private static final int PAYLOAD_CHUNK_SIZE = 512;
+
+	private final RequestLedger mLedger;
+	private final Handler mHandler = new Handler( Looper.getMainLooper() );
+	private final Map<String, AtomicLong> mEventCounts = new TreeMap<String, AtomicLong>();
+	private final CountDownLatch mInitLatch = new CountDownLatch( 1 );
+	private ExtensionCaller mCaller;
+
+	EventRecorder( RequestLedger ledger ) {
+		mLedger = ledger;
+	}
+
+	void setCaller( ExtensionCaller caller ) {
+		mCaller = caller;
+	}
+
+	@Override
+	public void onStatusEvent( final FREContext context, final String code, final String level ) {
+		mHandler.post( new Runnable() {
+			@Override
+			public void run() {
+				if( AccountKitEvent.BATCH.equals( code ) ) {
+					countEvent( code );
+					onBatch( context, level );
+				} else {
+					onEvent( context, code, level );
+				}
+			}
+		} );
+	}
+
+	CountDownLatch getInitLatch() {
+		return mInitLatch;
+	}
+
+	/**
+	 * @return Number of events received for each event code, events in batches are counted individually.
+	 */
+	synchronized Map<String, Long> getEventCounts() {
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for( Map.Entry<String, AtomicLong> entry : mEventCounts.entrySet() ) {
+			counts.put( entry.getKey(), entry.getValue().get() );
+		}
+		return counts;
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private void onBatch( FREContext context, String level ) {
+		try {
+			JSONArray batch = new JSONArray( level );
+			for( int i = 0; i + 1 < batch.length(); i += 2 ) {
+				onEvent( context, batch.getString( i ), batch.getString( i + 1 ) );
+			}
+		} catch( JSONException e ) {
+			mLedger.undecodableEvents.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @param context Context that dispatched the event, payloads are pulled from that context.
+	 */
+	private void onEvent( FREContext context, String code, String level ) {
+		countEvent( code );
+		try {
+			if( AccountKitEvent.INIT.equals( code ) ) {
+				mInitLatch.countDown();
+			} else if( AccountKitEvent.TOKEN_CHANGED.equals( code ) || AccountKitEvent.ACCOUNT_UPDATE.equals( code )
+					|| AccountKitEvent.PREFERENCE_WRITE_FAILED.equals( code ) ) {
+				/* Not a result of any request */
+			} else if( AccountKitEvent.LOGIN_CANCEL.equals( code ) ) {
+				mLedger.onLoginCancel( Integer.parseInt( level ) );
+			} else if( AccountKitEvent.BINARY_EVENT.equals( code ) ) {
+				onBinaryEvent( context, Integer.parseInt( level ) );
+			} else if( AccountKitEvent.PAYLOAD_EVENT.equals( code ) ) {
+				onPayloadEvent( context, new JSONObject( level ) );
+			} else if( Operation.fromResultEvent( code ) != null ) {
+				mLedger.onResult( decodeJSON( code, new JSONObject( level ) ) );
+			} else {
+				mLedger.unknownEvents.incrementAndGet();
+			}
+		} catch( JSONException e ) {
+			mLedger.undecodableEvents.incrementAndGet();
+		} catch( NumberFormatException e ) {
+			mLedger.undecodableEvents.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Pulls message of large event in chunks and handles the event with that message.
+	 */
+	private void onPayloadEvent( FREContext context, JSONObject json ) throws JSONException {
+		int handle = json.getInt( "handle" );
+		byte[] message = new byte[json.getInt( "size" )];
+		int offset = 0;
+		while( offset < message.length ) {
+			FREObject chunk = mCaller.callDirect( context, Operation.READ_EVENT_PAYLOAD, FREValues.of( handle ), FREValues.of( offset ), FREValues.of( PAYLOAD_CHUNK_SIZE ) );
+			if( !(chunk instanceof FREByteArray) ) {
+				mLedger.undecodableEvents.incrementAndGet();
+				return;
+			}
+			try {
+				FREByteArray byteArray = (FREByteArray) chunk;
+				byteArray.acquire();
+				ByteBuffer bytes = byteArray.getBytes();
+				int length = bytes.remaining();
+				bytes.get( message, offset, length );
+				byteArray.release();
+				if( length == 0 ) throw new IllegalStateException( "Empty payload chunk." );
+				offset += length;
+			} catch( Exception e ) {
+				mLedger.undecodableEvents.incrementAndGet();
+				return;
+			}
+		}
+		onEvent( context, json.getString( "event" ), new String( message, UTF_8 ) );
+	}
+
+	private void onBinaryEvent( FREContext context, int handle ) {
+		FREObject payload = mCaller.callDirect( context, Operation.GET_EVENT_PAYLOAD, FREValues.of( handle ) );
+		if( !(payload instanceof FREByteArray) ) {
+			mLedger.undecodableEvents.incrementAndGet();
+			return;
+		}
+		try {
+			FREByteArray byteArray = (FREByteArray) payload;
+			byteArray.acquire();
+			ByteBuffer bytes = byteArray.getBytes();
+			mLedger.onResult( decodeBinary( bytes ) );
+			byteArray.release();
+		} catch( Exception e ) {
+			mLedger.undecodableEvents.incrementAndGet();
+		}
+	}
+
+	private static RequestLedger.Result decodeJSON( String code, JSONObject json ) throws JSONException {
+		RequestLedger.Result result = new RequestLedger.Result();
+		result.eventName = code;
+		if( json.has( "listenerID" ) ) {
+			result.callbackId = json.getInt( "listenerID" );
+			result.errorMessage = json.getString( "errorMessage" );
+			return result;
+		}
+
+		result.callbackId = json.getInt( "callbackId" );
+		result.isStale = json.optBoolean( "stale" );
+		if( AccountKitEvent.LOGIN_SUCCESS.equals( code ) ) {
+			result.hasAccessToken = json.has( "accessToken" );
+		} else if( AccountKitEvent.ACCOUNT_REQUEST.equals( code ) ) {
+			result.keys = new String[]{ json.getString( "id" ) };
+		} else if( AccountKitEvent.LOAD_PREFERENCES.equals( code ) ) {
+			/* Keys of a delta that were removed are not validated */
+			result.preferencesVersion = json.optInt( "version", -1 );
+			JSONArray preferences = json.getJSONArray( json.has( "changed" ) ? "changed" : "preferences" );
+			int count = preferences.length() / 2;
+			result.keys = new String[count];
+			result.values = new String[count];
+			for( int i = 0; i < count; i++ ) {
+				result.keys[i] = preferences.getString( 2 * i );
+				result.values[i] = preferences.getString( 2 * i + 1 );
+			}
+		} else if( AccountKitEvent.SET_PREFERENCES.equals( code ) || AccountKitEvent.DELETE_PREFERENCES.equals( code ) ) {
+			JSONArray results = json.getJSONArray( "results" );
+			int count = results.length();
+			result.keys = new String[count];
+			result.values = new String[count];
+			result.errors = new String[count];
+			for( int i = 0; i < count; i++ ) {
+				JSONObject keyResult = results.getJSONObject( i );
+				result.keys[i] = keyResult.getString( "key" );
+				result.values[i] = keyResult.has( "value" ) ? keyResult.getString( "value" ) : null;
+				result.errors[i] = keyResult.has( "errorMessage" ) ? keyResult.getString( "errorMessage" ) : null;
+			}
+		} else {
+			result.keys = new String[]{ json.getString( "key" ) };
+			result.values = new String[]{ json.has( "value" ) ? json.getString( "value" ) : null };
+		}
+		return result;
+	}
+
+	/**
+	 * Decodes payload in the format written by BinaryEventEncoder.
+	 */
+	private static RequestLedger.Result decodeBinary( ByteBuffer bytes ) {
+		RequestLedger.Result result = new RequestLedger.Result();
+		int opcode = bytes.get();
+		result.callbackId = bytes.getInt();
+		int status = bytes.get();
+		switch( opcode ) {
+			case 1:
+				result.eventName = AccountKitEvent.LOAD_PREFERENCE;
+				break;
+			case 2:
+				result.eventName = AccountKitEvent.LOAD_PREFERENCES;
+				break;
+			case 3:
+				result.eventName = AccountKitEvent.SET_PREFERENCE;
+				break;
+			case 4:
+				result.eventName = AccountKitEvent.DELETE_PREFERENCE;
+				break;
+			case 5:
+				result.eventName = AccountKitEvent.LOAD_PREFERENCES;
+				break;
+			default:
+				throw new IllegalArgumentException( "Unknown opcode " + opcode );
+		}
+		if( status == 1 ) {
+			result.errorMessage = readString( bytes );
+			return result;
+		}
+
+		result.isStale = (status == 2);
+		if( opcode == 5 ) {
+			result.preferencesVersion = bytes.getInt();
+			bytes.getInt();
+		}
+		if( opcode == 2 || opcode == 5 ) {
+			int count = bytes.getInt();
+			result.keys = new String[count];
+			result.values = new String[count];
+			for( int i = 0; i < count; i++ ) {
+				result.keys[i] = readString( bytes );
+				result.values[i] = readString( bytes );
+			}
+		} else {
+			result.keys = new String[]{ readString( bytes ) };
+			result.values = new String[]{ (opcode == 4) ? null : readString( bytes ) };
+		}
+		return result;
+	}
+
+	private static String readString( ByteBuffer bytes ) {
+		int length = bytes.getInt();
+		if( length < 0 ) return null;
+
+		byte[] utf = new byte[length];
+		bytes.get( utf );
+		return new String( utf, UTF_8 );
+	}
+
+	private synchronized void countEvent( String code ) {
+		AtomicLong count = mEventCounts.get( code );
+		if( count == null ) {
+			count = new AtomicLong();
+			mEventCounts.put( code, count );
+		}
+		count.incrementAndGet();
+	}
+
+}
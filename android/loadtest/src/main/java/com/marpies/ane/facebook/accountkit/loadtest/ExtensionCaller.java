@@ -0,0 +1,153 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.loadtest;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.adobe.fre.FREContext;
+import com.adobe.fre.FREFunction;
+import com.adobe.fre.FREObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls the extension functions on the main looper, like the AIR runtime does.
+ * Remembers which functions were called so that uncovered functions can be reported.
+ * Calls made while the extension context is being recreated wait for the new context.
+ */
+class ExtensionCaller {
+
+	interface Callback {
+		void onResult( FREObject result, Throwable error );
+	}
+
+	private final Handler mHandler = new Handler( Looper.getMainLooper() );
+	private final Set<String> mFunctionNames;
+	private final Set<String> mCalledFunctions = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+
+	/* Accessed on the main looper thread only */
+	private final Map<FREContext, Map<String, FREFunction>> mFunctions = new WeakHashMap<FREContext, Map<String, FREFunction>>();
+	private final List<Runnable> mWaitingCalls = new ArrayList<Runnable>();
+	private FREContext mContext;
+
+	ExtensionCaller( FREContext context ) {
+		mContext = context;
+		mFunctionNames = new TreeSet<String>( context.getFunctions().keySet() );
+	}
+
+	/**
+	 * Switches the calls to the given context, or makes them wait if the context is <code>null</code>.
+	 * Must be called on the main looper thread.
+	 */
+	void setContext( FREContext context ) {
+		mContext = context;
+		if( context == null ) return;
+
+		List<Runnable> waitingCalls = new ArrayList<Runnable>( mWaitingCalls );
+		mWaitingCalls.clear();
+		for( Runnable call : waitingCalls ) {
+			call.run();
+		}
+	}
+
+	/**
+	 * Calls the function on the current thread, which must be the main looper thread.
+	 */
+	FREObject callDirect( Operation operation, FREObject... args ) {
+		return callDirect( mContext, operation, args );
+	}
+
+	/**
+	 * Calls the function of the given context on the current thread, which must be the main looper thread.
+	 */
+	FREObject callDirect( FREContext context, Operation operation, FREObject... args ) {
+		Map<String, FREFunction> functions = mFunctions.get( context );
+		if( functions == null ) {
+			functions = context.getFunctions();
+			mFunctions.put( context, functions );
+		}
+		FREFunction function = functions.get( operation.functionName );
+		if( function == null ) throw new IllegalStateException( "Function " + operation.functionName + " is not registered." );
+
+		mCalledFunctions.add( operation.functionName );
+		return function.call( context, args );
+	}
+
+	/**
+	 * Posts the call to the main looper, the callback is invoked on the main looper.
+	 */
+	void post( final Operation operation, final FREObject[] args, final Callback callback ) {
+		mHandler.post( new Runnable() {
+			@Override
+			public void run() {
+				if( mContext == null ) {
+					mWaitingCalls.add( this );
+					return;
+				}
+				FREObject result = null;
+				Throwable error = null;
+				try {
+					result = callDirect( operation, args );
+				} catch( Throwable e ) {
+					error = e;
+				}
+				if( callback != null ) {
+					callback.onResult( result, error );
+				}
+			}
+		} );
+	}
+
+	/**
+	 * Posts the call to the main looper and waits for its result.
+	 */
+	FREObject call( Operation operation, FREObject... args ) throws InterruptedException {
+		final FREObject[] result = new FREObject[1];
+		final Throwable[] error = new Throwable[1];
+		final CountDownLatch latch = new CountDownLatch( 1 );
+		post( operation, args, new Callback() {
+			@Override
+			public void onResult( FREObject value, Throwable e ) {
+				result[0] = value;
+				error[0] = e;
+				latch.countDown();
+			}
+		} );
+		if( !latch.await( 10, TimeUnit.SECONDS ) ) throw new IllegalStateException( "Function " + operation.functionName + " did not return in time." );
+		if( error[0] != null ) throw new IllegalStateException( "Function " + operation.functionName + " failed.", error[0] );
+		return result[0];
+	}
+
+	/**
+	 * @return Names of the registered functions that were not called yet, sorted.
+	 */
+	Set<String> getUncalledFunctions() {
+		Set<String> uncalled = new TreeSet<String>( mFunctionNames );
+		uncalled.removeAll( mCalledFunctions );
+		return uncalled;
+	}
+
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.loadtest;
+
+import com.adobe.fre.FREArray;
+import com.adobe.fre.FREByteArray;
+import com.adobe.fre.FREObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+
+/**
+ * Creates function arguments the way the AS side of the extension passes them.
+ */
+class FREValues {
+
+	static FREObject of( int value ) {
+		try {
+			return FREObject.newObject( value );
+		} catch( Exception e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	static FREObject of( double value ) {
+		try {
+			return FREObject.newObject( value );
+		} catch( Exception e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	static FREObject of( boolean value ) {
+		try {
+			return FREObject.newObject( value );
+		} catch( Exception e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	static FREObject of( String value ) {
+		try {
+			return FREObject.newObject( value );
+		} catch( Exception e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	static FREObject object() {
+		try {
+			return FREObject.newObject( "Object", null );
+		} catch( Exception e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	static FREArray vector( String... values ) {
+		try {
+			FREArray array = FREArray.newArray( "String", values.length, false );
+			for( int i = 0; i < values.length; i++ ) {
+				array.setObjectAt( i, FREObject.newObject( values[i] ) );
+			}
+			return array;
+		} catch( Exception e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	/**
+	 * ByteArray with the number of strings followed by each string prefixed with its UTF-8 length.
+	 */
+	static FREByteArray packed( String... values ) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream output = new DataOutputStream( bytes );
+			output.writeInt( values.length );
+			for( String value : values ) {
+				if( value == null ) {
+					output.writeInt( -1 );
+					continue;
+				}
+				byte[] utf = value.getBytes( "UTF-8" );
+				output.writeInt( utf.length );
+				output.write( utf );
+			}
+			FREByteArray byteArray = FREByteArray.newByteArray();
+			byteArray.setProperty( "length", FREObject.newObject( bytes.size() ) );
+			byteArray.acquire();
+			byteArray.getBytes().put( bytes.toByteArray() );
+			byteArray.release();
+			return byteArray;
+		} catch( Exception e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	static FREObject[] args( FREObject... args ) {
+		return args;
+	}
+
+}
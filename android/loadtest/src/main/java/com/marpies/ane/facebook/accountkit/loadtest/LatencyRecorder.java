@@ -0,0 +1,57 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects latency samples of a single operation, percentiles are computed from the sorted samples.
+ */
+class LatencyRecorder {
+
+	private long[] mSamples = new long[1024];
+	private int mNumSamples;
+
+	synchronized void record( long nanos ) {
+		if( mNumSamples == mSamples.length ) {
+			mSamples = Arrays.copyOf( mSamples, mSamples.length * 2 );
+		}
+		mSamples[mNumSamples++] = nanos;
+	}
+
+	synchronized int getCount() {
+		return mNumSamples;
+	}
+
+	/**
+	 * @param percentiles Percentiles in range 0-100.
+	 * @return Latency in nanoseconds for each of the percentiles, zeros if there are no samples.
+	 */
+	synchronized long[] getPercentiles( double... percentiles ) {
+		long[] result = new long[percentiles.length];
+		if( mNumSamples == 0 ) return result;
+
+		long[] sorted = Arrays.copyOf( mSamples, mNumSamples );
+		Arrays.sort( sorted );
+		for( int i = 0; i < percentiles.length; i++ ) {
+			int index = (int) Math.ceil( percentiles[i] / 100.0 * sorted.length ) - 1;
+			result[i] = sorted[Math.max( 0, Math.min( sorted.length - 1, index ) )];
+		}
+		return result;
+	}
+
+}
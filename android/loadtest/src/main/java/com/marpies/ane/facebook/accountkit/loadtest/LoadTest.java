@@ -0,0 +1,208 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.loadtest;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.adobe.air.AndroidActivityWrapper;
+import com.adobe.fre.FREContext;
+import com.adobe.fre.FREObject;
+import com.facebook.accountkit.AccountKit;
+import com.marpies.ane.facebook.accountkit.AccountKitExtension;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test of the extension on a plain JVM. The AIR runtime and the AccountKit SDK are simulated,
+ * concurrent clients call every extension function and each result event is checked against its request.
+ * Exits with status 1 if any event was lost, duplicated, misrouted or carried a wrong payload.
+ *
+ * Usage: LoadTest [--clients=16] [--window=8] [--requests=20000 | --duration=seconds] [--keys=64] [--seed=1]
+ *                 [--recreate=0] [--detached=50]
+ *                 [--latency=20] [--jitter=10] [--errorRate=0.02] [--dropRate=0.005] [--duplicateRate=0.005]
+ *                 [--loginCancelRate=0.1] [--binary] [--batching] [--offline] [--snapshot] [--deltas] [--payloadThreshold=1024]
+ *                 [--loginPolicy=join|queue|reject] [--timeout=2] [--drain=10]
+ */
+public class LoadTest {
+
+	static final Operation[] SETTINGS = new Operation[]{
+			Operation.SET_LOG_OPTIONS, Operation.SET_TRACING, Operation.SET_EVENT_BATCHING, Operation.SET_BINARY_EVENTS,
+			Operation.SET_LOGIN_POLICY, Operation.SET_REQUEST_TIMEOUT, Operation.SET_PREFERENCE_CACHE_OPTIONS,
+			Operation.SET_ACCOUNT_CACHE_MAX_AGE, Operation.SET_PREFERENCE_SNAPSHOT, Operation.SET_OFFLINE_WRITES,
+			Operation.SET_PREFERENCE_DELTAS, Operation.SET_PAYLOAD_OPTIONS
+	};
+	/* Settings kept by the extension context, AccountKit.as sends them again to a new context */
+	static final Operation[] CONTEXT_SETTINGS = new Operation[]{
+			Operation.SET_BINARY_EVENTS, Operation.SET_REQUEST_TIMEOUT, Operation.SET_LOGIN_POLICY,
+			Operation.SET_ACCOUNT_CACHE_MAX_AGE, Operation.SET_PREFERENCE_DELTAS, Operation.SET_EVENT_BATCHING,
+			Operation.SET_PAYLOAD_OPTIONS
+	};
+
+	public static void main( String[] args ) throws Exception {
+		LoadTestOptions options = LoadTestOptions.parse( args );
+		System.out.println( "AccountKit ANE load test: " + options );
+
+		/* Simulated SDK and AIR activity */
+		SimulatedAccountKit accountKit = new SimulatedAccountKit( options );
+		AccountKit.setBackend( accountKit );
+		AndroidActivityWrapper.GetAndroidActivityWrapper().setActivity( new SimulatedActivity( accountKit ) );
+
+		/* Extension context, created on the main thread like in AIR */
+		RequestLedger ledger = new RequestLedger();
+		EventRecorder recorder = new EventRecorder( ledger );
+		final AccountKitExtension extension = new AccountKitExtension();
+		extension.initialize();
+		final FREContext context = runOnMainThread( new Callable<FREContext>() {
+			@Override
+			public FREContext call() throws Exception {
+				return extension.createContext( null );
+			}
+		} );
+		context.setStatusEventListener( recorder );
+		ExtensionCaller caller = new ExtensionCaller( context );
+		recorder.setCaller( caller );
+
+		/* Settings, SDK initialization and login */
+		for( Operation setting : SETTINGS ) {
+			caller.call( setting, ClientDriver.getSettingsArgs( setting, options ) );
+		}
+		caller.call( Operation.INIT, FREValues.of( "accessToken" ), FREValues.of( false ) );
+		checkUnknownPayload( ledger, caller );
+		if( !recorder.getInitLatch().await( 10, TimeUnit.SECONDS ) ) throw new IllegalStateException( "Extension was not initialized." );
+		login( ledger, caller );
+
+		/* Context recreation, while the clients keep sending requests */
+		ContextRecycler recycler = new ContextRecycler( extension, context, options, caller, recorder );
+		Thread recyclerThread = new Thread( recycler, "context-recycler" );
+		if( options.recreateMillis > 0 ) {
+			recyclerThread.start();
+		}
+
+		/* Load */
+		accountKit.setFaultsEnabled( true );
+		long startNanos = System.nanoTime();
+		long deadlineNanos = (options.durationSeconds > 0) ? startNanos + TimeUnit.SECONDS.toNanos( options.durationSeconds ) : 0;
+		AtomicInteger remainingRequests = new AtomicInteger( options.requests );
+		ClientDriver[] clients = new ClientDriver[options.clients];
+		Thread[] threads = new Thread[options.clients];
+		for( int i = 0; i < options.clients; i++ ) {
+			clients[i] = new ClientDriver( i, options, ledger, caller, remainingRequests, deadlineNanos );
+			threads[i] = new Thread( clients[i], "client-" + i );
+			threads[i].start();
+		}
+		waitForClients( options, ledger, clients, threads, startNanos );
+		recycler.stop();
+		if( recyclerThread.isAlive() ) {
+			recyclerThread.join();
+			System.out.println( "  context recreated " + recycler.getNumRecreated() + " times" );
+		}
+
+		/* Wait for the requests still in flight, then for late duplicates */
+		long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( options.drainSeconds );
+		while( ledger.getNumMissing() > 0 && System.nanoTime() < drainDeadline ) {
+			Thread.sleep( 10 );
+		}
+		long elapsedNanos = System.nanoTime() - startNanos;
+		Thread.sleep( Math.max( 500, 3 * (options.latencyMillis + options.jitterMillis) ) );
+		accountKit.setFaultsEnabled( false );
+
+		/* Final stats, logout and dispose */
+		FREObject nativeStats = caller.call( Operation.GET_NATIVE_STATS );
+		caller.call( Operation.LOGOUT );
+		final FREContext lastContext = recycler.getContext();
+		runOnMainThread( new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				lastContext.dispose();
+				extension.dispose();
+				return null;
+			}
+		} );
+
+		LoadTestReport report = new LoadTestReport( ledger, recorder, accountKit, caller );
+		report.print( System.out, elapsedNanos, (nativeStats != null) ? nativeStats.getAsString() : null );
+		System.exit( report.isPassed() ? 0 : 1 );
+	}
+
+	/**
+	 * Logs in before the load starts, faults are not enabled yet so the login succeeds.
+	 */
+	private static void login( RequestLedger ledger, ExtensionCaller caller ) throws InterruptedException {
+		int callbackId = ledger.nextCallbackId();
+		final CountDownLatch latch = new CountDownLatch( 1 );
+		ledger.submit( callbackId, Operation.LOGIN, null, null, new Runnable() {
+			@Override
+			public void run() {
+				latch.countDown();
+			}
+		} );
+		caller.call( Operation.LOGIN, ClientDriver.getLoginArgs( callbackId, "phone" ) );
+		if( !latch.await( 10, TimeUnit.SECONDS ) || AccountKit.getCurrentAccessToken() == null ) {
+			throw new IllegalStateException( "Login did not succeed." );
+		}
+	}
+
+	/**
+	 * Payload of an unknown handle must not exist, binary events pull the existing payloads.
+	 */
+	private static void checkUnknownPayload( RequestLedger ledger, ExtensionCaller caller ) throws InterruptedException {
+		long submitNanos = System.nanoTime();
+		FREObject payload = caller.call( Operation.GET_EVENT_PAYLOAD, FREValues.of( -1 ) );
+		ledger.onCall( Operation.GET_EVENT_PAYLOAD, submitNanos, payload == null );
+
+		submitNanos = System.nanoTime();
+		payload = caller.call( Operation.READ_EVENT_PAYLOAD, FREValues.of( -1 ), FREValues.of( 0 ), FREValues.of( 1024 ) );
+		ledger.onCall( Operation.READ_EVENT_PAYLOAD, submitNanos, payload == null );
+	}
+
+	/**
+	 * Waits until the clients finish, prints progress every second. Stops the clients
+	 * if no request completes for the drain period, e.g. when results are lost.
+	 */
+	private static void waitForClients( LoadTestOptions options, RequestLedger ledger, ClientDriver[] clients, Thread[] threads, long startNanos ) throws InterruptedException {
+		long lastCompleted = -1;
+		long lastProgressNanos = System.nanoTime();
+		for( int i = 0; i < threads.length; i++ ) {
+			while( threads[i].isAlive() ) {
+				threads[i].join( 1000 );
+				long completed = ledger.getNumCompleted();
+				long now = System.nanoTime();
+				System.out.println( String.format( "  %5.1fs  completed: %d", (now - startNanos) / 1e9, completed ) );
+				if( completed != lastCompleted ) {
+					lastCompleted = completed;
+					lastProgressNanos = now;
+				} else if( now - lastProgressNanos > TimeUnit.SECONDS.toNanos( options.drainSeconds ) ) {
+					System.out.println( "  no progress for " + options.drainSeconds + "s, stopping clients" );
+					for( ClientDriver client : clients ) {
+						client.stop();
+					}
+				}
+			}
+		}
+	}
+
+	static <T> T runOnMainThread( Callable<T> callable ) throws Exception {
+		FutureTask<T> task = new FutureTask<T>( callable );
+		new Handler( Looper.getMainLooper() ).post( task );
+		return task.get( 10, TimeUnit.SECONDS );
+	}
+
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Load test settings, parsed from <code>--name=value</code> arguments. Boolean options may be given as <code>--name</code>.
+ */
+class LoadTestOptions {
+
+	/* Load */
+	int clients = 16;
+	int window = 8;
+	int requests = 20000;
+	int durationSeconds = 0;
+	int keys = 64;
+	long seed = 1;
+
+	/* Extension context is disposed and created again every recreateMillis, 0 keeps the first context */
+	int recreateMillis = 0;
+	int detachedMillis = 50;
+
+	/* Simulated AccountKit backend */
+	int latencyMillis = 20;
+	int jitterMillis = 10;
+	double errorRate = 0.02;
+	double dropRate = 0.005;
+	double duplicateRate = 0.005;
+	double loginCancelRate = 0.1;
+
+	/* Extension settings */
+	boolean binary = false;
+	boolean batching = false;
+	boolean offline = false;
+	boolean snapshot = false;
+	boolean deltas = false;
+	int payloadThreshold = 1024;
+	String loginPolicy = "join";
+	int requestTimeoutSeconds = 2;
+	int drainSeconds = 10;
+
+	static LoadTestOptions parse( String[] args ) {
+		Map<String, String> values = new HashMap<String, String>();
+		for( String arg : args ) {
+			if( !arg.startsWith( "--" ) ) throw new IllegalArgumentException( "Unexpected argument: " + arg );
+			int separator = arg.indexOf( '=' );
+			if( separator < 0 ) {
+				values.put( arg.substring( 2 ), "true" );
+			} else {
+				values.put( arg.substring( 2, separator ), arg.substring( separator + 1 ) );
+			}
+		}
+
+		LoadTestOptions options = new LoadTestOptions();
+		options.clients = getInt( values, "clients", options.clients );
+		options.window = getInt( values, "window", options.window );
+		options.requests = getInt( values, "requests", options.requests );
+		options.durationSeconds = getInt( values, "duration", options.durationSeconds );
+		options.keys = getInt( values, "keys", options.keys );
+		options.seed = getInt( values, "seed", (int) options.seed );
+		options.recreateMillis = getInt( values, "recreate", options.recreateMillis );
+		options.detachedMillis = getInt( values, "detached", options.detachedMillis );
+		options.latencyMillis = getInt( values, "latency", options.latencyMillis );
+		options.jitterMillis = getInt( values, "jitter", options.jitterMillis );
+		options.errorRate = getDouble( values, "errorRate", options.errorRate );
+		options.dropRate = getDouble( values, "dropRate", options.dropRate );
+		options.duplicateRate = getDouble( values, "duplicateRate", options.duplicateRate );
+		options.loginCancelRate = getDouble( values, "loginCancelRate", options.loginCancelRate );
+		options.binary = getBoolean( values, "binary", options.binary );
+		options.batching = getBoolean( values, "batching", options.batching );
+		options.offline = getBoolean( values, "offline", options.offline );
+		options.snapshot = getBoolean( values, "snapshot", options.snapshot );
+		options.deltas = getBoolean( values, "deltas", options.deltas );
+		options.payloadThreshold = getInt( values, "payloadThreshold", options.payloadThreshold );
+		options.loginPolicy = getString( values, "loginPolicy", options.loginPolicy );
+		options.requestTimeoutSeconds = getInt( values, "timeout", options.requestTimeoutSeconds );
+		options.drainSeconds = getInt( values, "drain", options.drainSeconds );
+
+		if( !values.isEmpty() ) throw new IllegalArgumentException( "Unknown option(s): " + values.keySet() );
+		if( options.clients < 1 || options.window < 1 || options.keys < 1 ) throw new IllegalArgumentException( "Clients, window and keys must be positive." );
+		return options;
+	}
+
+	@Override
+	public String toString() {
+		return "clients=" + clients + " window=" + window
+				+ ((durationSeconds > 0) ? (" duration=" + durationSeconds + "s") : (" requests=" + requests))
+				+ " keys=" + keys + " seed=" + seed
+				+ ((recreateMillis > 0) ? (" recreate=" + recreateMillis + "ms detached=" + detachedMillis + "ms") : "")
+				+ " latency=" + latencyMillis + "ms jitter=" + jitterMillis + "ms"
+				+ " errorRate=" + errorRate + " dropRate=" + dropRate + " duplicateRate=" + duplicateRate
+				+ " loginCancelRate=" + loginCancelRate
+				+ " binary=" + binary + " batching=" + batching + " offline=" + offline + " snapshot=" + snapshot + " deltas=" + deltas
+				+ " payloadThreshold=" + payloadThreshold
+				+ " loginPolicy=" + loginPolicy + " timeout=" + requestTimeoutSeconds + "s";
+	}
+
+	private static int getInt( Map<String, String> values, String name, int defaultValue ) {
+		String value = values.remove( name );
+		return (value != null) ? Integer.parseInt( value ) : defaultValue;
+	}
+
+	private static double getDouble( Map<String, String> values, String name, double defaultValue ) {
+		String value = values.remove( name );
+		return (value != null) ? Double.parseDouble( value ) : defaultValue;
+	}
+
+	private static boolean getBoolean( Map<String, String> values, String name, boolean defaultValue ) {
+		String value = values.remove( name );
+		return (value != null) ? Boolean.parseBoolean( value ) : defaultValue;
+	}
+
+	private static String getString( Map<String, String> values, String name, String defaultValue ) {
+		String value = values.remove( name );
+		return (value != null) ? value : defaultValue;
+	}
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.loadtest;
+
+import android.os.Looper;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prints throughput, latency percentiles and event delivery correctness of a finished load test.
+ */
+class LoadTestReport {
+
+	private static final double[] PERCENTILES = new double[]{ 50, 90, 99, 99.9, 100 };
+
+	private final RequestLedger mLedger;
+	private final EventRecorder mRecorder;
+	private final SimulatedAccountKit mAccountKit;
+	private final ExtensionCaller mCaller;
+
+	LoadTestReport( RequestLedger ledger, EventRecorder recorder, SimulatedAccountKit accountKit, ExtensionCaller caller ) {
+		mLedger = ledger;
+		mRecorder = recorder;
+		mAccountKit = accountKit;
+		mCaller = caller;
+	}
+
+	/**
+	 * @return <code>true</code> if there were no correctness violations.
+	 */
+	boolean isPassed() {
+		return mLedger.getNumViolations() == 0 && Looper.getMainLooper().getNumUncaughtExceptions() == 0;
+	}
+
+	void print( PrintStream out, long elapsedNanos, String nativeStats ) {
+		double seconds = elapsedNanos / 1e9;
+		long completed = 0;
+
+		out.println();
+		out.println( String.format( "%-27s %8s %8s %7s %7s %7s %8s %6s %8s %8s %8s %8s %8s",
+				"operation", "calls", "ok", "failed", "timeout", "cancel", "notFound", "stale",
+				"p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms" ) );
+		for( Operation operation : Operation.values() ) {
+			OperationStats stats = mLedger.getStats( operation );
+			if( stats.calls.get() == 0 ) continue;
+
+			completed += stats.getCompleted();
+			long[] latency = stats.latency.getPercentiles( PERCENTILES );
+			out.println( String.format( "%-27s %8d %8d %7d %7d %7d %8d %6d %8.2f %8.2f %8.2f %8.2f %8.2f",
+					operation.functionName, stats.calls.get(), stats.succeeded.get(), stats.failed.get(),
+					stats.timedOut.get(), stats.cancelled.get(), stats.notFound.get(), stats.stale.get(),
+					latency[0] / 1e6, latency[1] / 1e6, latency[2] / 1e6, latency[3] / 1e6, latency[4] / 1e6 ) );
+		}
+
+		out.println();
+		out.println( String.format( "Completed %d calls in %.2fs, %.0f calls/s", completed, seconds, completed / seconds ) );
+		out.println( String.format( "Backend: %d requests, %d failed, %d dropped, %d duplicated, %d logins, %d preferences stored",
+				mAccountKit.getNumRequests(), mAccountKit.getNumFailed(), mAccountKit.getNumDropped(),
+				mAccountKit.getNumDuplicated(), mAccountKit.getNumLogins(), mAccountKit.getNumPreferences() ) );
+		out.println( "Events: " + mRecorder.getEventCounts() );
+
+		Map<String, Long> errorMessages = mLedger.getErrorMessages();
+		if( !errorMessages.isEmpty() ) {
+			out.println( "Errors:" );
+			for( Map.Entry<String, Long> entry : errorMessages.entrySet() ) {
+				out.println( String.format( "  %8d  %s", entry.getValue(), entry.getKey() ) );
+			}
+		}
+		if( nativeStats != null ) {
+			out.println( "Native stats: " + nativeStats );
+		}
+
+		out.println();
+		out.println( "Event delivery:" );
+		printCount( out, "missing results", mLedger.getNumMissing() );
+		printCount( out, "duplicate results", mLedger.duplicateEvents.get() );
+		printCount( out, "unknown callback ids", mLedger.unknownEvents.get() );
+		printCount( out, "results of other operation", mLedger.mismatchedEvents.get() );
+		printCount( out, "wrong payloads", mLedger.invalidPayloads.get() );
+		printCount( out, "undecodable events", mLedger.undecodableEvents.get() );
+		printCount( out, "wrong return values", mLedger.invalidReturnValues.get() );
+		printCount( out, "function exceptions", mLedger.callExceptions.get() );
+		printCount( out, "main looper exceptions", Looper.getMainLooper().getNumUncaughtExceptions() );
+
+		Set<String> uncalled = mCaller.getUncalledFunctions();
+		if( !uncalled.isEmpty() ) {
+			out.println( "Functions not exercised: " + uncalled );
+		}
+		out.println();
+		out.println( isPassed() ? "PASSED" : "FAILED" );
+	}
+
+	private static void printCount( PrintStream out, String name, long count ) {
+		out.println( String.format( "  %-28s %d", name, count ) );
+	}
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.loadtest;
+
+import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
+
+/**
+ * Extension functions exercised by the load test. Asynchronous operations name the event
+ * that carries their result, weights define how often each operation is picked by the clients.
+ * Operations with zero weight are called by the harness itself.
+ */
+enum Operation {
+
+	/* Asynchronous, the result is delivered as status event */
+	LOGIN( "login", 2, AccountKitEvent.LOGIN_SUCCESS ),
+	GET_CURRENT_ACCOUNT( "getCurrentAccount", 8, AccountKitEvent.ACCOUNT_REQUEST ),
+	SET_PREFERENCE( "setPreference", 20, AccountKitEvent.SET_PREFERENCE ),
+	LOAD_PREFERENCE( "loadPreference", 25, AccountKitEvent.LOAD_PREFERENCE ),
+	DELETE_PREFERENCE( "deletePreference", 5, AccountKitEvent.DELETE_PREFERENCE ),
+	LOAD_PREFERENCES( "loadPreferences", 6, AccountKitEvent.LOAD_PREFERENCES ),
+	SET_PREFERENCES( "setPreferences", 4, AccountKitEvent.SET_PREFERENCES ),
+	DELETE_PREFERENCES( "deletePreferences", 2, AccountKitEvent.DELETE_PREFERENCES ),
+
+	/* Synchronous, the result is returned from the call */
+	CANCEL( "cancel", 4, null ),
+	GET_ACCESS_TOKEN( "getAccessToken", 4, null ),
+	GET_SDK_VERSION( "getSdkVersion", 1, null ),
+	IS_SUPPORTED( "isSupported", 1, null ),
+	GET_NATIVE_STATS( "getNativeStats", 1, null ),
+	DUMP_LOGS( "dumpLogs", 1, null ),
+	EXPORT_TRACE( "exportTrace", 1, null ),
+
+	/* Settings, re-applied with the values the test started with */
+	SET_LOGIN_POLICY( "setLoginPolicy", 1, null ),
+	SET_REQUEST_TIMEOUT( "setRequestTimeout", 1, null ),
+	SET_PREFERENCE_CACHE_OPTIONS( "setPreferenceCacheOptions", 1, null ),
+	SET_PREFERENCE_SNAPSHOT( "setPreferenceSnapshot", 1, null ),
+	SET_OFFLINE_WRITES( "setOfflineWrites", 1, null ),
+	SET_PREFERENCE_DELTAS( "setPreferenceDeltas", 1, null ),
+	SET_PAYLOAD_OPTIONS( "setPayloadOptions", 1, null ),
+	SET_ACCOUNT_CACHE_MAX_AGE( "setAccountCacheMaxAge", 1, null ),
+	SET_BINARY_EVENTS( "setBinaryEvents", 1, null ),
+	SET_EVENT_BATCHING( "setEventBatching", 1, null ),
+	SET_LOG_OPTIONS( "setLogOptions", 1, null ),
+	SET_TRACING( "setTracing", 1, null ),
+
+	/* Called by the harness */
+	INIT( "init", 0, null ),
+	GET_EVENT_PAYLOAD( "getEventPayload", 0, null ),
+	READ_EVENT_PAYLOAD( "readEventPayload", 0, null ),
+	LOGOUT( "logout", 0, null );
+
+	final String functionName;
+	final int weight;
+	final String eventName;
+
+	Operation( String functionName, int weight, String eventName ) {
+		this.functionName = functionName;
+		this.weight = weight;
+		this.eventName = eventName;
+	}
+
+	boolean isAsync() {
+		return eventName != null;
+	}
+
+	/**
+	 * @return <code>true</code> if the event with the given code carries the result of this operation.
+	 */
+	boolean isResultEvent( String code ) {
+		if( this == LOGIN ) {
+			return AccountKitEvent.LOGIN_SUCCESS.equals( code )
+					|| AccountKitEvent.LOGIN_CANCEL.equals( code )
+					|| AccountKitEvent.LOGIN_ERROR.equals( code );
+		}
+		return code.equals( eventName );
+	}
+
+	static Operation fromResultEvent( String code ) {
+		for( Operation operation : values() ) {
+			if( operation.isAsync() && operation.isResultEvent( code ) ) return operation;
+		}
+		return null;
+	}
+
+}
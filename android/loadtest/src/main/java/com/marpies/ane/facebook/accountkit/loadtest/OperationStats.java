@@ -0,0 +1,39 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.loadtest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outcome counters and latency of a single operation.
+ */
+class OperationStats {
+
+	final AtomicLong calls = new AtomicLong();
+	final AtomicLong succeeded = new AtomicLong();
+	final AtomicLong failed = new AtomicLong();
+	final AtomicLong timedOut = new AtomicLong();
+	final AtomicLong cancelled = new AtomicLong();
+	final AtomicLong notFound = new AtomicLong();
+	final AtomicLong stale = new AtomicLong();
+	final LatencyRecorder latency = new LatencyRecorder();
+
+	long getCompleted() {
+		return succeeded.get() + failed.get() + timedOut.get() + cancelled.get() + notFound.get();
+	}
+
+}
@@ -0,0 +1,308 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.loadtest;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps every submitted asynchronous request and matches the delivered events against them.
+ * Each request must receive exactly one result event of its operation, with the payload of the request.
+ * Stale results from the disk snapshot may precede the result. Events are checked on the main looper.
+ */
+class RequestLedger {
+
+	static final String TIMEOUT_MESSAGE = "Request timed out.";
+	static final String CANCEL_MESSAGE = "Request was cancelled.";
+
+	/**
+	 * Asynchronous request waiting for its result.
+	 */
+	static class Request {
+		final int callbackId;
+		final Operation operation;
+		final String[] keys;
+		final String[] values;
+		final Runnable onComplete;
+		volatile long submitNanos;
+		volatile boolean isComplete;
+
+		Request( int callbackId, Operation operation, String[] keys, String[] values, Runnable onComplete ) {
+			this.callbackId = callbackId;
+			this.operation = operation;
+			this.keys = keys;
+			this.values = values;
+			this.onComplete = onComplete;
+		}
+	}
+
+	/**
+	 * Decoded result event, or a stale result that precedes it.
+	 */
+	static class Result {
+		String eventName;
+		int callbackId;
+		String errorMessage;
+		boolean isStale;
+		/* Keys and values of the result, values are null for deletes and errors of a batch are in errors */
+		String[] keys;
+		String[] values;
+		String[] errors;
+		boolean hasAccessToken;
+		/* Version of delta loadPreferences result, -1 if deltas are disabled */
+		int preferencesVersion = -1;
+	}
+
+	private final AtomicInteger mNextCallbackId = new AtomicInteger( 1 );
+	private final Map<Integer, Request> mRequests = new ConcurrentHashMap<Integer, Request>();
+	private final Map<Operation, OperationStats> mStats = new EnumMap<Operation, OperationStats>( Operation.class );
+	private final Map<String, AtomicLong> mErrorMessages = new TreeMap<String, AtomicLong>();
+	private final AtomicLong mNumCompleted = new AtomicLong();
+
+	/* Correctness violations */
+	final AtomicLong unknownEvents = new AtomicLong();
+	final AtomicLong duplicateEvents = new AtomicLong();
+	final AtomicLong mismatchedEvents = new AtomicLong();
+	final AtomicLong invalidPayloads = new AtomicLong();
+	final AtomicLong undecodableEvents = new AtomicLong();
+	final AtomicLong invalidReturnValues = new AtomicLong();
+	final AtomicLong callExceptions = new AtomicLong();
+
+	/* Version of the last preferences delivered with delta loads enabled, sent back as base of the next load */
+	final AtomicInteger preferencesVersion = new AtomicInteger( -1 );
+
+	RequestLedger() {
+		for( Operation operation : Operation.values() ) {
+			mStats.put( operation, new OperationStats() );
+		}
+	}
+
+	int nextCallbackId() {
+		return mNextCallbackId.getAndIncrement();
+	}
+
+	/**
+	 * Registers the request before its function is called.
+	 */
+	Request submit( int callbackId, Operation operation, String[] keys, String[] values, Runnable onComplete ) {
+		Request request = new Request( callbackId, operation, keys, values, onComplete );
+		request.submitNanos = System.nanoTime();
+		mRequests.put( callbackId, request );
+		mStats.get( operation ).calls.incrementAndGet();
+		return request;
+	}
+
+	/**
+	 * Records a synchronous call.
+	 */
+	void onCall( Operation operation, long submitNanos, boolean isValid ) {
+		OperationStats stats = mStats.get( operation );
+		stats.calls.incrementAndGet();
+		stats.latency.record( System.nanoTime() - submitNanos );
+		if( isValid ) {
+			stats.succeeded.incrementAndGet();
+		} else {
+			stats.failed.incrementAndGet();
+			invalidReturnValues.incrementAndGet();
+		}
+		mNumCompleted.incrementAndGet();
+	}
+
+	void onResult( Result result ) {
+		if( result.preferencesVersion >= 0 ) {
+			preferencesVersion.set( result.preferencesVersion );
+		}
+		Request request = mRequests.get( result.callbackId );
+		if( request == null ) {
+			unknownEvents.incrementAndGet();
+			return;
+		}
+		if( !request.operation.isResultEvent( result.eventName ) ) {
+			mismatchedEvents.incrementAndGet();
+			return;
+		}
+		if( request.isComplete ) {
+			duplicateEvents.incrementAndGet();
+			return;
+		}
+
+		OperationStats stats = mStats.get( request.operation );
+		if( result.isStale ) {
+			stats.stale.incrementAndGet();
+			if( !isValidPayload( request, result ) ) {
+				invalidPayloads.incrementAndGet();
+			}
+			return;
+		}
+
+		request.isComplete = true;
+		stats.latency.record( System.nanoTime() - request.submitNanos );
+		if( result.errorMessage == null ) {
+			stats.succeeded.incrementAndGet();
+			if( !isValidPayload( request, result ) ) {
+				invalidPayloads.incrementAndGet();
+			}
+		} else if( TIMEOUT_MESSAGE.equals( result.errorMessage ) ) {
+			stats.timedOut.incrementAndGet();
+		} else if( CANCEL_MESSAGE.equals( result.errorMessage ) ) {
+			stats.cancelled.incrementAndGet();
+		} else if( result.errorMessage.startsWith( "Value for key" ) ) {
+			stats.notFound.incrementAndGet();
+		} else {
+			stats.failed.incrementAndGet();
+			countErrorMessage( request.operation.functionName + ": " + result.errorMessage );
+		}
+		mNumCompleted.incrementAndGet();
+		if( request.onComplete != null ) {
+			request.onComplete.run();
+		}
+	}
+
+	/**
+	 * Login cancelled by the user, the event only carries the callback id.
+	 */
+	void onLoginCancel( int callbackId ) {
+		Request request = mRequests.get( callbackId );
+		if( request == null ) {
+			unknownEvents.incrementAndGet();
+			return;
+		}
+		if( request.operation != Operation.LOGIN ) {
+			mismatchedEvents.incrementAndGet();
+			return;
+		}
+		if( request.isComplete ) {
+			duplicateEvents.incrementAndGet();
+			return;
+		}
+		request.isComplete = true;
+		OperationStats stats = mStats.get( Operation.LOGIN );
+		stats.latency.record( System.nanoTime() - request.submitNanos );
+		stats.cancelled.incrementAndGet();
+		mNumCompleted.incrementAndGet();
+		if( request.onComplete != null ) {
+			request.onComplete.run();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the request is waiting for its result.
+	 */
+	boolean isPending( int callbackId ) {
+		Request request = mRequests.get( callbackId );
+		return request != null && !request.isComplete;
+	}
+
+	long getNumCompleted() {
+		return mNumCompleted.get();
+	}
+
+	int getNumMissing() {
+		int missing = 0;
+		for( Request request : mRequests.values() ) {
+			if( !request.isComplete ) missing++;
+		}
+		return missing;
+	}
+
+	long getNumViolations() {
+		return unknownEvents.get() + duplicateEvents.get() + mismatchedEvents.get() + invalidPayloads.get()
+				+ undecodableEvents.get() + invalidReturnValues.get() + callExceptions.get() + getNumMissing();
+	}
+
+	OperationStats getStats( Operation operation ) {
+		return mStats.get( operation );
+	}
+
+	synchronized Map<String, Long> getErrorMessages() {
+		Map<String, Long> messages = new TreeMap<String, Long>();
+		for( Map.Entry<String, AtomicLong> entry : mErrorMessages.entrySet() ) {
+			messages.put( entry.getKey(), entry.getValue().get() );
+		}
+		return messages;
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private synchronized void countErrorMessage( String message ) {
+		AtomicLong count = mErrorMessages.get( message );
+		if( count == null ) {
+			count = new AtomicLong();
+			mErrorMessages.put( message, count );
+		}
+		count.incrementAndGet();
+	}
+
+	/**
+	 * Checks the payload of a successful (or stale) result against the request.
+	 * Values written by the harness start with their key, so a value delivered for a wrong key is detected.
+	 */
+	private boolean isValidPayload( Request request, Result result ) {
+		switch( request.operation ) {
+			case LOGIN:
+				return result.hasAccessToken;
+			case GET_CURRENT_ACCOUNT:
+				return result.keys != null && SimulatedAccountKit.ACCOUNT_ID.equals( result.keys[0] );
+			case SET_PREFERENCE:
+				return isSingle( result ) && request.keys[0].equals( result.keys[0] ) && request.values[0].equals( result.values[0] );
+			case LOAD_PREFERENCE:
+				return isSingle( result ) && request.keys[0].equals( result.keys[0] ) && isValueOf( result.keys[0], result.values[0] );
+			case DELETE_PREFERENCE:
+				return isSingle( result ) && request.keys[0].equals( result.keys[0] );
+			case LOAD_PREFERENCES:
+				if( result.keys == null ) return false;
+				for( int i = 0; i < result.keys.length; i++ ) {
+					if( !isValueOf( result.keys[i], result.values[i] ) ) return false;
+				}
+				return true;
+			case SET_PREFERENCES:
+			case DELETE_PREFERENCES:
+				if( result.keys == null || !Arrays.equals( request.keys, result.keys ) ) return false;
+				if( request.operation == Operation.DELETE_PREFERENCES ) return true;
+				for( int i = 0; i < result.keys.length; i++ ) {
+					if( result.errors[i] == null && !request.values[i].equals( result.values[i] ) ) return false;
+				}
+				return true;
+			default:
+				return true;
+		}
+	}
+
+	private static boolean isSingle( Result result ) {
+		return result.keys != null && result.keys.length == 1;
+	}
+
+	static String createValue( String key, int callbackId ) {
+		return key + "#" + callbackId;
+	}
+
+	private static boolean isValueOf( String key, String value ) {
+		return key != null && value != null && value.startsWith( key + "#" );
+	}
+
+}
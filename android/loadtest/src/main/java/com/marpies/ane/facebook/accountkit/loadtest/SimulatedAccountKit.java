@@ -0,0 +1,358 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.loadtest;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import com.adobe.air.AndroidActivityWrapper;
+import com.facebook.accountkit.AccessToken;
+import com.facebook.accountkit.AccessTokenTracker;
+import com.facebook.accountkit.Account;
+import com.facebook.accountkit.AccountKit;
+import com.facebook.accountkit.AccountKitCallback;
+import com.facebook.accountkit.AccountKitError;
+import com.facebook.accountkit.AccountKitLoginResult;
+import com.facebook.accountkit.AccountPreferences;
+import com.facebook.accountkit.PhoneNumber;
+import com.facebook.accountkit.ui.AccountKitActivity;
+import com.facebook.accountkit.ui.AccountKitConfiguration;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulated AccountKit SDK. Every request is answered on the main looper after the configured latency
+ * and jitter. Once faults are enabled, responses may fail with a network or server error, never arrive,
+ * or arrive twice. Preferences are kept in memory.
+ */
+class SimulatedAccountKit implements AccountKit.Backend, AccountPreferences {
+
+	static final String ACCOUNT_ID = "1000000000";
+	static final String APPLICATION_ID = "2000000000";
+
+	private static final AccountKitError.Type[] ERROR_TYPES = new AccountKitError.Type[]{
+			AccountKitError.Type.NETWORK_CONNECTION_ERROR, AccountKitError.Type.SERVER_ERROR
+	};
+
+	private final LoadTestOptions mOptions;
+	private final Random mRandom;
+	private final Handler mHandler = new Handler( Looper.getMainLooper() );
+	private final Map<String, String> mPreferences = new ConcurrentHashMap<String, String>();
+	private final Account mAccount = new Account( ACCOUNT_ID, new PhoneNumber( "1", "5550100" ), null );
+
+	private volatile boolean mIsInitialized;
+	private volatile boolean mFaultsEnabled;
+	private AccessToken mAccessToken;
+	private int mNumTokens;
+
+	private final AtomicLong mNumRequests = new AtomicLong();
+	private final AtomicLong mNumFailed = new AtomicLong();
+	private final AtomicLong mNumDropped = new AtomicLong();
+	private final AtomicLong mNumDuplicated = new AtomicLong();
+	private final AtomicLong mNumLogins = new AtomicLong();
+
+	SimulatedAccountKit( LoadTestOptions options ) {
+		mOptions = options;
+		mRandom = new Random( options.seed );
+	}
+
+	/**
+	 * Faults are disabled while the harness sets up the extension.
+	 */
+	void setFaultsEnabled( boolean enabled ) {
+		mFaultsEnabled = enabled;
+	}
+
+	/**
+	 *
+	 *
+	 * AccountKit
+	 *
+	 *
+	 */
+
+	@Override
+	public void initialize( Context context, final AccountKit.InitializeCallback callback ) {
+		mHandler.postDelayed( new Runnable() {
+			@Override
+			public void run() {
+				mIsInitialized = true;
+				callback.onInitialized();
+			}
+		}, getDelay() );
+	}
+
+	@Override
+	public boolean isInitialized() {
+		return mIsInitialized;
+	}
+
+	@Override
+	public void logOut() {
+		setAccessToken( null );
+		mPreferences.clear();
+	}
+
+	@Override
+	public synchronized AccessToken getCurrentAccessToken() {
+		return mAccessToken;
+	}
+
+	@Override
+	public AccountPreferences getAccountPreferences() {
+		return this;
+	}
+
+	@Override
+	public void getCurrentAccount( final AccountKitCallback<Account> callback ) {
+		respond( new Response() {
+			@Override
+			void succeed() {
+				callback.onSuccess( mAccount );
+			}
+
+			@Override
+			void fail( AccountKitError error ) {
+				callback.onError( error );
+			}
+		} );
+	}
+
+	/**
+	 *
+	 *
+	 * AccountPreferences
+	 *
+	 *
+	 */
+
+	@Override
+	public void setPreference( final String key, final String value, final OnSetPreferenceListener listener ) {
+		respond( new Response() {
+			@Override
+			void succeed() {
+				mPreferences.put( key, value );
+				listener.onSetPreference( key, value, null );
+			}
+
+			@Override
+			void fail( AccountKitError error ) {
+				listener.onSetPreference( key, null, error );
+			}
+		} );
+	}
+
+	@Override
+	public void loadPreference( final String key, final OnLoadPreferenceListener listener ) {
+		respond( new Response() {
+			@Override
+			void succeed() {
+				listener.onLoadPreference( key, mPreferences.get( key ), null );
+			}
+
+			@Override
+			void fail( AccountKitError error ) {
+				listener.onLoadPreference( key, null, error );
+			}
+		} );
+	}
+
+	@Override
+	public void deletePreference( final String key, final OnDeletePreferenceListener listener ) {
+		respond( new Response() {
+			@Override
+			void succeed() {
+				mPreferences.remove( key );
+				listener.onDeletePreference( key, null );
+			}
+
+			@Override
+			void fail( AccountKitError error ) {
+				listener.onDeletePreference( key, error );
+			}
+		} );
+	}
+
+	@Override
+	public void loadPreferences( final OnLoadPreferencesListener listener ) {
+		respond( new Response() {
+			@Override
+			void succeed() {
+				listener.onLoadPreferences( new HashMap<String, String>( mPreferences ), null );
+			}
+
+			@Override
+			void fail( AccountKitError error ) {
+				listener.onLoadPreferences( null, error );
+			}
+		} );
+	}
+
+	/**
+	 *
+	 *
+	 * Login UI
+	 *
+	 *
+	 */
+
+	/**
+	 * Simulates the AccountKit login activity, the result is delivered to the AIR activity wrapper.
+	 */
+	void login( Intent intent, final int requestCode ) {
+		final AccountKitConfiguration configuration = intent.getParcelableExtra( AccountKitActivity.ACCOUNT_KIT_ACTIVITY_CONFIGURATION );
+		mNumLogins.incrementAndGet();
+		mHandler.postDelayed( new Runnable() {
+			@Override
+			public void run() {
+				AccountKitLoginResult result;
+				int resultCode = Activity.RESULT_OK;
+				if( mFaultsEnabled && chance( mOptions.loginCancelRate ) ) {
+					result = SimulatedLoginResult.cancelled();
+					resultCode = Activity.RESULT_CANCELED;
+				} else if( mFaultsEnabled && chance( mOptions.errorRate ) ) {
+					result = SimulatedLoginResult.error( new AccountKitError( AccountKitError.Type.LOGIN_INVALIDATED ) );
+				} else if( configuration.getResponseType() == AccountKitActivity.ResponseType.TOKEN ) {
+					AccessToken token = createAccessToken();
+					setAccessToken( token );
+					result = SimulatedLoginResult.token( token, configuration.getInitialAuthState() );
+				} else {
+					result = SimulatedLoginResult.code( "code-" + requestCode, configuration.getInitialAuthState() );
+				}
+				Intent data = new Intent();
+				data.putExtra( AccountKitLoginResult.RESULT_KEY, result );
+				AndroidActivityWrapper.GetAndroidActivityWrapper().onActivityResult( requestCode, resultCode, data );
+			}
+		}, getDelay() );
+	}
+
+	/**
+	 *
+	 *
+	 * Stats
+	 *
+	 *
+	 */
+
+	long getNumRequests() {
+		return mNumRequests.get();
+	}
+
+	long getNumFailed() {
+		return mNumFailed.get();
+	}
+
+	long getNumDropped() {
+		return mNumDropped.get();
+	}
+
+	long getNumDuplicated() {
+		return mNumDuplicated.get();
+	}
+
+	long getNumLogins() {
+		return mNumLogins.get();
+	}
+
+	int getNumPreferences() {
+		return mPreferences.size();
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private void respond( final Response response ) {
+		mNumRequests.incrementAndGet();
+		if( mFaultsEnabled && chance( mOptions.dropRate ) ) {
+			mNumDropped.incrementAndGet();
+			return;
+		}
+
+		final AccountKitError error;
+		if( mFaultsEnabled && chance( mOptions.errorRate ) ) {
+			mNumFailed.incrementAndGet();
+			error = new AccountKitError( ERROR_TYPES[mRandom.nextInt( ERROR_TYPES.length )] );
+		} else {
+			error = null;
+		}
+		Runnable callback = new Runnable() {
+			@Override
+			public void run() {
+				if( error != null ) {
+					response.fail( error );
+				} else {
+					response.succeed();
+				}
+			}
+		};
+		long delay = getDelay();
+		mHandler.postDelayed( callback, delay );
+		if( mFaultsEnabled && chance( mOptions.duplicateRate ) ) {
+			mNumDuplicated.incrementAndGet();
+			mHandler.postDelayed( callback, delay + getDelay() );
+		}
+	}
+
+	private void setAccessToken( AccessToken token ) {
+		final AccessToken oldToken;
+		synchronized( this ) {
+			oldToken = mAccessToken;
+			mAccessToken = token;
+		}
+		if( oldToken == token ) return;
+
+		final AccessToken newToken = token;
+		mHandler.post( new Runnable() {
+			@Override
+			public void run() {
+				AccessTokenTracker.notifyCurrentAccessTokenChanged( oldToken, newToken );
+			}
+		} );
+	}
+
+	private synchronized AccessToken createAccessToken() {
+		return new AccessToken( "token-" + (++mNumTokens), ACCOUNT_ID, APPLICATION_ID, 3600, new Date() );
+	}
+
+	private long getDelay() {
+		int jitter = (mOptions.jitterMillis > 0) ? (mRandom.nextInt( 2 * mOptions.jitterMillis + 1 ) - mOptions.jitterMillis) : 0;
+		return Math.max( 0, mOptions.latencyMillis + jitter );
+	}
+
+	private boolean chance( double rate ) {
+		return (rate > 0) && (mRandom.nextDouble() < rate);
+	}
+
+	private static abstract class Response {
+		abstract void succeed();
+
+		abstract void fail( AccountKitError error );
+	}
+
+}
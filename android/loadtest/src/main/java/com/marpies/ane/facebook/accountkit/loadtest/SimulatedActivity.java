@@ -0,0 +1,38 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.loadtest;
+
+import android.app.Activity;
+import android.content.Intent;
+
+/**
+ * AIR activity stand-in, activities started for result are answered by the simulated AccountKit login UI.
+ */
+class SimulatedActivity extends Activity {
+
+	private final SimulatedAccountKit mAccountKit;
+
+	SimulatedActivity( SimulatedAccountKit accountKit ) {
+		mAccountKit = accountKit;
+	}
+
+	@Override
+	public void startActivityForResult( Intent intent, int requestCode ) {
+		mAccountKit.login( intent, requestCode );
+	}
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.loadtest;
+
+import com.facebook.accountkit.AccessToken;
+import com.facebook.accountkit.AccountKitError;
+import com.facebook.accountkit.AccountKitLoginResult;
+
+/**
+ * Login result returned by the simulated login activity.
+ */
+class SimulatedLoginResult implements AccountKitLoginResult {
+
+	private final AccessToken mAccessToken;
+	private final String mAuthorizationCode;
+	private final AccountKitError mError;
+	private final String mFinalAuthorizationState;
+	private final boolean mWasCancelled;
+
+	private SimulatedLoginResult( AccessToken accessToken, String authorizationCode, AccountKitError error, String finalAuthorizationState, boolean wasCancelled ) {
+		mAccessToken = accessToken;
+		mAuthorizationCode = authorizationCode;
+		mError = error;
+		mFinalAuthorizationState = finalAuthorizationState;
+		mWasCancelled = wasCancelled;
+	}
+
+	static SimulatedLoginResult token( AccessToken accessToken, String authorizationState ) {
+		return new SimulatedLoginResult( accessToken, null, null, authorizationState, false );
+	}
+
+	static SimulatedLoginResult code( String authorizationCode, String authorizationState ) {
+		return new SimulatedLoginResult( null, authorizationCode, null, authorizationState, false );
+	}
+
+	static SimulatedLoginResult error( AccountKitError error ) {
+		return new SimulatedLoginResult( null, null, error, null, false );
+	}
+
+	static SimulatedLoginResult cancelled() {
+		return new SimulatedLoginResult( null, null, null, null, true );
+	}
+
+	@Override
+	public AccessToken getAccessToken() {
+		return mAccessToken;
+	}
+
+	@Override
+	public String getAuthorizationCode() {
+		return mAuthorizationCode;
+	}
+
+	@Override
+	public AccountKitError getError() {
+		return mError;
+	}
+
+	@Override
+	public String getFinalAuthorizationState() {
+		return mFinalAuthorizationState;
+	}
+
+	@Override
+	public long getTokenRefreshIntervalInSeconds() {
+		return (mAccessToken != null) ? mAccessToken.getTokenRefreshIntervalSeconds() : 0;
+	}
+
+	@Override
+	public boolean wasCancelled() {
+		return mWasCancelled;
+	}
+
+}
@@ -18,7 +18,8 @@ package com.marpies.ane.facebook.accountkit;
 
 import com.adobe.fre.FREContext;
 import com.adobe.fre.FREExtension;
-import com.marpies.ane.facebook.accountkit.utils.AIR;
+import com.marpies.ane.facebook.accountkit.utils.AccountKitHelper;
+import com.marpies.ane.facebook.accountkit.utils.DetachedEventBuffer;
 
 public class AccountKitExtension implements FREExtension {
 
@@ -27,13 +28,15 @@ public class AccountKitExtension implements FREExtension {
 
 	@Override
 	public FREContext createContext( String s ) {
-		AIR.setContext( new AccountKitExtensionContext() );
-		return AIR.getContext();
+		AccountKitExtensionContext context = new AccountKitExtensionContext();
+		context.getActivityResultRouter().attach();
+		AccountKitHelper.getInstance().onContextCreated();
+		/* Events that arrived while there was no context */
+		DetachedEventBuffer.getInstance().attach( context );
+		return context;
 	}
 
 	@Override
-	public void dispose() {
-		AIR.setContext( null );
-	}
+	public void dispose() { }
 
 }
@@ -16,22 +16,62 @@
 
 package com.marpies.ane.facebook.accountkit;
 
+import android.os.SystemClock;
 import com.adobe.fre.FREContext;
 import com.adobe.fre.FREFunction;
+import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
 import com.marpies.ane.facebook.accountkit.functions.*;
-import com.marpies.ane.facebook.accountkit.utils.AIR;
+import com.marpies.ane.facebook.accountkit.utils.AccessTokenSnapshot;
+import com.marpies.ane.facebook.accountkit.utils.AccountCache;
+import com.marpies.ane.facebook.accountkit.utils.AccountKitHelper;
+import com.marpies.ane.facebook.accountkit.utils.ActivityResultRouter;
+import com.marpies.ane.facebook.accountkit.utils.DetachedEventBuffer;
+import com.marpies.ane.facebook.accountkit.utils.EventOutbox;
+import com.marpies.ane.facebook.accountkit.utils.LoginCoordinator;
+import com.marpies.ane.facebook.accountkit.utils.Logger;
+import com.marpies.ane.facebook.accountkit.utils.PayloadStore;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceDeltaTracker;
+import com.marpies.ane.facebook.accountkit.utils.RequestRegistry;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Holds the state of a single extension context - event dispatching, pending requests and logins,
+ * event payloads and account caches. SDK callbacks keep a reference to the context that started
+ * the request. Results that arrive after the context is disposed are held in the detached event buffer
+ * and replayed to the next context. State that mirrors the process-wide SDK (initialization,
+ * access token, persisted preferences) is kept in singletons.
+ */
 public class AccountKitExtensionContext extends FREContext {
 
+	/* Longest time dispose waits for dispatches in progress */
+	private static final long DISPOSE_WAIT_MILLIS = 50;
+	private static final long DISPOSE_PARK_NANOS = 100 * 1000;
+
+	private final ActivityResultRouter mActivityResultRouter = new ActivityResultRouter();
+	private final EventOutbox mEventOutbox = new EventOutbox( this );
+	private final PayloadStore mPayloadStore = new PayloadStore();
+	private final RequestRegistry mRequestRegistry = new RequestRegistry( this );
+	private final LoginCoordinator mLoginCoordinator = new LoginCoordinator( this );
+	private final AccountCache mAccountCache = new AccountCache();
+	private final PreferenceDeltaTracker mPreferenceDeltaTracker = new PreferenceDeltaTracker();
+
+	/* Dispatches in progress, dispose waits for them so that every event is either dispatched or held for the next context */
+	private final AtomicInteger mNumDispatching = new AtomicInteger();
+
+	private volatile boolean mBinaryEventsEnabled;
+	private volatile boolean mIsDisposed;
+
 	@Override
 	public Map<String, FREFunction> getFunctions() {
 		Map<String, FREFunction> functions = new HashMap<String, FREFunction>();
 
 		functions.put( "init", new InitFunction() );
 		functions.put( "login", new LoginFunction() );
+		functions.put( "setLoginPolicy", new SetLoginPolicyFunction() );
 		functions.put( "getAccessToken", new GetAccessTokenFunction() );
 		functions.put( "getSdkVersion", new GetSdkVersionFunction() );
 		functions.put( "logout", new LogoutFunction() );
@@ -41,12 +81,237 @@ public class AccountKitExtensionContext extends FREContext {
 		functions.put( "loadPreference", new LoadPreferenceFunction() );
 		functions.put( "deletePreference", new DeletePreferenceFunction() );
 		functions.put( "loadPreferences", new LoadPreferencesFunction() );
+		functions.put( "setPreferences", new SetPreferencesFunction() );
+		functions.put( "deletePreferences", new DeletePreferencesFunction() );
+		functions.put( "setPreferenceCacheOptions", new SetPreferenceCacheOptionsFunction() );
+		functions.put( "setPreferenceSnapshot", new SetPreferenceSnapshotFunction() );
+		functions.put( "setOfflineWrites", new SetOfflineWritesFunction() );
+		functions.put( "setPreferenceDeltas", new SetPreferenceDeltasFunction() );
+		functions.put( "setAccountCacheMaxAge", new SetAccountCacheMaxAgeFunction() );
+		functions.put( "setRequestTimeout", new SetRequestTimeoutFunction() );
+		functions.put( "cancel", new CancelRequestFunction() );
+		functions.put( "setBinaryEvents", new SetBinaryEventsFunction() );
+		functions.put( "getEventPayload", new GetEventPayloadFunction() );
+		functions.put( "readEventPayload", new ReadEventPayloadFunction() );
+		functions.put( "setPayloadOptions", new SetPayloadOptionsFunction() );
+		functions.put( "setEventBatching", new SetEventBatchingFunction() );
+		functions.put( "getNativeStats", new GetNativeStatsFunction() );
+		functions.put( "setLogOptions", new SetLogOptionsFunction() );
+		functions.put( "dumpLogs", new DumpLogsFunction() );
+		functions.put( "setTracing", new SetTracingFunction() );
+		functions.put( "exportTrace", new ExportTraceFunction() );
 
 		return functions;
 	}
 
 	@Override
 	public void dispose() {
-		AIR.setContext( null );
+		/* Dispatches that start after this see the flag and go to the detached event buffer */
+		mIsDisposed = true;
+		DetachedEventBuffer.getInstance().detach( this );
+		long deadline = SystemClock.uptimeMillis() + DISPOSE_WAIT_MILLIS;
+		while( mNumDispatching.get() > 0 && SystemClock.uptimeMillis() < deadline ) {
+			LockSupport.parkNanos( DISPOSE_PARK_NANOS );
+		}
+		if( mNumDispatching.get() > 0 ) {
+			/* The last dispatch to finish holds the events it queued */
+			Logger.w( "AccountKitExtensionContext | disposing with dispatches in progress" );
+		}
+		holdQueuedEvents();
+		AccessTokenSnapshot.getInstance().stopTracking( this );
+		AccountKitHelper.getInstance().onContextDisposed( this );
+		/* Pending requests and the running login are kept, their results are held until the next context is created */
+		mLoginCoordinator.onContextDisposed();
+		/* Payloads of events dispatched before dispose expire with the store timeout */
+		mActivityResultRouter.detachWhenIdle();
+	}
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	public void dispatchEvent( String eventName ) {
+		dispatchEvent( eventName, "" );
+	}
+
+	/**
+	 * Dispatches event to the AS side of this context, events dispatched after the context is disposed
+	 * are held until the next context is created. Can be called from any thread, never waits for dispose.
+	 */
+	public void dispatchEvent( String eventName, String message ) {
+		dispatchEvent( eventName, message, false );
+	}
+
+	/**
+	 * Dispatches the event right away, together with all events waiting in the outbox.
+	 */
+	public void dispatchEventImmediately( String eventName, String message ) {
+		mNumDispatching.incrementAndGet();
+		try {
+			if( mustHold( false ) ) {
+				DetachedEventBuffer.getInstance().offer( eventName, message, null );
+				return;
+			}
+			mEventOutbox.dispatchImmediately( eventName, message );
+		} finally {
+			onDispatchFinished();
+		}
+	}
+
+	/**
+	 * Stores the payload and dispatches binary event with its handle.
+	 */
+	public void dispatchBinaryEvent( byte[] payload ) {
+		dispatchBinaryEvent( payload, false );
+	}
+
+	/**
+	 * Dispatches event held in the detached event buffer, called by the buffer when it replays the events.
+	 */
+	public void dispatchReplayedEvent( String eventName, String message ) {
+		dispatchEvent( eventName, message, true );
+	}
+
+	/**
+	 * Dispatches binary event held in the detached event buffer, called by the buffer when it replays the events.
+	 */
+	public void dispatchReplayedBinaryEvent( byte[] payload ) {
+		dispatchBinaryEvent( payload, true );
+	}
+
+	public boolean isDisposed() {
+		return mIsDisposed;
+	}
+
+	public boolean isBinaryEventsEnabled() {
+		return mBinaryEventsEnabled;
+	}
+
+	public void setBinaryEventsEnabled( boolean enabled ) {
+		mBinaryEventsEnabled = enabled;
+	}
+
+	public ActivityResultRouter getActivityResultRouter() {
+		return mActivityResultRouter;
+	}
+
+	public EventOutbox getEventOutbox() {
+		return mEventOutbox;
+	}
+
+	public PayloadStore getPayloadStore() {
+		return mPayloadStore;
+	}
+
+	public RequestRegistry getRequestRegistry() {
+		return mRequestRegistry;
+	}
+
+	public LoginCoordinator getLoginCoordinator() {
+		return mLoginCoordinator;
+	}
+
+	public AccountCache getAccountCache() {
+		return mAccountCache;
+	}
+
+	public PreferenceDeltaTracker getPreferenceDeltaTracker() {
+		return mPreferenceDeltaTracker;
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private void dispatchEvent( String eventName, String message, boolean isReplayed ) {
+		mNumDispatching.incrementAndGet();
+		try {
+			if( mustHold( isReplayed ) ) {
+				DetachedEventBuffer.getInstance().offer( eventName, message, null );
+				return;
+			}
+			/* Large message is pulled by the AS side using the handle */
+			String payloadMessage = mPayloadStore.putEvent( eventName, message );
+			if( payloadMessage != null ) {
+				eventName = AccountKitEvent.PAYLOAD_EVENT;
+				message = payloadMessage;
+			}
+			dispatchOrQueue( eventName, message );
+		} finally {
+			onDispatchFinished();
+		}
 	}
+
+	private void dispatchBinaryEvent( byte[] payload, boolean isReplayed ) {
+		mNumDispatching.incrementAndGet();
+		try {
+			if( mustHold( isReplayed ) ) {
+				DetachedEventBuffer.getInstance().offer( AccountKitEvent.BINARY_EVENT, null, payload );
+				return;
+			}
+			int handle = mPayloadStore.put( payload );
+			dispatchOrQueue( AccountKitEvent.BINARY_EVENT, String.valueOf( handle ) );
+		} finally {
+			onDispatchFinished();
+		}
+	}
+
+	/**
+	 * Events are held after the context is disposed, and while the buffer has events waiting to be replayed
+	 * to this context, so that the held events are not overtaken.
+	 */
+	private boolean mustHold( boolean isReplayed ) {
+		return mIsDisposed || (!isReplayed && DetachedEventBuffer.getInstance().isReplayPending());
+	}
+
+	private void onDispatchFinished() {
+		/* Dispatch that outlived the dispose wait may have queued events after the outbox was drained */
+		if( mNumDispatching.decrementAndGet() == 0 && mIsDisposed && mEventOutbox.getQueueSize() > 0 ) {
+			holdQueuedEvents();
+		}
+	}
+
+	/**
+	 * Moves events waiting for the next batch to the detached event buffer.
+	 */
+	private void holdQueuedEvents() {
+		for( String[] event : mEventOutbox.drain() ) {
+			hold( event[0], event[1] );
+		}
+	}
+
+	private void dispatchOrQueue( String eventName, String message ) {
+		if( mEventOutbox.offer( eventName, message ) ) return;
+
+		dispatchStatusEventAsync( eventName, message );
+	}
+
+	/**
+	 * Moves event queued by this context to the detached event buffer, together with its payload.
+	 */
+	private void hold( String eventName, String message ) {
+		DetachedEventBuffer buffer = DetachedEventBuffer.getInstance();
+		if( AccountKitEvent.BINARY_EVENT.equals( eventName ) ) {
+			byte[] payload = mPayloadStore.take( Integer.parseInt( message ) );
+			if( payload != null ) {
+				buffer.offer( eventName, null, payload );
+			}
+		} else if( AccountKitEvent.PAYLOAD_EVENT.equals( eventName ) ) {
+			String[] event = mPayloadStore.takeEvent( message );
+			if( event != null ) {
+				buffer.offer( event[0], event[1], null );
+			}
+		} else {
+			buffer.offer( eventName, message, null );
+		}
+	}
+
 }
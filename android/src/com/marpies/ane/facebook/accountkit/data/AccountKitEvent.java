@@ -22,10 +22,18 @@ public class AccountKitEvent {
 	public static final String LOGIN_SUCCESS = "loginSuccess";
 	public static final String LOGIN_CANCEL = "loginCancel";
 	public static final String LOGIN_ERROR = "loginError";
+	public static final String TOKEN_CHANGED = "tokenChanged";
 	public static final String ACCOUNT_REQUEST = "accountRequest";
+	public static final String ACCOUNT_UPDATE = "accountUpdate";
 	public static final String SET_PREFERENCE = "setPreference";
 	public static final String LOAD_PREFERENCE = "loadPreference";
 	public static final String DELETE_PREFERENCE = "deletePreference";
 	public static final String LOAD_PREFERENCES = "loadPreferences";
+	public static final String SET_PREFERENCES = "setPreferences";
+	public static final String DELETE_PREFERENCES = "deletePreferences";
+	public static final String PREFERENCE_WRITE_FAILED = "preferenceWriteFailed";
+	public static final String BINARY_EVENT = "binaryEvent";
+	public static final String PAYLOAD_EVENT = "payloadEvent";
+	public static final String BATCH = "batch";
 
 }
@@ -19,14 +19,11 @@ package com.marpies.ane.facebook.accountkit.functions;
 import com.adobe.fre.FREContext;
 import com.adobe.fre.FREFunction;
 import com.adobe.fre.FREObject;
-import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
-import com.marpies.ane.facebook.accountkit.utils.AIR;
 
 public class BaseFunction implements FREFunction {
 
 	@Override
 	public FREObject call( FREContext context, FREObject[] args ) {
-		AIR.setContext( (AccountKitExtensionContext) context );
 		return null;
 	}
 
@@ -22,12 +22,18 @@ import com.adobe.fre.FREObject;
 import com.facebook.accountkit.AccountKit;
 import com.facebook.accountkit.AccountKitError;
 import com.facebook.accountkit.AccountPreferences;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
 import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
-import com.marpies.ane.facebook.accountkit.utils.AIR;
+import com.marpies.ane.facebook.accountkit.utils.BinaryEvents;
 import com.marpies.ane.facebook.accountkit.utils.FREObjectUtils;
-import com.marpies.ane.facebook.accountkit.utils.JSONUtils;
+import com.marpies.ane.facebook.accountkit.utils.JSONWriter;
+import com.marpies.ane.facebook.accountkit.utils.Logger;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceCache;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceSnapshot;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceWriteQueue;
+import com.marpies.ane.facebook.accountkit.utils.SerializationQueue;
 import com.marpies.ane.facebook.accountkit.utils.StringUtils;
-import org.json.JSONObject;
+import com.marpies.ane.facebook.accountkit.utils.Tracer;
 
 public class DeletePreferenceFunction extends BaseFunction {
 
@@ -35,27 +41,50 @@ public class DeletePreferenceFunction extends BaseFunction {
 	public FREObject call( FREContext context, FREObject[] args ) {
 		super.call( context, args );
 
-		AIR.log( "AccountKit::deletePreference" );
+		final AccountKitExtensionContext extensionContext = (AccountKitExtensionContext) context;
+
+		Logger.d( "AccountKit::deletePreference" );
 		final int callbackId = FREObjectUtils.getInt( args[1] );
+		Tracer.getInstance().begin( AccountKitEvent.DELETE_PREFERENCE, callbackId );
 
 		/* User is not logged in, cannot delete preference */
 		if( AccountKit.getCurrentAccessToken() == null ) {
-			dispatchError( callbackId, "User is not logged in, cannot delete preference." );
+			dispatchError( extensionContext, callbackId, "User is not logged in, cannot delete preference." );
 			return null;
 		}
 
 		String prefKey = FREObjectUtils.getString( args[0] );
+		Tracer.getInstance().phase( AccountKitEvent.DELETE_PREFERENCE, callbackId, Tracer.ARGS_DECODED );
+
+		/* Accept the write locally, it is sent to the server in the background */
+		if( PreferenceWriteQueue.getInstance().isEnabled() ) {
+			String error = PreferenceWriteQueue.getInstance().delete( prefKey );
+			if( error != null ) {
+				dispatchError( extensionContext, callbackId, error );
+			} else {
+				dispatchPreference( extensionContext, callbackId, prefKey );
+			}
+			return null;
+		}
+
+		final long ticket = extensionContext.getRequestRegistry().register( AccountKitEvent.DELETE_PREFERENCE, callbackId );
+		Tracer.getInstance().phase( AccountKitEvent.DELETE_PREFERENCE, callbackId, Tracer.SDK_CALLED );
 		AccountKit.getAccountPreferences().deletePreference( prefKey, new AccountPreferences.OnDeletePreferenceListener() {
 			@Override
 			public void onDeletePreference( String key, @Nullable AccountKitError accountKitError ) {
+				Tracer.getInstance().phase( AccountKitEvent.DELETE_PREFERENCE, callbackId, Tracer.SDK_CALLBACK );
+				boolean isPending = extensionContext.getRequestRegistry().complete( ticket );
 				if( accountKitError != null ) {
-					dispatchError( callbackId, accountKitError.getErrorType().getMessage() );
+					if( isPending ) {
+						dispatchError( extensionContext, callbackId, accountKitError.getErrorType().getMessage() );
+					}
 				} else {
-					AIR.log( "AccountKit | successfully deleted preference" );
-					JSONObject response = new JSONObject();
-					JSONUtils.addToJSON( response, "callbackId", callbackId );
-					JSONUtils.addToJSON( response, "key", key );
-					AIR.dispatchEvent( AccountKitEvent.DELETE_PREFERENCE, response.toString() );
+					Logger.d( "AccountKit | successfully deleted preference" );
+					PreferenceCache.getInstance().remove( key );
+					PreferenceSnapshot.getInstance().remove( key );
+					if( isPending ) {
+						dispatchPreference( extensionContext, callbackId, key );
+					}
 				}
 			}
 		} );
@@ -63,9 +92,42 @@ public class DeletePreferenceFunction extends BaseFunction {
 		return null;
 	}
 
-	private void dispatchError( int callbackId, String message ) {
-		AIR.log( "AccountKit | failed to delete preference: " + message );
-		AIR.dispatchEvent( AccountKitEvent.DELETE_PREFERENCE, StringUtils.getEventErrorJSON( callbackId, message ) );
+	private void dispatchPreference( final AccountKitExtensionContext context, final int callbackId, final String key ) {
+		SerializationQueue.getInstance().execute( callbackId, new Runnable() {
+			@Override
+			public void run() {
+				if( context.isBinaryEventsEnabled() ) {
+					BinaryEvents.dispatchPreference( context, AccountKitEvent.DELETE_PREFERENCE, callbackId, key, null );
+					Tracer.getInstance().end( AccountKitEvent.DELETE_PREFERENCE, callbackId );
+					return;
+				}
+				String response = JSONWriter.obtain()
+						.beginObject()
+						.field( "callbackId", callbackId )
+						.field( "key", key )
+						.endObject()
+						.release();
+				Tracer.getInstance().phase( AccountKitEvent.DELETE_PREFERENCE, callbackId, Tracer.SERIALIZED );
+				context.dispatchEvent( AccountKitEvent.DELETE_PREFERENCE, response );
+				Tracer.getInstance().end( AccountKitEvent.DELETE_PREFERENCE, callbackId );
+			}
+		} );
+	}
+
+	private void dispatchError( final AccountKitExtensionContext context, final int callbackId, final String message ) {
+		SerializationQueue.getInstance().execute( callbackId, new Runnable() {
+			@Override
+			public void run() {
+				Logger.w( "AccountKit | failed to delete preference: {}", message );
+				if( context.isBinaryEventsEnabled() ) {
+					BinaryEvents.dispatchError( context, AccountKitEvent.DELETE_PREFERENCE, callbackId, message );
+					Tracer.getInstance().end( AccountKitEvent.DELETE_PREFERENCE, callbackId );
+					return;
+				}
+				context.dispatchEvent( AccountKitEvent.DELETE_PREFERENCE, StringUtils.getEventErrorJSON( callbackId, message ) );
+				Tracer.getInstance().end( AccountKitEvent.DELETE_PREFERENCE, callbackId );
+			}
+		} );
 	}
 
 }
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.functions;
+
+import com.adobe.fre.FREContext;
+import com.adobe.fre.FREObject;
+import com.facebook.accountkit.AccountKit;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
+import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
+import com.marpies.ane.facebook.accountkit.utils.FREObjectUtils;
+import com.marpies.ane.facebook.accountkit.utils.Logger;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceBatch;
+import com.marpies.ane.facebook.accountkit.utils.StringUtils;
+import com.marpies.ane.facebook.accountkit.utils.Tracer;
+
+public class DeletePreferencesFunction extends BaseFunction {
+
+	@Override
+	public FREObject call( FREContext context, FREObject[] args ) {
+		super.call( context, args );
+
+		final AccountKitExtensionContext extensionContext = (AccountKitExtensionContext) context;
+
+		Logger.d( "AccountKit::deletePreferences" );
+		final int callbackId = FREObjectUtils.getInt( args[1] );
+		Tracer.getInstance().begin( AccountKitEvent.DELETE_PREFERENCES, callbackId );
+
+		/* User is not logged in, cannot delete preferences */
+		if( AccountKit.getCurrentAccessToken() == null ) {
+			dispatchError( extensionContext, callbackId, "User is not logged in, cannot delete preferences." );
+			return null;
+		}
+
+		/* Keys packed in ByteArray or as Vector */
+		String[] keys = FREObjectUtils.getArrayOfString( args[0] );
+		if( keys == null ) {
+			dispatchError( extensionContext, callbackId, "Invalid list of preference keys." );
+			return null;
+		}
+
+		Tracer.getInstance().phase( AccountKitEvent.DELETE_PREFERENCES, callbackId, Tracer.ARGS_DECODED );
+		PreferenceBatch.delete( extensionContext, keys, callbackId ).start();
+
+		return null;
+	}
+
+	private void dispatchError( AccountKitExtensionContext context, int callbackId, String message ) {
+		Logger.w( "AccountKit | failed to delete preferences: {}", message );
+		context.dispatchEvent( AccountKitEvent.DELETE_PREFERENCES, StringUtils.getEventErrorJSON( callbackId, message ) );
+		Tracer.getInstance().end( AccountKitEvent.DELETE_PREFERENCES, callbackId );
+	}
+
+}
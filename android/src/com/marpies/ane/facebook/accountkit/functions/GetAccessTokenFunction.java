@@ -19,10 +19,8 @@ package com.marpies.ane.facebook.accountkit.functions;
 import com.adobe.fre.FREContext;
 import com.adobe.fre.FREObject;
 import com.adobe.fre.FREWrongThreadException;
-import com.facebook.accountkit.AccessToken;
-import com.facebook.accountkit.AccountKit;
-import com.marpies.ane.facebook.accountkit.utils.AIR;
-import com.marpies.ane.facebook.accountkit.utils.AKAccessTokenUtils;
+import com.marpies.ane.facebook.accountkit.utils.AccessTokenSnapshot;
+import com.marpies.ane.facebook.accountkit.utils.Logger;
 
 public class GetAccessTokenFunction extends BaseFunction {
 
@@ -30,13 +28,12 @@ public class GetAccessTokenFunction extends BaseFunction {
 	public FREObject call( FREContext context, FREObject[] args ) {
 		super.call( context, args );
 
-		AIR.log( "AccountKit::getAccessToken" );
+		Logger.d( "AccountKit::getAccessToken" );
 
-		AccessToken token = AccountKit.getCurrentAccessToken();
-		if( token == null ) return null;
+		String tokenJSON = AccessTokenSnapshot.getInstance().getJSON();
+		if( tokenJSON == null ) return null;
 
 		try {
-			String tokenJSON = AKAccessTokenUtils.toJSON( AccountKit.getCurrentAccessToken() );
 			return FREObject.newObject( tokenJSON );
 		} catch( FREWrongThreadException e ) {
 			e.printStackTrace();
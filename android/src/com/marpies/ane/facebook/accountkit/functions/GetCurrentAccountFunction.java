@@ -18,16 +18,20 @@ package com.marpies.ane.facebook.accountkit.functions;
 
 import com.adobe.fre.FREContext;
 import com.adobe.fre.FREObject;
+import com.facebook.accountkit.AccessToken;
 import com.facebook.accountkit.Account;
 import com.facebook.accountkit.AccountKit;
 import com.facebook.accountkit.AccountKitCallback;
 import com.facebook.accountkit.AccountKitError;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
 import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
-import com.marpies.ane.facebook.accountkit.utils.AIR;
+import com.marpies.ane.facebook.accountkit.utils.AccountCache;
 import com.marpies.ane.facebook.accountkit.utils.FREObjectUtils;
+import com.marpies.ane.facebook.accountkit.utils.JSONWriter;
+import com.marpies.ane.facebook.accountkit.utils.Logger;
+import com.marpies.ane.facebook.accountkit.utils.SerializationQueue;
 import com.marpies.ane.facebook.accountkit.utils.StringUtils;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.marpies.ane.facebook.accountkit.utils.Tracer;
 
 public class GetCurrentAccountFunction extends BaseFunction {
 
@@ -35,43 +39,106 @@ public class GetCurrentAccountFunction extends BaseFunction {
 	public FREObject call( FREContext context, FREObject[] args ) {
 		super.call( context, args );
 
-		AIR.log( "AccountKit::getCurrentAccount" );
+		final AccountKitExtensionContext extensionContext = (AccountKitExtensionContext) context;
+
+		Logger.d( "AccountKit::getCurrentAccount" );
 		final int callbackId = FREObjectUtils.getInt( args[0] );
+		Tracer.getInstance().begin( AccountKitEvent.ACCOUNT_REQUEST, callbackId );
+		Tracer.getInstance().phase( AccountKitEvent.ACCOUNT_REQUEST, callbackId, Tracer.ARGS_DECODED );
+
+		/* Answer from cache immediately, revalidate in the background if the entry is stale */
+		final AccessToken token = AccountKit.getCurrentAccessToken();
+		final Account cachedAccount = extensionContext.getAccountCache().get( token );
+		if( cachedAccount != null ) {
+			Logger.d( "AccountKit | retrieved account information from cache" );
+			dispatchAccount( extensionContext, callbackId, cachedAccount );
+			if( extensionContext.getAccountCache().beginRefreshIfStale() ) {
+				refreshAccount( extensionContext, token, cachedAccount );
+			}
+			return null;
+		}
 
+		final long ticket = extensionContext.getRequestRegistry().register( AccountKitEvent.ACCOUNT_REQUEST, callbackId );
+		Tracer.getInstance().phase( AccountKitEvent.ACCOUNT_REQUEST, callbackId, Tracer.SDK_CALLED );
 		AccountKit.getCurrentAccount( new AccountKitCallback<Account>() {
 			@Override
 			public void onSuccess( Account account ) {
-				AIR.log( "AccountKit | success retrieving account information" );
-				JSONObject response = new JSONObject();
-				addToResponse( response, "id", account.getId() );
-				addToResponse( response, "email", account.getEmail() );
-				if( account.getPhoneNumber() != null ) {
-					addToResponse( response, "phoneNumber", account.getPhoneNumber().getPhoneNumber() );
-					addToResponse( response, "phoneNumberCountryCode", account.getPhoneNumber().getCountryCode() );
+				Tracer.getInstance().phase( AccountKitEvent.ACCOUNT_REQUEST, callbackId, Tracer.SDK_CALLBACK );
+				Logger.d( "AccountKit | success retrieving account information" );
+				extensionContext.getAccountCache().put( token, account );
+				if( extensionContext.getRequestRegistry().complete( ticket ) ) {
+					dispatchAccount( extensionContext, callbackId, account );
 				}
-				addToResponse( response, "callbackId", callbackId );
-				AIR.dispatchEvent( AccountKitEvent.ACCOUNT_REQUEST, response.toString() );
 			}
 
 			@Override
 			public void onError( AccountKitError accountKitError ) {
-				AIR.log( "AccountKit | error retrieving account information: " + accountKitError.getErrorType().getMessage() );
-				AIR.dispatchEvent( AccountKitEvent.ACCOUNT_REQUEST, StringUtils.getEventErrorJSON( callbackId, accountKitError.getErrorType().getMessage() ) );
+				Tracer.getInstance().phase( AccountKitEvent.ACCOUNT_REQUEST, callbackId, Tracer.SDK_CALLBACK );
+				Logger.w( "AccountKit | error retrieving account information: {}", accountKitError.getErrorType().getMessage() );
+				if( !extensionContext.getRequestRegistry().complete( ticket ) ) return;
+
+				dispatchResult( extensionContext, callbackId, StringUtils.getEventErrorJSON( callbackId, accountKitError.getErrorType().getMessage() ) );
 			}
 		} );
 
 		return null;
 	}
 
-	private void addToResponse( JSONObject response, String key, Object value ) {
-		if( value != null ) {
-			try {
-				response.put( key, value );
-			} catch( JSONException e ) {
-				e.printStackTrace();
+	/**
+	 * Retrieves account information and dispatches update event if it differs from the cached account.
+	 */
+	private void refreshAccount( final AccountKitExtensionContext context, final AccessToken token, final Account cachedAccount ) {
+		Logger.d( "AccountKit | revalidating cached account information" );
+		AccountKit.getCurrentAccount( new AccountKitCallback<Account>() {
+			@Override
+			public void onSuccess( Account account ) {
+				context.getAccountCache().onRefreshComplete();
+				/* Token has changed or user logged out in the meantime */
+				if( context.getAccountCache().get( token ) == null ) return;
+
+				context.getAccountCache().put( token, account );
+				if( AccountCache.isChanged( cachedAccount, account ) ) {
+					Logger.d( "AccountKit | account information has changed" );
+					context.dispatchEvent( AccountKitEvent.ACCOUNT_UPDATE, getAccountJSON( account, -1 ) );
+				}
+			}
+
+			@Override
+			public void onError( AccountKitError accountKitError ) {
+				context.getAccountCache().onRefreshComplete();
+				Logger.w( "AccountKit | error revalidating account information: {}", accountKitError.getErrorType().getMessage() );
+			}
+		} );
+	}
+
+	private void dispatchAccount( final AccountKitExtensionContext context, final int callbackId, final Account account ) {
+		SerializationQueue.getInstance().execute( callbackId, new Runnable() {
+			@Override
+			public void run() {
+				dispatchResult( context, callbackId, getAccountJSON( account, callbackId ) );
 			}
+		} );
+	}
+
+	private void dispatchResult( AccountKitExtensionContext context, int callbackId, String json ) {
+		Tracer.getInstance().phase( AccountKitEvent.ACCOUNT_REQUEST, callbackId, Tracer.SERIALIZED );
+		context.dispatchEvent( AccountKitEvent.ACCOUNT_REQUEST, json );
+		Tracer.getInstance().end( AccountKitEvent.ACCOUNT_REQUEST, callbackId );
+	}
+
+	private String getAccountJSON( Account account, int callbackId ) {
+		JSONWriter response = JSONWriter.obtain()
+				.beginObject()
+				.field( "id", account.getId() )
+				.field( "email", account.getEmail() );
+		if( account.getPhoneNumber() != null ) {
+			response.field( "phoneNumber", account.getPhoneNumber().getPhoneNumber() );
+			response.field( "phoneNumberCountryCode", account.getPhoneNumber().getCountryCode() );
+		}
+		if( callbackId >= 0 ) {
+			response.field( "callbackId", callbackId );
 		}
+		return response.endObject().release();
 	}
 
 }
-
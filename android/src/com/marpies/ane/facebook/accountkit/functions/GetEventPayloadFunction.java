@@ -0,0 +1,42 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.functions;
+
+import com.adobe.fre.FREByteArray;
+import com.adobe.fre.FREContext;
+import com.adobe.fre.FREObject;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
+import com.marpies.ane.facebook.accountkit.utils.FREObjectUtils;
+import com.marpies.ane.facebook.accountkit.utils.Logger;
+
+public class GetEventPayloadFunction extends BaseFunction {
+
+	@Override
+	public FREObject call( FREContext context, FREObject[] args ) {
+		super.call( context, args );
+
+		int handle = FREObjectUtils.getInt( args[0] );
+		byte[] payload = ((AccountKitExtensionContext) context).getPayloadStore().take( handle );
+		if( payload == null ) {
+			Logger.w( "AccountKit | event payload with handle {} does not exist", handle );
+			return null;
+		}
+
+		return FREObjectUtils.newByteArray( payload );
+	}
+
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.functions;
+
+import com.adobe.fre.FREContext;
+import com.adobe.fre.FREObject;
+import com.adobe.fre.FREWrongThreadException;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
+import com.marpies.ane.facebook.accountkit.utils.AccountKitHelper;
+import com.marpies.ane.facebook.accountkit.utils.DetachedEventBuffer;
+import com.marpies.ane.facebook.accountkit.utils.EventOutbox;
+import com.marpies.ane.facebook.accountkit.utils.JSONWriter;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceWriteQueue;
+import com.marpies.ane.facebook.accountkit.utils.SerializationQueue;
+
+public class GetNativeStatsFunction extends BaseFunction {
+
+	@Override
+	public FREObject call( FREContext context, FREObject[] args ) {
+		super.call( context, args );
+
+		final AccountKitExtensionContext extensionContext = (AccountKitExtensionContext) context;
+
+		JSONWriter stats = JSONWriter.obtain().beginObject();
+
+		EventOutbox outbox = extensionContext.getEventOutbox();
+		stats.name( "outbox" ).beginObject()
+				.field( "queued", outbox.getNumQueued() )
+				.field( "dropped", outbox.getNumDropped() )
+				.field( "batches", outbox.getNumBatches() )
+				.field( "queueSize", outbox.getQueueSize() )
+				.endObject();
+
+		stats.name( "detached" );
+		DetachedEventBuffer.getInstance().writeStats( stats );
+
+		stats.name( "init" );
+		AccountKitHelper.getInstance().writeStats( stats );
+
+		stats.name( "serialization" );
+		SerializationQueue.getInstance().writeStats( stats );
+
+		stats.name( "writeQueue" );
+		PreferenceWriteQueue.getInstance().writeStats( stats );
+
+		stats.name( "payloads" );
+		extensionContext.getPayloadStore().writeStats( stats );
+
+		stats.name( "deltas" );
+		extensionContext.getPreferenceDeltaTracker().writeStats( stats );
+
+		stats.name( "requests" );
+		extensionContext.getRequestRegistry().writeStats( stats );
+
+		stats.name( "login" );
+		extensionContext.getLoginCoordinator().writeStats( stats );
+
+		stats.name( "activityResults" );
+		extensionContext.getActivityResultRouter().writeStats( stats );
+
+		String json = stats.endObject().release();
+		try {
+			return FREObject.newObject( json );
+		} catch( FREWrongThreadException e ) {
+			e.printStackTrace();
+		}
+
+		return null;
+	}
+
+}
@@ -18,10 +18,10 @@ package com.marpies.ane.facebook.accountkit.functions;
 
 import com.adobe.fre.FREContext;
 import com.adobe.fre.FREObject;
-import com.facebook.accountkit.AccountKit;
-import com.marpies.ane.facebook.accountkit.utils.AIR;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
 import com.marpies.ane.facebook.accountkit.utils.AccountKitHelper;
 import com.marpies.ane.facebook.accountkit.utils.FREObjectUtils;
+import com.marpies.ane.facebook.accountkit.utils.Logger;
 
 public class InitFunction extends BaseFunction {
 
@@ -29,16 +29,12 @@ public class InitFunction extends BaseFunction {
 	public FREObject call( FREContext context, FREObject[] args ) {
 		super.call( context, args );
 
-		if( AccountKit.isInitialized() ) {
-			AIR.log( "AccountKit is already initialized" );
-			return null;
-		}
-
 		String responseType = FREObjectUtils.getString( args[0] );
 		boolean showLogs = FREObjectUtils.getBoolean( args[1] );
-		AIR.setLogEnabled( showLogs );
+		Logger.setLogcatEnabled( showLogs );
 
-		AccountKitHelper.getInstance().initializeWithResponseType( responseType );
+		/* Dispatches INIT right away if the SDK is already initialized */
+		AccountKitHelper.getInstance().initializeWithResponseType( (AccountKitExtensionContext) context, responseType );
 
 		return null;
 	}
@@ -22,46 +22,120 @@ import com.adobe.fre.FREObject;
 import com.facebook.accountkit.AccountKit;
 import com.facebook.accountkit.AccountKitError;
 import com.facebook.accountkit.AccountPreferences;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
 import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
-import com.marpies.ane.facebook.accountkit.utils.AIR;
+import com.marpies.ane.facebook.accountkit.utils.BinaryEvents;
 import com.marpies.ane.facebook.accountkit.utils.FREObjectUtils;
-import com.marpies.ane.facebook.accountkit.utils.JSONUtils;
+import com.marpies.ane.facebook.accountkit.utils.JSONWriter;
+import com.marpies.ane.facebook.accountkit.utils.Logger;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceCache;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceSnapshot;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceWriteQueue;
+import com.marpies.ane.facebook.accountkit.utils.RequestRegistry;
+import com.marpies.ane.facebook.accountkit.utils.SerializationQueue;
 import com.marpies.ane.facebook.accountkit.utils.StringUtils;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.marpies.ane.facebook.accountkit.utils.Tracer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 public class LoadPreferenceFunction extends BaseFunction {
 
+	/* Tickets of requests waiting for the result, by preference key */
+	private final Map<String, List<Long>> mPendingRequests = new HashMap<String, List<Long>>();
+
 	@Override
 	public FREObject call( FREContext context, FREObject[] args ) {
 		super.call( context, args );
 
-		AIR.log( "AccountKit::loadPreference" );
+		final AccountKitExtensionContext extensionContext = (AccountKitExtensionContext) context;
+
+		Logger.d( "AccountKit::loadPreference" );
 		final int callbackId = FREObjectUtils.getInt( args[1] );
+		Tracer.getInstance().begin( AccountKitEvent.LOAD_PREFERENCE, callbackId );
 
 		/* User is not logged in, cannot load preference */
 		if( AccountKit.getCurrentAccessToken() == null ) {
-			dispatchError( callbackId, "User is not logged in, cannot load preference." );
+			dispatchError( extensionContext, callbackId, "User is not logged in, cannot load preference." );
 			return null;
 		}
 
-		String prefKey = FREObjectUtils.getString( args[0] );
+		final String prefKey = FREObjectUtils.getString( args[0] );
+		Tracer.getInstance().phase( AccountKitEvent.LOAD_PREFERENCE, callbackId, Tracer.ARGS_DECODED );
+
+		/* Return value of the write that has not been sent to the server yet */
+		if( PreferenceWriteQueue.getInstance().hasPendingWrite( prefKey ) ) {
+			String pendingValue = PreferenceWriteQueue.getInstance().getPendingValue( prefKey );
+			if( pendingValue != null ) {
+				dispatchPreference( extensionContext, callbackId, prefKey, pendingValue );
+			} else {
+				dispatchError( extensionContext, callbackId, "Value for key '" + prefKey + "' not found." );
+			}
+			return null;
+		}
+
+		/* Return cached value if possible */
+		String cachedValue = PreferenceCache.getInstance().get( prefKey );
+		if( cachedValue != null ) {
+			Logger.d( "AccountKit | loaded preference from cache" );
+			dispatchPreference( extensionContext, callbackId, prefKey, cachedValue );
+			return null;
+		}
+
+		/* Answer with the last known value right away, the server value follows */
+		String snapshotValue = PreferenceSnapshot.getInstance().get( prefKey );
+		if( snapshotValue != null ) {
+			Logger.d( "AccountKit | loaded stale preference from snapshot" );
+			dispatchStalePreference( extensionContext, callbackId, prefKey, snapshotValue );
+		}
+
+		/* Attach to the request that is already loading the same key */
+		final List<Long> waitingTickets;
+		synchronized( mPendingRequests ) {
+			List<Long> loadingTickets = mPendingRequests.get( prefKey );
+			if( loadingTickets != null ) {
+				Logger.d( "AccountKit | preference '{}' is already being loaded", prefKey );
+				loadingTickets.add( registerRequest( extensionContext, prefKey, callbackId ) );
+				return null;
+			}
+			waitingTickets = new ArrayList<Long>( 2 );
+			waitingTickets.add( registerRequest( extensionContext, prefKey, callbackId ) );
+			mPendingRequests.put( prefKey, waitingTickets );
+		}
+
+		Tracer.getInstance().phase( AccountKitEvent.LOAD_PREFERENCE, callbackId, Tracer.SDK_CALLED );
 		AccountKit.getAccountPreferences().loadPreference( prefKey, new AccountPreferences.OnLoadPreferenceListener() {
 			@Override
 			public void onLoadPreference( String key, @Nullable String value, @Nullable AccountKitError accountKitError ) {
-				if( accountKitError != null ) {
-					dispatchError( callbackId, accountKitError.getErrorType().getMessage() );
-				} else {
-					if( value == null ) {
-						dispatchError( callbackId, "Value for key '" + key + "' not found." );
-						return;
+				synchronized( mPendingRequests ) {
+					/* Waiting requests may have been aborted and the key reloaded by another request since */
+					if( mPendingRequests.get( prefKey ) == waitingTickets ) {
+						mPendingRequests.remove( prefKey );
+					}
+				}
+
+				if( accountKitError == null ) {
+					if( value != null ) {
+						Logger.d( "AccountKit | successfully loaded preference" );
+						PreferenceCache.getInstance().put( key, value );
+					}
+					PreferenceSnapshot.getInstance().put( key, value );
+				}
+				for( long ticket : waitingTickets ) {
+					if( !extensionContext.getRequestRegistry().complete( ticket ) ) continue;
+
+					int waitingCallbackId = RequestRegistry.getCallbackId( ticket );
+					Tracer.getInstance().phase( AccountKitEvent.LOAD_PREFERENCE, waitingCallbackId, Tracer.SDK_CALLBACK );
+					if( accountKitError != null ) {
+						dispatchError( extensionContext, waitingCallbackId, accountKitError.getErrorType().getMessage() );
+					} else if( value == null ) {
+						dispatchError( extensionContext, waitingCallbackId, "Value for key '" + key + "' not found." );
+					} else {
+						dispatchPreference( extensionContext, waitingCallbackId, key, value );
 					}
-					AIR.log( "AccountKit | successfully loaded preference" );
-					JSONObject response = new JSONObject();
-					JSONUtils.addToJSON( response, "callbackId", callbackId );
-					JSONUtils.addToJSON( response, "key", key );
-					JSONUtils.addToJSON( response, "value", value );
-					AIR.dispatchEvent( AccountKitEvent.LOAD_PREFERENCE, response.toString() );
 				}
 			}
 		} );
@@ -69,9 +143,96 @@ public class LoadPreferenceFunction extends BaseFunction {
 		return null;
 	}
 
-	private void dispatchError( int callbackId, String message ) {
-		AIR.log( "AccountKit | failed to load preference: " + message );
-		AIR.dispatchEvent( AccountKitEvent.LOAD_PREFERENCE, StringUtils.getEventErrorJSON( callbackId, message ) );
+	private long registerRequest( final AccountKitExtensionContext context, final String prefKey, final int callbackId ) {
+		return context.getRequestRegistry().register( AccountKitEvent.LOAD_PREFERENCE, callbackId, new Runnable() {
+			@Override
+			public void run() {
+				removeWaitingRequest( prefKey, callbackId );
+			}
+		} );
+	}
+
+	/**
+	 * Forgets request that timed out or was cancelled. If no other request is waiting
+	 * for the same key, the key is loaded again by the next request.
+	 */
+	private void removeWaitingRequest( String prefKey, int callbackId ) {
+		synchronized( mPendingRequests ) {
+			List<Long> waitingTickets = mPendingRequests.get( prefKey );
+			if( waitingTickets == null ) return;
+
+			Iterator<Long> it = waitingTickets.iterator();
+			while( it.hasNext() ) {
+				if( RequestRegistry.getCallbackId( it.next() ) == callbackId ) {
+					it.remove();
+					break;
+				}
+			}
+			if( waitingTickets.isEmpty() ) {
+				mPendingRequests.remove( prefKey );
+			}
+		}
+	}
+
+	private void dispatchPreference( final AccountKitExtensionContext context, final int callbackId, final String key, final String value ) {
+		SerializationQueue.getInstance().execute( callbackId, new Runnable() {
+			@Override
+			public void run() {
+				if( context.isBinaryEventsEnabled() ) {
+					BinaryEvents.dispatchPreference( context, AccountKitEvent.LOAD_PREFERENCE, callbackId, key, value );
+					Tracer.getInstance().end( AccountKitEvent.LOAD_PREFERENCE, callbackId );
+					return;
+				}
+				String response = JSONWriter.obtain()
+						.beginObject()
+						.field( "callbackId", callbackId )
+						.field( "key", key )
+						.field( "value", value )
+						.endObject()
+						.release();
+				Tracer.getInstance().phase( AccountKitEvent.LOAD_PREFERENCE, callbackId, Tracer.SERIALIZED );
+				context.dispatchEvent( AccountKitEvent.LOAD_PREFERENCE, response );
+				Tracer.getInstance().end( AccountKitEvent.LOAD_PREFERENCE, callbackId );
+			}
+		} );
+	}
+
+	private void dispatchStalePreference( final AccountKitExtensionContext context, final int callbackId, final String key, final String value ) {
+		SerializationQueue.getInstance().execute( callbackId, new Runnable() {
+			@Override
+			public void run() {
+				if( context.isBinaryEventsEnabled() ) {
+					BinaryEvents.dispatchPreference( context, AccountKitEvent.LOAD_PREFERENCE, callbackId, key, value, true );
+				} else {
+					String response = JSONWriter.obtain()
+							.beginObject()
+							.field( "callbackId", callbackId )
+							.field( "key", key )
+							.field( "value", value )
+							.field( "stale", true )
+							.endObject()
+							.release();
+					context.dispatchEvent( AccountKitEvent.LOAD_PREFERENCE, response );
+				}
+				Tracer.getInstance().phase( AccountKitEvent.LOAD_PREFERENCE, callbackId, Tracer.STALE_DISPATCHED );
+			}
+		} );
+	}
+
+	private void dispatchError( final AccountKitExtensionContext context, final int callbackId, final String message ) {
+		SerializationQueue.getInstance().execute( callbackId, new Runnable() {
+			@Override
+			public void run() {
+				Logger.w( "AccountKit | failed to load preference: {}", message );
+				if( context.isBinaryEventsEnabled() ) {
+					BinaryEvents.dispatchError( context, AccountKitEvent.LOAD_PREFERENCE, callbackId, message );
+					Tracer.getInstance().end( AccountKitEvent.LOAD_PREFERENCE, callbackId );
+					return;
+				}
+				context.dispatchEvent( AccountKitEvent.LOAD_PREFERENCE, StringUtils.getEventErrorJSON( callbackId, message ) );
+				Tracer.getInstance().end( AccountKitEvent.LOAD_PREFERENCE, callbackId );
+			}
+		} );
 	}
 
 }
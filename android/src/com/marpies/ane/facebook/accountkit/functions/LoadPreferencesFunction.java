@@ -22,13 +22,18 @@ import com.adobe.fre.FREObject;
 import com.facebook.accountkit.AccountKit;
 import com.facebook.accountkit.AccountKitError;
 import com.facebook.accountkit.AccountPreferences;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
 import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
-import com.marpies.ane.facebook.accountkit.utils.AIR;
+import com.marpies.ane.facebook.accountkit.utils.BinaryEvents;
 import com.marpies.ane.facebook.accountkit.utils.FREObjectUtils;
-import com.marpies.ane.facebook.accountkit.utils.JSONUtils;
+import com.marpies.ane.facebook.accountkit.utils.Logger;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceCache;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceDeltaTracker;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceSnapshot;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceWriteQueue;
+import com.marpies.ane.facebook.accountkit.utils.SerializationQueue;
 import com.marpies.ane.facebook.accountkit.utils.StringUtils;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import com.marpies.ane.facebook.accountkit.utils.Tracer;
 
 import java.util.Map;
 
@@ -38,31 +43,57 @@ public class LoadPreferencesFunction extends BaseFunction {
 	public FREObject call( FREContext context, FREObject[] args ) {
 		super.call( context, args );
 
-		AIR.log( "AccountKit::loadPreference" );
+		final AccountKitExtensionContext extensionContext = (AccountKitExtensionContext) context;
+
+		Logger.d( "AccountKit::loadPreference" );
 		final int callbackId = FREObjectUtils.getInt( args[0] );
+		/* Version of the preferences AS already has, passed when delta results are enabled */
+		final int baseVersion = (args.length > 1) ? FREObjectUtils.getInt( args[1] ) : PreferenceDeltaTracker.NO_VERSION;
+		Tracer.getInstance().begin( AccountKitEvent.LOAD_PREFERENCES, callbackId );
+		Tracer.getInstance().phase( AccountKitEvent.LOAD_PREFERENCES, callbackId, Tracer.ARGS_DECODED );
 
 		/* User is not logged in, cannot load preferences */
 		if( AccountKit.getCurrentAccessToken() == null ) {
-			dispatchError( callbackId, "User is not logged in, cannot load preferences." );
+			dispatchError( extensionContext, callbackId, "User is not logged in, cannot load preferences." );
+			return null;
+		}
+		final String accountId = AccountKit.getCurrentAccessToken().getAccountId();
+
+		/* Return cached preferences if possible */
+		Map<String, String> cachedPrefs = PreferenceCache.getInstance().getAll();
+		if( cachedPrefs != null ) {
+			Logger.d( "AccountKit | loaded preferences from cache" );
+			dispatchPreferences( extensionContext, callbackId, accountId, baseVersion, cachedPrefs );
 			return null;
 		}
 
+		/* Answer with the last known preferences right away, the server result follows */
+		Map<String, String> snapshotPrefs = PreferenceSnapshot.getInstance().getAll();
+		if( snapshotPrefs != null ) {
+			Logger.d( "AccountKit | loaded stale preferences from snapshot" );
+			dispatchStalePreferences( extensionContext, callbackId, snapshotPrefs );
+		}
+
+		final long ticket = extensionContext.getRequestRegistry().register( AccountKitEvent.LOAD_PREFERENCES, callbackId );
+		Tracer.getInstance().phase( AccountKitEvent.LOAD_PREFERENCES, callbackId, Tracer.SDK_CALLED );
 		AccountKit.getAccountPreferences().loadPreferences( new AccountPreferences.OnLoadPreferencesListener() {
 			@Override
-			public void onLoadPreferences( @Nullable Map<String, String> prefs, @Nullable AccountKitError accountKitError ) {
+			public void onLoadPreferences( @Nullable Map<String, String> serverPrefs, @Nullable AccountKitError accountKitError ) {
+				Tracer.getInstance().phase( AccountKitEvent.LOAD_PREFERENCES, callbackId, Tracer.SDK_CALLBACK );
+				boolean isPending = extensionContext.getRequestRegistry().complete( ticket );
 				if( accountKitError != null ) {
-					dispatchError( callbackId, accountKitError.getErrorType().getMessage() );
+					if( isPending ) {
+						dispatchError( extensionContext, callbackId, accountKitError.getErrorType().getMessage() );
+					}
 				} else {
-					AIR.log( "AccountKit | successfully loaded preferences" );
-					JSONObject response = new JSONObject();
-					JSONUtils.addToJSON( response, "callbackId", callbackId );
-					JSONArray preferences = new JSONArray();
-					for( Map.Entry<String, String> preference : prefs.entrySet() ) {
-						preferences.put( preference.getKey() );
-						preferences.put( preference.getValue() );
+					Logger.d( "AccountKit | successfully loaded preferences" );
+					/* Writes that have not been sent to the server yet take precedence */
+					Map<String, String> prefs = PreferenceWriteQueue.getInstance().applyPendingWrites( serverPrefs );
+					PreferenceCache.getInstance().putAll( prefs );
+					PreferenceSnapshot.getInstance().putAll( prefs );
+					if( isPending ) {
+						dispatchPreferences( extensionContext, callbackId, accountId, baseVersion, prefs );
 					}
-					JSONUtils.addToJSON( response, "preferences", preferences );
-					AIR.dispatchEvent( AccountKitEvent.LOAD_PREFERENCES, response.toString() );
 				}
 			}
 		} );
@@ -70,9 +101,66 @@ public class LoadPreferencesFunction extends BaseFunction {
 		return null;
 	}
 
-	private void dispatchError( int callbackId, String message ) {
-		AIR.log( "AccountKit | failed to load preferences: " + message );
-		AIR.dispatchEvent( AccountKitEvent.LOAD_PREFERENCES, StringUtils.getEventErrorJSON( callbackId, message ) );
+	private void dispatchPreferences( final AccountKitExtensionContext context, final int callbackId, final String accountId, final int baseVersion, final Map<String, String> prefs ) {
+		SerializationQueue.getInstance().execute( callbackId, new Runnable() {
+			@Override
+			public void run() {
+				if( context.getPreferenceDeltaTracker().isEnabled() ) {
+					dispatchPreferencesDelta( context, callbackId, context.getPreferenceDeltaTracker().update( accountId, baseVersion, prefs ) );
+					return;
+				}
+				if( context.isBinaryEventsEnabled() ) {
+					BinaryEvents.dispatchPreferences( context, callbackId, prefs );
+					Tracer.getInstance().end( AccountKitEvent.LOAD_PREFERENCES, callbackId );
+					return;
+				}
+				String json = StringUtils.getPreferencesJSON( callbackId, prefs, false );
+				Tracer.getInstance().phase( AccountKitEvent.LOAD_PREFERENCES, callbackId, Tracer.SERIALIZED );
+				context.dispatchEvent( AccountKitEvent.LOAD_PREFERENCES, json );
+				Tracer.getInstance().end( AccountKitEvent.LOAD_PREFERENCES, callbackId );
+			}
+		} );
+	}
+
+	private void dispatchPreferencesDelta( AccountKitExtensionContext context, int callbackId, PreferenceDeltaTracker.Delta delta ) {
+		if( context.isBinaryEventsEnabled() ) {
+			BinaryEvents.dispatchPreferencesDelta( context, callbackId, delta );
+		} else {
+			String json = StringUtils.getPreferencesDeltaJSON( callbackId, delta );
+			Tracer.getInstance().phase( AccountKitEvent.LOAD_PREFERENCES, callbackId, Tracer.SERIALIZED );
+			context.dispatchEvent( AccountKitEvent.LOAD_PREFERENCES, json );
+		}
+		Tracer.getInstance().end( AccountKitEvent.LOAD_PREFERENCES, callbackId );
+	}
+
+	private void dispatchStalePreferences( final AccountKitExtensionContext context, final int callbackId, final Map<String, String> prefs ) {
+		SerializationQueue.getInstance().execute( callbackId, new Runnable() {
+			@Override
+			public void run() {
+				if( context.isBinaryEventsEnabled() ) {
+					BinaryEvents.dispatchPreferences( context, callbackId, prefs, true );
+				} else {
+					context.dispatchEvent( AccountKitEvent.LOAD_PREFERENCES, StringUtils.getPreferencesJSON( callbackId, prefs, true ) );
+				}
+				Tracer.getInstance().phase( AccountKitEvent.LOAD_PREFERENCES, callbackId, Tracer.STALE_DISPATCHED );
+			}
+		} );
+	}
+
+	private void dispatchError( final AccountKitExtensionContext context, final int callbackId, final String message ) {
+		SerializationQueue.getInstance().execute( callbackId, new Runnable() {
+			@Override
+			public void run() {
+				Logger.w( "AccountKit | failed to load preferences: {}", message );
+				if( context.isBinaryEventsEnabled() ) {
+					BinaryEvents.dispatchError( context, AccountKitEvent.LOAD_PREFERENCES, callbackId, message );
+					Tracer.getInstance().end( AccountKitEvent.LOAD_PREFERENCES, callbackId );
+					return;
+				}
+				context.dispatchEvent( AccountKitEvent.LOAD_PREFERENCES, StringUtils.getEventErrorJSON( callbackId, message ) );
+				Tracer.getInstance().end( AccountKitEvent.LOAD_PREFERENCES, callbackId );
+			}
+		} );
 	}
 
 }
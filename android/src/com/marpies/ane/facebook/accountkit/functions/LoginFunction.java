@@ -17,174 +17,116 @@
 package com.marpies.ane.facebook.accountkit.functions;
 
 import android.content.Intent;
-import com.adobe.air.AndroidActivityWrapper;
-import com.adobe.air.IAKActivityResultCallback;
 import com.adobe.fre.*;
-import com.facebook.accountkit.AccountKitLoginResult;
 import com.facebook.accountkit.PhoneNumber;
 import com.facebook.accountkit.ui.AccountKitActivity;
 import com.facebook.accountkit.ui.AccountKitConfiguration;
-import com.facebook.accountkit.ui.LoginType;
-import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
 import com.marpies.ane.facebook.accountkit.utils.*;
-import org.json.JSONException;
-import org.json.JSONObject;
 
-public class LoginFunction extends BaseFunction implements IAKActivityResultCallback {
-
-	private static final int AK_APP_REQUEST_CODE = 4871;
-
-	private int mCallbackId;
+public class LoginFunction extends BaseFunction {
 
 	@Override
 	public FREObject call( FREContext context, FREObject[] args ) {
 		super.call( context, args );
 
-		FREObject configuration = args[0];
-		mCallbackId = FREObjectUtils.getInt( args[1] );
+		final AccountKitExtensionContext extensionContext = (AccountKitExtensionContext) context;
 
-		String loginTypeString = FREObjectUtils.getStringProperty( configuration, "loginType" );
-		AIR.log( "AccountKit::login via " + loginTypeString );
+		FREObject configuration = args[0];
+		int callbackId = FREObjectUtils.getInt( args[1] );
+		Tracer.getInstance().begin( LoginCoordinator.TRACE_OPERATION, callbackId );
+		String packedConfiguration = (args.length > 2 && args[2] != null) ? FREObjectUtils.getString( args[2] ) : null;
 
 		/* Create intent to launch AccountKit activity */
-		final Intent intent = new Intent( AIR.getContext().getActivity(), AccountKitActivity.class );
-		AccountKitConfiguration.AccountKitConfigurationBuilder configurationBuilder =
-				new AccountKitConfiguration.AccountKitConfigurationBuilder(
-						getLoginType( loginTypeString ),
-						AccountKitHelper.getInstance().getResponseType() );
-		/* Parse the rest of the configuration object */
-		AccountKitConfiguration config = parseAccountKitConfiguration( configuration, configurationBuilder );
+		final Intent intent = new Intent( extensionContext.getActivity(), AccountKitActivity.class );
+		AccountKitConfiguration config = null;
+		/* Read the whole configuration from the packed string, if available */
+		if( packedConfiguration != null ) {
+			Logger.d( "AccountKit::login using packed configuration" );
+			config = AKConfigurationUtils.fromPackedJSON( packedConfiguration, AccountKitHelper.getInstance().getResponseType() );
+		}
+		/* Fallback to reading the configuration object property by property */
+		if( config == null ) {
+			String loginTypeString = FREObjectUtils.getStringProperty( configuration, "loginType" );
+			Logger.d( "AccountKit::login via {}", loginTypeString );
+			AccountKitConfiguration.AccountKitConfigurationBuilder configurationBuilder =
+					new AccountKitConfiguration.AccountKitConfigurationBuilder(
+							AKConfigurationUtils.getLoginType( loginTypeString ),
+							AccountKitHelper.getInstance().getResponseType() );
+			/* Parse the rest of the configuration object */
+			config = parseAccountKitConfiguration( configuration, configurationBuilder );
+		}
 		intent.putExtra( AccountKitActivity.ACCOUNT_KIT_ACTIVITY_CONFIGURATION, config );
+		Tracer.getInstance().phase( LoginCoordinator.TRACE_OPERATION, callbackId, Tracer.ARGS_DECODED );
 
-		AndroidActivityWrapper.GetAndroidActivityWrapper().addActivityResultListener( this );
-
-		AIR.log( "Starting AccountKitActivity" );
-		AIR.startActivityForResult( intent, AK_APP_REQUEST_CODE );
+		extensionContext.getLoginCoordinator().login( callbackId, intent );
 
 		return null;
 	}
 
-	@Override
-	public void onActivityResult( int requestCode, int resultCode, Intent data ) {
-		if( requestCode == AK_APP_REQUEST_CODE ) {
-			AccountKitLoginResult loginResult = data.getParcelableExtra( AccountKitLoginResult.RESULT_KEY );
-			/* Error logging in */
-			if( loginResult.getError() != null ) {
-				AIR.log( "AccountKit | login error: " + loginResult.getError().getErrorType().getMessage() );
-				AIR.dispatchEvent( AccountKitEvent.LOGIN_ERROR, StringUtils.getEventErrorJSON( mCallbackId, loginResult.getError().getErrorType().getMessage() ) );
-			}
-			/* Login cancelled */
-			else if( loginResult.wasCancelled() ) {
-				AIR.log( "AccountKit | login cancelled" );
-				AIR.dispatchEvent( AccountKitEvent.LOGIN_CANCEL, String.valueOf( mCallbackId ) );
-			}
-			/* Login success */
-			else {
-				AIR.log( "AccountKit | final auth state: " + loginResult.getFinalAuthorizationState() );
-				JSONObject response = new JSONObject();
-				if( loginResult.getAccessToken() != null ) {
-					addToResponse( response, "accessToken", AKAccessTokenUtils.toJSON( loginResult.getAccessToken() ) );
-					AIR.log( "AccountKit | login got access token: " + loginResult.getAccessToken().getAccountId() );
-					// access token is accessible using AccountKit.getCurrentAccessToken(), no need to store it manually
-				} else if( loginResult.getAuthorizationCode() != null ) {
-					addToResponse( response, "authCode", loginResult.getAuthorizationCode() );
-					AIR.log( "AccountKit | login got auth code: " + loginResult.getAuthorizationCode() );
-				}
-
-				AIR.log( "AccountKit | success logging in" );
-				/* Dispatch response */
-				String authState = (loginResult.getFinalAuthorizationState() == null) ? "" : loginResult.getFinalAuthorizationState();
-				addToResponse( response, "authState", authState );
-				addToResponse( response, "callbackId", mCallbackId );
-				AIR.dispatchEvent( AccountKitEvent.LOGIN_SUCCESS, response.toString() );
-			}
-
-			AndroidActivityWrapper.GetAndroidActivityWrapper().removeActivityResultListener( this );
-		}
-	}
-
-	private void addToResponse( JSONObject response, String key, Object value ) {
-		try {
-			response.put( key, value );
-		} catch( JSONException e ) {
-			e.printStackTrace();
-		}
-	}
-
 	private AccountKitConfiguration parseAccountKitConfiguration( FREObject configuration, AccountKitConfiguration.AccountKitConfigurationBuilder configurationBuilder ) {
 		/* Initial auth state */
 		String initialAuthState = FREObjectUtils.getStringProperty( configuration, "initialAuthState" );
 		if( initialAuthState != null ) {
-			AIR.log( "ParseConfig - configurationBuilder.setInitialAuthState" );
+			Logger.d( "ParseConfig - configurationBuilder.setInitialAuthState" );
 			configurationBuilder.setInitialAuthState( initialAuthState );
 		}
 		/* Initial email */
 		String initialEmail = FREObjectUtils.getStringProperty( configuration, "initialEmail" );
 		if( initialEmail != null ) {
-			AIR.log( "ParseConfig - configurationBuilder.setInitialEmail" );
+			Logger.d( "ParseConfig - configurationBuilder.setInitialEmail" );
 			configurationBuilder.setInitialEmail( initialEmail );
 		}
 		/* Default country code */
 		String defaultCountryCode = FREObjectUtils.getStringProperty( configuration, "defaultCountryCode" );
 		if( defaultCountryCode != null ) {
-			AIR.log( "ParseConfig - configurationBuilder.setDefaultCountryCode" );
+			Logger.d( "ParseConfig - configurationBuilder.setDefaultCountryCode" );
 			configurationBuilder.setDefaultCountryCode( defaultCountryCode );
 		}
 		/* Title type */
 		String titleType = FREObjectUtils.getStringProperty( configuration, "titleType" );
 		if( titleType != null ) {
-			AIR.log( "ParseConfig - configurationBuilder.setTitleType" );
-			configurationBuilder.setTitleType( getTitleType( titleType ) );
+			Logger.d( "ParseConfig - configurationBuilder.setTitleType" );
+			configurationBuilder.setTitleType( AKConfigurationUtils.getTitleType( titleType ) );
 		}
 		/* Initial phone number */
 		String phoneNumber = FREObjectUtils.getStringProperty( configuration, "initialPhoneNumber" );
 		String phoneNumberCountryCode = FREObjectUtils.getStringProperty( configuration, "initialPhoneNumberCountryCode" );
 		if( phoneNumber != null && phoneNumberCountryCode != null ) {
-			AIR.log( "ParseConfig - configurationBuilder.setInitialPhoneNumber" );
+			Logger.d( "ParseConfig - configurationBuilder.setInitialPhoneNumber" );
 			configurationBuilder.setInitialPhoneNumber( new PhoneNumber( phoneNumberCountryCode, phoneNumber ) );
 		}
 		/* Facebook notification */
 		Boolean enableFBNotification = FREObjectUtils.getBooleanProperty( configuration, "enableFacebookNotification" );
 		if( enableFBNotification != null ) {
-			AIR.log( "ParseConfig - configurationBuilder.setFacebookNotificationsEnabled" );
+			Logger.d( "ParseConfig - configurationBuilder.setFacebookNotificationsEnabled" );
 			configurationBuilder.setFacebookNotificationsEnabled( enableFBNotification );
 		}
 		/* Read phone state */
 		Boolean enableReadPhoneState = FREObjectUtils.getBooleanProperty( configuration, "enableReadPhoneState" );
 		if( enableReadPhoneState != null ) {
-			AIR.log( "ParseConfig - configurationBuilder.setReadPhoneStateEnabled" );
+			Logger.d( "ParseConfig - configurationBuilder.setReadPhoneStateEnabled" );
 			configurationBuilder.setReadPhoneStateEnabled( enableReadPhoneState );
 		}
 		/* Receive SMS */
 		Boolean receiveSMS = FREObjectUtils.getBooleanProperty( configuration, "receiveSms" );
 		if( receiveSMS != null ) {
-			AIR.log( "ParseConfig - configurationBuilder.setReceiveSMS" );
+			Logger.d( "ParseConfig - configurationBuilder.setReceiveSMS" );
 			configurationBuilder.setReceiveSMS( receiveSMS );
 		}
 		/* SMS white list */
 		String[] smsWhiteList = FREObjectUtils.getArrayStringProperty( configuration, "smsWhiteList" );
 		if( smsWhiteList != null ) {
-			AIR.log( "ParseConfig - configurationBuilder.setSMSWhitelist" );
+			Logger.d( "ParseConfig - configurationBuilder.setSMSWhitelist" );
 			configurationBuilder.setSMSWhitelist( smsWhiteList );
 		}
 		/* SMS black list */
 		String[] smsBlackList = FREObjectUtils.getArrayStringProperty( configuration, "smsBlackList" );
 		if( smsBlackList != null ) {
-			AIR.log( "ParseConfig - configurationBuilder.setSMSBlacklist" );
+			Logger.d( "ParseConfig - configurationBuilder.setSMSBlacklist" );
 			configurationBuilder.setSMSBlacklist( smsBlackList );
 		}
 		return configurationBuilder.build();
 	}
 
-	private LoginType getLoginType( String loginType ) {
-		if( loginType.equals( "email" ) ) return LoginType.EMAIL;
-		return LoginType.PHONE;
-	}
-
-	private AccountKitActivity.TitleType getTitleType( String titleType ) {
-		if( titleType.equals( "appName" ) ) return AccountKitActivity.TitleType.APP_NAME;
-		return AccountKitActivity.TitleType.LOGIN;
-	}
-
 }
-
@@ -19,7 +19,11 @@ package com.marpies.ane.facebook.accountkit.functions;
 import com.adobe.fre.FREContext;
 import com.adobe.fre.FREObject;
 import com.facebook.accountkit.AccountKit;
-import com.marpies.ane.facebook.accountkit.utils.AIR;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
+import com.marpies.ane.facebook.accountkit.utils.Logger;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceCache;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceSnapshot;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceWriteQueue;
 
 public class LogoutFunction extends BaseFunction {
 
@@ -27,8 +31,16 @@ public class LogoutFunction extends BaseFunction {
 	public FREObject call( FREContext context, FREObject[] args ) {
 		super.call( context, args );
 
-		AIR.log( "AccountKit::logout" );
+		final AccountKitExtensionContext extensionContext = (AccountKitExtensionContext) context;
+
+		Logger.d( "AccountKit::logout" );
+		/* Snapshot is bound to the account, delete it before the token is gone */
+		PreferenceSnapshot.getInstance().clear();
+		PreferenceWriteQueue.getInstance().clear();
 		AccountKit.logOut();
+		PreferenceCache.getInstance().clear();
+		extensionContext.getPreferenceDeltaTracker().clear();
+		extensionContext.getAccountCache().clear();
 
 		return null;
 	}
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.functions;
+
+import com.adobe.fre.FREContext;
+import com.adobe.fre.FREObject;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
+import com.marpies.ane.facebook.accountkit.utils.FREObjectUtils;
+import com.marpies.ane.facebook.accountkit.utils.Logger;
+
+public class ReadEventPayloadFunction extends BaseFunction {
+
+	@Override
+	public FREObject call( FREContext context, FREObject[] args ) {
+		super.call( context, args );
+
+		int handle = FREObjectUtils.getInt( args[0] );
+		int offset = FREObjectUtils.getInt( args[1] );
+		int length = FREObjectUtils.getInt( args[2] );
+		byte[] chunk = ((AccountKitExtensionContext) context).getPayloadStore().read( handle, offset, length );
+		if( chunk == null ) {
+			Logger.w( "AccountKit | event payload with handle {} does not exist", handle );
+			return null;
+		}
+
+		return FREObjectUtils.newByteArray( chunk );
+	}
+
+}
@@ -22,13 +22,18 @@ import com.adobe.fre.FREObject;
 import com.facebook.accountkit.AccountKit;
 import com.facebook.accountkit.AccountKitError;
 import com.facebook.accountkit.AccountPreferences;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
 import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
-import com.marpies.ane.facebook.accountkit.utils.AIR;
+import com.marpies.ane.facebook.accountkit.utils.BinaryEvents;
 import com.marpies.ane.facebook.accountkit.utils.FREObjectUtils;
-import com.marpies.ane.facebook.accountkit.utils.JSONUtils;
+import com.marpies.ane.facebook.accountkit.utils.JSONWriter;
+import com.marpies.ane.facebook.accountkit.utils.Logger;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceCache;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceSnapshot;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceWriteQueue;
+import com.marpies.ane.facebook.accountkit.utils.SerializationQueue;
 import com.marpies.ane.facebook.accountkit.utils.StringUtils;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.marpies.ane.facebook.accountkit.utils.Tracer;
 
 public class SetPreferenceFunction extends BaseFunction {
 
@@ -36,30 +41,52 @@ public class SetPreferenceFunction extends BaseFunction {
 	public FREObject call( FREContext context, FREObject[] args ) {
 		super.call( context, args );
 
-		AIR.log( "AccountKit::setPreference" );
+		final AccountKitExtensionContext extensionContext = (AccountKitExtensionContext) context;
+
+		Logger.d( "AccountKit::setPreference" );
 		final int callbackId = FREObjectUtils.getInt( args[2] );
+		Tracer.getInstance().begin( AccountKitEvent.SET_PREFERENCE, callbackId );
 
 		/* User is not logged in, cannot set preference */
 		if( AccountKit.getCurrentAccessToken() == null ) {
-			dispatchError( callbackId, "User is not logged in, cannot set preference." );
+			dispatchError( extensionContext, callbackId, "User is not logged in, cannot set preference." );
 			return null;
 		}
 
 		String prefKey = FREObjectUtils.getString( args[0] );
 		String prefValue = FREObjectUtils.getString( args[1] );
+		Tracer.getInstance().phase( AccountKitEvent.SET_PREFERENCE, callbackId, Tracer.ARGS_DECODED );
+
+		/* Accept the write locally, it is sent to the server in the background */
+		if( PreferenceWriteQueue.getInstance().isEnabled() ) {
+			String error = PreferenceWriteQueue.getInstance().set( prefKey, prefValue );
+			if( error != null ) {
+				dispatchError( extensionContext, callbackId, error );
+			} else {
+				dispatchPreference( extensionContext, callbackId, prefKey, prefValue );
+			}
+			return null;
+		}
 
+		final long ticket = extensionContext.getRequestRegistry().register( AccountKitEvent.SET_PREFERENCE, callbackId );
+		Tracer.getInstance().phase( AccountKitEvent.SET_PREFERENCE, callbackId, Tracer.SDK_CALLED );
 		AccountKit.getAccountPreferences().setPreference( prefKey, prefValue, new AccountPreferences.OnSetPreferenceListener() {
 			@Override
 			public void onSetPreference( String key, String value, @Nullable AccountKitError accountKitError ) {
+				Tracer.getInstance().phase( AccountKitEvent.SET_PREFERENCE, callbackId, Tracer.SDK_CALLBACK );
+				/* The request may have timed out or been cancelled, the value is cached regardless */
+				boolean isPending = extensionContext.getRequestRegistry().complete( ticket );
 				if( accountKitError != null ) {
-					dispatchError( callbackId, accountKitError.getErrorType().getMessage() );
+					if( isPending ) {
+						dispatchError( extensionContext, callbackId, accountKitError.getErrorType().getMessage() );
+					}
 				} else {
-					AIR.log( "AccountKit | successfully set preference" );
-					JSONObject response = new JSONObject();
-					JSONUtils.addToJSON( response, "callbackId", callbackId );
-					JSONUtils.addToJSON( response, "key", key );
-					JSONUtils.addToJSON( response, "value", value );
-					AIR.dispatchEvent( AccountKitEvent.SET_PREFERENCE, response.toString() );
+					Logger.d( "AccountKit | successfully set preference" );
+					PreferenceCache.getInstance().put( key, value );
+					PreferenceSnapshot.getInstance().put( key, value );
+					if( isPending ) {
+						dispatchPreference( extensionContext, callbackId, key, value );
+					}
 				}
 			}
 		} );
@@ -67,9 +94,43 @@ public class SetPreferenceFunction extends BaseFunction {
 		return null;
 	}
 
-	private void dispatchError( int callbackId, String message ) {
-		AIR.log( "AccountKit | failed to set preference: " + message );
-		AIR.dispatchEvent( AccountKitEvent.SET_PREFERENCE, StringUtils.getEventErrorJSON( callbackId, message ) );
+	private void dispatchPreference( final AccountKitExtensionContext context, final int callbackId, final String key, final String value ) {
+		SerializationQueue.getInstance().execute( callbackId, new Runnable() {
+			@Override
+			public void run() {
+				if( context.isBinaryEventsEnabled() ) {
+					BinaryEvents.dispatchPreference( context, AccountKitEvent.SET_PREFERENCE, callbackId, key, value );
+					Tracer.getInstance().end( AccountKitEvent.SET_PREFERENCE, callbackId );
+					return;
+				}
+				String response = JSONWriter.obtain()
+						.beginObject()
+						.field( "callbackId", callbackId )
+						.field( "key", key )
+						.field( "value", value )
+						.endObject()
+						.release();
+				Tracer.getInstance().phase( AccountKitEvent.SET_PREFERENCE, callbackId, Tracer.SERIALIZED );
+				context.dispatchEvent( AccountKitEvent.SET_PREFERENCE, response );
+				Tracer.getInstance().end( AccountKitEvent.SET_PREFERENCE, callbackId );
+			}
+		} );
+	}
+
+	private void dispatchError( final AccountKitExtensionContext context, final int callbackId, final String message ) {
+		SerializationQueue.getInstance().execute( callbackId, new Runnable() {
+			@Override
+			public void run() {
+				Logger.w( "AccountKit | failed to set preference: {}", message );
+				if( context.isBinaryEventsEnabled() ) {
+					BinaryEvents.dispatchError( context, AccountKitEvent.SET_PREFERENCE, callbackId, message );
+					Tracer.getInstance().end( AccountKitEvent.SET_PREFERENCE, callbackId );
+					return;
+				}
+				context.dispatchEvent( AccountKitEvent.SET_PREFERENCE, StringUtils.getEventErrorJSON( callbackId, message ) );
+				Tracer.getInstance().end( AccountKitEvent.SET_PREFERENCE, callbackId );
+			}
+		} );
 	}
 
 }
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.functions;
+
+import com.adobe.fre.FREContext;
+import com.adobe.fre.FREObject;
+import com.facebook.accountkit.AccountKit;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
+import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
+import com.marpies.ane.facebook.accountkit.utils.FREObjectUtils;
+import com.marpies.ane.facebook.accountkit.utils.Logger;
+import com.marpies.ane.facebook.accountkit.utils.PreferenceBatch;
+import com.marpies.ane.facebook.accountkit.utils.StringUtils;
+import com.marpies.ane.facebook.accountkit.utils.Tracer;
+
+public class SetPreferencesFunction extends BaseFunction {
+
+	@Override
+	public FREObject call( FREContext context, FREObject[] args ) {
+		super.call( context, args );
+
+		final AccountKitExtensionContext extensionContext = (AccountKitExtensionContext) context;
+
+		Logger.d( "AccountKit::setPreferences" );
+		final int callbackId = FREObjectUtils.getInt( args[1] );
+		Tracer.getInstance().begin( AccountKitEvent.SET_PREFERENCES, callbackId );
+
+		/* User is not logged in, cannot set preferences */
+		if( AccountKit.getCurrentAccessToken() == null ) {
+			dispatchError( extensionContext, callbackId, "User is not logged in, cannot set preferences." );
+			return null;
+		}
+
+		/* Key/value pairs ( ["key1", "value1", "key2", "value2"] ), packed in ByteArray or as Array */
+		String[] keyValuePairs = FREObjectUtils.getArrayOfString( args[0] );
+		if( keyValuePairs == null || (keyValuePairs.length % 2) != 0 ) {
+			dispatchError( extensionContext, callbackId, "Invalid list of preferences." );
+			return null;
+		}
+
+		int numPreferences = keyValuePairs.length / 2;
+		String[] keys = new String[numPreferences];
+		String[] values = new String[numPreferences];
+		for( int i = 0, j = 0; i < numPreferences; i++ ) {
+			keys[i] = keyValuePairs[j++];
+			values[i] = keyValuePairs[j++];
+		}
+
+		Tracer.getInstance().phase( AccountKitEvent.SET_PREFERENCES, callbackId, Tracer.ARGS_DECODED );
+		PreferenceBatch.set( extensionContext, keys, values, callbackId ).start();
+
+		return null;
+	}
+
+	private void dispatchError( AccountKitExtensionContext context, int callbackId, String message ) {
+		Logger.w( "AccountKit | failed to set preferences: {}", message );
+		context.dispatchEvent( AccountKitEvent.SET_PREFERENCES, StringUtils.getEventErrorJSON( callbackId, message ) );
+		Tracer.getInstance().end( AccountKitEvent.SET_PREFERENCES, callbackId );
+	}
+
+}
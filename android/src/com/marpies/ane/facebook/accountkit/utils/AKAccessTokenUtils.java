@@ -17,24 +17,19 @@
 package com.marpies.ane.facebook.accountkit.utils;
 
 import com.facebook.accountkit.AccessToken;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 public class AKAccessTokenUtils {
 
 	public static String toJSON( AccessToken token ) {
-		JSONObject json = new JSONObject();
-		try {
-			json.put( "accountId", token.getAccountId() );
-			json.put( "applicationId", token.getApplicationId() );
-			json.put( "token", token.getToken() );
-			json.put( "lastRefreshTime", token.getLastRefresh().getTime() );
-			json.put( "tokenRefreshIntervalInSeconds", token.getTokenRefreshIntervalSeconds() );
-			return json.toString();
-		} catch( JSONException e ) {
-			e.printStackTrace();
-		}
-		return null;
+		return JSONWriter.obtain()
+				.beginObject()
+				.field( "accountId", token.getAccountId() )
+				.field( "applicationId", token.getApplicationId() )
+				.field( "token", token.getToken() )
+				.field( "lastRefreshTime", token.getLastRefresh().getTime() )
+				.field( "tokenRefreshIntervalInSeconds", token.getTokenRefreshIntervalSeconds() )
+				.endObject()
+				.release();
 	}
 
 }
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import com.facebook.accountkit.PhoneNumber;
+import com.facebook.accountkit.ui.AccountKitActivity;
+import com.facebook.accountkit.ui.AccountKitConfiguration;
+import com.facebook.accountkit.ui.LoginType;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Decodes login configuration packed by <code>AKConfiguration</code> into a single JSON string.
+ */
+public class AKConfigurationUtils {
+
+	/* Must match AKConfiguration.PACKED_FORMAT_VERSION */
+	private static final int PACKED_FORMAT_VERSION = 1;
+
+	/**
+	 * Creates configuration from the packed JSON string.
+	 *
+	 * @return Configuration, or <code>null</code> if the string cannot be decoded,
+	 *         in which case the configuration should be read property by property.
+	 */
+	public static AccountKitConfiguration fromPackedJSON( String packed, AccountKitActivity.ResponseType responseType ) {
+		try {
+			JSONObject json = new JSONObject( packed );
+			if( json.optInt( "v" ) != PACKED_FORMAT_VERSION ) {
+				Logger.w( "Unsupported packed configuration version: {}", json.optInt( "v" ) );
+				return null;
+			}
+
+			AccountKitConfiguration.AccountKitConfigurationBuilder builder =
+					new AccountKitConfiguration.AccountKitConfigurationBuilder(
+							getLoginType( json.getString( "loginType" ) ),
+							responseType );
+
+			String initialAuthState = getOptString( json, "initialAuthState" );
+			if( initialAuthState != null ) {
+				builder.setInitialAuthState( initialAuthState );
+			}
+			String initialEmail = getOptString( json, "initialEmail" );
+			if( initialEmail != null ) {
+				builder.setInitialEmail( initialEmail );
+			}
+			String defaultCountryCode = getOptString( json, "defaultCountryCode" );
+			if( defaultCountryCode != null ) {
+				builder.setDefaultCountryCode( defaultCountryCode );
+			}
+			String titleType = getOptString( json, "titleType" );
+			if( titleType != null ) {
+				builder.setTitleType( getTitleType( titleType ) );
+			}
+			String phoneNumber = getOptString( json, "initialPhoneNumber" );
+			String phoneNumberCountryCode = getOptString( json, "initialPhoneNumberCountryCode" );
+			if( phoneNumber != null && phoneNumberCountryCode != null ) {
+				builder.setInitialPhoneNumber( new PhoneNumber( phoneNumberCountryCode, phoneNumber ) );
+			}
+			if( json.has( "enableFacebookNotification" ) ) {
+				builder.setFacebookNotificationsEnabled( json.getBoolean( "enableFacebookNotification" ) );
+			}
+			if( json.has( "enableReadPhoneState" ) ) {
+				builder.setReadPhoneStateEnabled( json.getBoolean( "enableReadPhoneState" ) );
+			}
+			if( json.has( "receiveSms" ) ) {
+				builder.setReceiveSMS( json.getBoolean( "receiveSms" ) );
+			}
+			String[] smsWhiteList = getOptStringArray( json, "smsWhiteList" );
+			if( smsWhiteList != null ) {
+				builder.setSMSWhitelist( smsWhiteList );
+			}
+			String[] smsBlackList = getOptStringArray( json, "smsBlackList" );
+			if( smsBlackList != null ) {
+				builder.setSMSBlacklist( smsBlackList );
+			}
+			return builder.build();
+		} catch( JSONException e ) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	public static LoginType getLoginType( String loginType ) {
+		if( "email".equals( loginType ) ) return LoginType.EMAIL;
+		return LoginType.PHONE;
+	}
+
+	public static AccountKitActivity.TitleType getTitleType( String titleType ) {
+		if( "appName".equals( titleType ) ) return AccountKitActivity.TitleType.APP_NAME;
+		return AccountKitActivity.TitleType.LOGIN;
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private static String getOptString( JSONObject json, String key ) throws JSONException {
+		if( !json.has( key ) || json.isNull( key ) ) return null;
+		return json.getString( key );
+	}
+
+	private static String[] getOptStringArray( JSONObject json, String key ) throws JSONException {
+		if( !json.has( key ) || json.isNull( key ) ) return null;
+		JSONArray array = json.getJSONArray( key );
+		String[] result = new String[array.length()];
+		for( int i = 0; i < result.length; i++ ) {
+			result[i] = array.getString( i );
+		}
+		return result;
+	}
+
+}
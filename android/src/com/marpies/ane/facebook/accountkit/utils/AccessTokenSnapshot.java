@@ -0,0 +1,138 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import com.facebook.accountkit.AccessToken;
+import com.facebook.accountkit.AccessTokenTracker;
+import com.facebook.accountkit.AccountKit;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
+import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
+
+/**
+ * Keeps the current access token together with its serialized form.
+ * The JSON is only rebuilt when the token changes, which is detected
+ * using access token tracker or by comparing the token with the snapshot.
+ */
+public class AccessTokenSnapshot {
+
+	private static AccessTokenSnapshot mInstance = new AccessTokenSnapshot();
+
+	private AccessToken mToken;
+	private String mJSON;
+	private AccessTokenTracker mTracker;
+	/* Context that is notified about token changes */
+	private AccountKitExtensionContext mContext;
+
+	public static AccessTokenSnapshot getInstance() {
+		return mInstance;
+	}
+
+	private AccessTokenSnapshot() {
+	}
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	/**
+	 * Starts listening to access token changes, which are dispatched to the given context.
+	 * AccountKit SDK must be initialized.
+	 */
+	public synchronized void startTracking( AccountKitExtensionContext context ) {
+		mContext = context;
+		if( mTracker != null ) return;
+
+		Logger.d( "AccessTokenSnapshot::startTracking" );
+		mTracker = new AccessTokenTracker() {
+			@Override
+			protected void onCurrentAccessTokenChanged( AccessToken oldToken, AccessToken newToken ) {
+				update( newToken );
+			}
+		};
+		mTracker.startTracking();
+		update( AccountKit.getCurrentAccessToken() );
+	}
+
+	/**
+	 * Stops listening to access token changes, unless they are tracked for another context.
+	 */
+	public synchronized void stopTracking( AccountKitExtensionContext context ) {
+		if( mContext != context ) return;
+
+		mContext = null;
+		if( mTracker != null ) {
+			mTracker.stopTracking();
+			mTracker = null;
+		}
+	}
+
+	/**
+	 * Returns JSON of the current access token, or <code>null</code> if there is no token.
+	 */
+	public String getJSON() {
+		return getJSON( AccountKit.getCurrentAccessToken() );
+	}
+
+	/**
+	 * Returns JSON of the given access token, or <code>null</code> if the token is <code>null</code>.
+	 * The snapshot is updated if the token differs from the current snapshot.
+	 */
+	public String getJSON( AccessToken token ) {
+		update( token );
+		synchronized( this ) {
+			return mJSON;
+		}
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private void update( AccessToken token ) {
+		String json;
+		AccountKitExtensionContext context;
+		synchronized( this ) {
+			if( isSameToken( mToken, token ) ) return;
+
+			mToken = token;
+			mJSON = (token != null) ? AKAccessTokenUtils.toJSON( token ) : null;
+			json = mJSON;
+			context = mContext;
+		}
+		Logger.d( "AccessTokenSnapshot | access token has changed" );
+		PreferenceSnapshot.getInstance().preload();
+		if( context != null ) {
+			context.getAccountCache().clear();
+			context.dispatchEvent( AccountKitEvent.TOKEN_CHANGED, (json != null) ? json : "" );
+		}
+	}
+
+	private static boolean isSameToken( AccessToken a, AccessToken b ) {
+		if( a == b ) return true;
+		if( a == null || b == null ) return false;
+		return a.equals( b );
+	}
+
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import android.os.SystemClock;
+import com.facebook.accountkit.AccessToken;
+import com.facebook.accountkit.Account;
+import com.facebook.accountkit.PhoneNumber;
+
+/**
+ * Holds the last retrieved account for the access token it was retrieved with.
+ * The entry is answered from immediately and should be revalidated once it is older than the max age.
+ */
+public class AccountCache {
+
+	private static final long DEFAULT_MAX_AGE_MILLIS = 5 * 60 * 1000;
+
+	private Account mAccount;
+	private String mToken;
+	private long mTimestamp;
+	private long mMaxAgeMillis = DEFAULT_MAX_AGE_MILLIS;
+	private boolean mIsRefreshing;
+
+	public AccountCache() {
+	}
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	/**
+	 * Returns cached account for the given token, or <code>null</code> if there is no account cached for the token.
+	 */
+	public synchronized Account get( AccessToken token ) {
+		if( token == null || mAccount == null || !token.getToken().equals( mToken ) ) return null;
+		return mAccount;
+	}
+
+	public synchronized void put( AccessToken token, Account account ) {
+		if( token == null || account == null ) return;
+
+		mAccount = account;
+		mToken = token.getToken();
+		mTimestamp = SystemClock.elapsedRealtime();
+	}
+
+	/**
+	 * Returns <code>true</code> if cached entry is older than max age and no refresh is in progress.
+	 * The caller is expected to start the refresh and call <code>onRefreshComplete</code> when done.
+	 */
+	public synchronized boolean beginRefreshIfStale() {
+		if( mAccount == null || mIsRefreshing ) return false;
+		if( (SystemClock.elapsedRealtime() - mTimestamp) < mMaxAgeMillis ) return false;
+
+		mIsRefreshing = true;
+		return true;
+	}
+
+	public synchronized void onRefreshComplete() {
+		mIsRefreshing = false;
+	}
+
+	public synchronized void clear() {
+		mAccount = null;
+		mToken = null;
+		mTimestamp = 0;
+	}
+
+	public synchronized void setMaxAge( long maxAgeMillis ) {
+		mMaxAgeMillis = Math.max( 0, maxAgeMillis );
+	}
+
+	/**
+	 * Returns <code>true</code> if id, email or phone number differs between the given accounts.
+	 */
+	public static boolean isChanged( Account oldAccount, Account newAccount ) {
+		if( oldAccount == null || newAccount == null ) return oldAccount != newAccount;
+		return !equals( oldAccount.getId(), newAccount.getId() ) ||
+				!equals( oldAccount.getEmail(), newAccount.getEmail() ) ||
+				!equals( getPhoneNumber( oldAccount ), getPhoneNumber( newAccount ) ) ||
+				!equals( getPhoneNumberCountryCode( oldAccount ), getPhoneNumberCountryCode( newAccount ) );
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private static String getPhoneNumber( Account account ) {
+		PhoneNumber phoneNumber = account.getPhoneNumber();
+		return (phoneNumber != null) ? phoneNumber.getPhoneNumber() : null;
+	}
+
+	private static String getPhoneNumberCountryCode( Account account ) {
+		PhoneNumber phoneNumber = account.getPhoneNumber();
+		return (phoneNumber != null) ? phoneNumber.getCountryCode() : null;
+	}
+
+	private static boolean equals( String a, String b ) {
+		return (a == null) ? (b == null) : a.equals( b );
+	}
+
+}
@@ -16,13 +16,52 @@
 
 package com.marpies.ane.facebook.accountkit.utils;
 
+import android.app.Activity;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.os.SystemClock;
+import com.adobe.air.AndroidActivityWrapper;
 import com.facebook.accountkit.AccountKit;
 import com.facebook.accountkit.ui.AccountKitActivity;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
 import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
 
 public class AccountKitHelper implements AccountKit.InitializeCallback {
 
+	/**
+	 * Application meta-data flag that starts SDK initialization when the extension context is created.
+	 */
+	public static final String EAGER_INIT_META_DATA = "com.marpies.ane.facebook.accountkit.EagerInit";
+
+	public enum State {
+		UNINITIALIZED( "uninitialized" ),
+		INITIALIZING( "initializing" ),
+		INITIALIZED( "initialized" );
+
+		private final String mName;
+
+		State( String name ) {
+			mName = name;
+		}
+
+		public String getName() {
+			return mName;
+		}
+	}
+
 	private String mResponseType;
+	private State mState = State.UNINITIALIZED;
+	private boolean mEager;
+	/* Context that called init, the INIT event is dispatched only after that */
+	private AccountKitExtensionContext mInitContext;
+
+	/* Phase timestamps (SystemClock.elapsedRealtime), 0 if the phase has not been reached.
+	 * Init requested is the last init call, the other phases happen once per process. */
+	private long mContextCreatedTime;
+	private long mInitRequestedTime;
+	private long mInitStartedTime;
+	private long mInitCompletedTime;
 
 	private static AccountKitHelper mInstance = new AccountKitHelper();
 
@@ -41,17 +80,74 @@ public class AccountKitHelper implements AccountKit.InitializeCallback {
 	 *
 	 */
 
-	public void initializeWithResponseType( String responseType ) {
-		AIR.log( "AccountKitHelper::initialize" );
+	/**
+	 * Called when the extension context is created. Starts SDK initialization
+	 * if it is enabled using the eager init application meta-data and the SDK
+	 * has not been initialized by a previous context.
+	 */
+	public synchronized void onContextCreated() {
+		/* Phase times are relative to the first context, the SDK is initialized once per process */
+		if( mContextCreatedTime == 0 ) {
+			mContextCreatedTime = SystemClock.elapsedRealtime();
+		}
+
+		if( mState != State.UNINITIALIZED ) return;
+
+		Activity activity = AndroidActivityWrapper.GetAndroidActivityWrapper().getActivity();
+		if( activity == null || !isEagerInitEnabled( activity ) ) return;
+
+		mEager = true;
+		/* SDK may have been initialized outside of the extension */
+		if( AccountKit.isInitialized() ) {
+			setInitialized();
+			return;
+		}
+		Logger.d( "AccountKitHelper::onContextCreated starting eager initialization" );
+		startInitialization( activity );
+	}
+
+	/**
+	 * Called when the extension context is disposed. The SDK itself stays initialized.
+	 */
+	public synchronized void onContextDisposed( AccountKitExtensionContext context ) {
+		if( mInitContext == context ) {
+			mInitContext = null;
+		}
+	}
+
+	public synchronized void initializeWithResponseType( AccountKitExtensionContext context, String responseType ) {
+		Logger.d( "AccountKitHelper::initialize (state: {})", mState.getName() );
 		mResponseType = responseType;
+		mInitContext = context;
+		mInitRequestedTime = SystemClock.elapsedRealtime();
+
+		/* SDK may have been initialized outside of the extension */
+		if( mState == State.UNINITIALIZED && AccountKit.isInitialized() ) {
+			setInitialized();
+		}
 
-		AccountKit.initialize( AIR.getContext().getActivity(), this );
+		switch( mState ) {
+			case UNINITIALIZED:
+				startInitialization( context.getActivity() );
+				break;
+			case INITIALIZING:
+				/* INIT is dispatched once initialization completes */
+				break;
+			case INITIALIZED:
+				AccessTokenSnapshot.getInstance().startTracking( context );
+				context.dispatchEventImmediately( AccountKitEvent.INIT, "" );
+				break;
+		}
 	}
 
 	@Override
-	public void onInitialized() {
-		AIR.log( "AccountKitHelper::onInitialized" );
-		AIR.dispatchEvent( AccountKitEvent.INIT );
+	public synchronized void onInitialized() {
+		Logger.d( "AccountKitHelper::onInitialized" );
+		setInitialized();
+		if( mInitContext != null ) {
+			AccessTokenSnapshot.getInstance().startTracking( mInitContext );
+			mInitContext.dispatchEventImmediately( AccountKitEvent.INIT, "" );
+		}
 	}
 
 	public AccountKitActivity.ResponseType getResponseType() {
@@ -65,4 +161,59 @@ public class AccountKitHelper implements AccountKit.InitializeCallback {
 		return "accessToken".equals( mResponseType );
 	}
 
+	public synchronized State getState() {
+		return mState;
+	}
+
+	/**
+	 * Writes current state and the time (in ms) each init phase was reached,
+	 * relative to creation of the first extension context. Phases that have not been reached are -1.
+	 */
+	public synchronized void writeStats( JSONWriter writer ) {
+		writer.beginObject()
+				.field( "state", mState.getName() )
+				.field( "eager", mEager )
+				.field( "initRequested", getPhaseTime( mInitRequestedTime ) )
+				.field( "initStarted", getPhaseTime( mInitStartedTime ) )
+				.field( "initCompleted", getPhaseTime( mInitCompletedTime ) )
+				.endObject();
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private void startInitialization( Activity activity ) {
+		mState = State.INITIALIZING;
+		mInitStartedTime = SystemClock.elapsedRealtime();
+		AccountKit.initialize( activity.getApplicationContext(), this );
+	}
+
+	private void setInitialized() {
+		mState = State.INITIALIZED;
+		if( mInitCompletedTime == 0 ) {
+			mInitCompletedTime = SystemClock.elapsedRealtime();
+		}
+	}
+
+	private long getPhaseTime( long timestamp ) {
+		if( timestamp == 0 || mContextCreatedTime == 0 ) return -1;
+		return timestamp - mContextCreatedTime;
+	}
+
+	private boolean isEagerInitEnabled( Activity activity ) {
+		try {
+			ApplicationInfo info = activity.getPackageManager().getApplicationInfo( activity.getPackageName(), PackageManager.GET_META_DATA );
+			Bundle metaData = info.metaData;
+			return metaData != null && metaData.getBoolean( EAGER_INIT_META_DATA, false );
+		} catch( PackageManager.NameNotFoundException e ) {
+			e.printStackTrace();
+		}
+		return false;
+	}
+
 }
@@ -0,0 +1,183 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import android.content.Intent;
+import com.adobe.air.AndroidActivityWrapper;
+import com.adobe.air.IAKActivityResultCallback;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single activity result listener of the extension context. Results are dispatched by request code
+ * to the registered listeners, which are held weakly so that a listener that is never unregistered
+ * does not leak. Such listeners are counted and reported once they are found to be garbage collected.
+ */
+public class ActivityResultRouter implements IAKActivityResultCallback {
+
+	public interface Listener {
+		/**
+		 * @param data Result data, may be <code>null</code> if the activity finished without setting a result.
+		 */
+		void onActivityResult( int resultCode, Intent data );
+	}
+
+	private final Map<Integer, WeakReference<Listener>> mListeners = new HashMap<Integer, WeakReference<Listener>>();
+	/* Listeners kept alive until their results arrive, after the extension context is disposed */
+	private final List<Listener> mRetainedListeners = new ArrayList<Listener>();
+	private boolean mIsAttached;
+	private boolean mIsDetachPending;
+
+	private long mNumDispatched;
+	private long mNumUnhandled;
+	private long mNumLeaked;
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	/**
+	 * Starts receiving activity results, called once when the extension context is created.
+	 */
+	public void attach() {
+		if( mIsAttached ) return;
+
+		mIsAttached = true;
+		AndroidActivityWrapper.GetAndroidActivityWrapper().addActivityResultListener( this );
+	}
+
+	/**
+	 * Stops receiving activity results and forgets all listeners.
+	 */
+	public void detach() {
+		if( !mIsAttached ) return;
+
+		mIsAttached = false;
+		mIsDetachPending = false;
+		AndroidActivityWrapper.GetAndroidActivityWrapper().removeActivityResultListener( this );
+		mListeners.clear();
+		mRetainedListeners.clear();
+	}
+
+	/**
+	 * Detaches once the registered listeners have received their results, called when the extension
+	 * context is disposed while an activity is running. The listeners are held strongly until then.
+	 */
+	public void detachWhenIdle() {
+		pruneCollected();
+		if( mListeners.isEmpty() ) {
+			detach();
+			return;
+		}
+		mIsDetachPending = true;
+		for( WeakReference<Listener> reference : mListeners.values() ) {
+			mRetainedListeners.add( reference.get() );
+		}
+	}
+
+	/**
+	 * Registers listener for results of the given request code, replacing the previous listener.
+	 */
+	public void register( int requestCode, Listener listener ) {
+		pruneCollected();
+		WeakReference<Listener> previous = mListeners.put( requestCode, new WeakReference<Listener>( listener ) );
+		if( previous != null && previous.get() != null && previous.get() != listener ) {
+			Logger.w( "ActivityResultRouter | listener for request code {} was replaced", requestCode );
+		}
+	}
+
+	/**
+	 * Unregisters the listener, unless another listener has been registered for the request code since.
+	 */
+	public void unregister( int requestCode, Listener listener ) {
+		WeakReference<Listener> reference = mListeners.get( requestCode );
+		if( reference != null && (reference.get() == listener || reference.get() == null) ) {
+			mListeners.remove( requestCode );
+		}
+		if( mIsDetachPending && mListeners.isEmpty() ) {
+			detach();
+		}
+	}
+
+	@Override
+	public void onActivityResult( int requestCode, int resultCode, Intent data ) {
+		WeakReference<Listener> reference = mListeners.get( requestCode );
+		if( reference == null ) {
+			mNumUnhandled++;
+			return;
+		}
+
+		Listener listener = reference.get();
+		if( listener == null ) {
+			mListeners.remove( requestCode );
+			onLeakDetected( requestCode );
+			return;
+		}
+
+		mNumDispatched++;
+		listener.onActivityResult( resultCode, data );
+	}
+
+	public void writeStats( JSONWriter writer ) {
+		pruneCollected();
+		writer.beginObject()
+				.field( "attached", mIsAttached )
+				.field( "listeners", mListeners.size() )
+				.field( "detachPending", mIsDetachPending )
+				.field( "dispatched", mNumDispatched )
+				.field( "unhandled", mNumUnhandled )
+				.field( "leaked", mNumLeaked )
+				.endObject();
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	/**
+	 * Removes listeners that were garbage collected without being unregistered.
+	 */
+	private void pruneCollected() {
+		Iterator<Map.Entry<Integer, WeakReference<Listener>>> it = mListeners.entrySet().iterator();
+		while( it.hasNext() ) {
+			Map.Entry<Integer, WeakReference<Listener>> entry = it.next();
+			if( entry.getValue().get() == null ) {
+				it.remove();
+				onLeakDetected( entry.getKey() );
+			}
+		}
+	}
+
+	private void onLeakDetected( int requestCode ) {
+		mNumLeaked++;
+		Logger.w( "ActivityResultRouter | listener for request code {} was not unregistered", requestCode );
+	}
+
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+
+/**
+ * Encodes results of preference requests in a compact, big-endian binary format.
+ *
+ * Payload layout:
+ *   int8  opcode
+ *   int32 callbackId
+ *   int8  status (0 = success, 1 = error, 2 = stale success from the disk snapshot)
+ *   error:               string errorMessage
+ *   loadPreference/
+ *   setPreference:       string key, string value
+ *   deletePreference:    string key
+ *   loadPreferences:     int32 count, count * (string key, string value)
+ *   preferencesDelta:    int32 version, int32 baseVersion (-1 for full result),
+ *                        int32 count, count * (string key, string value), int32 removedCount, removedCount * string key
+ *
+ * Strings are written as int32 byte length (-1 for null) followed by UTF-8 bytes.
+ */
+public class BinaryEventEncoder {
+
+	public static final int OPCODE_LOAD_PREFERENCE = 1;
+	public static final int OPCODE_LOAD_PREFERENCES = 2;
+	public static final int OPCODE_SET_PREFERENCE = 3;
+	public static final int OPCODE_DELETE_PREFERENCE = 4;
+	/* Versioned result of loadPreferences, errors use OPCODE_LOAD_PREFERENCES */
+	public static final int OPCODE_PREFERENCES_DELTA = 5;
+
+	private static final int STATUS_SUCCESS = 0;
+	private static final int STATUS_ERROR = 1;
+	private static final int STATUS_STALE = 2;
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	/**
+	 * Encodes result of a single preference request, <code>value</code> is ignored for delete requests.
+	 * @param stale <code>true</code> if the value comes from the disk snapshot and a server value will follow.
+	 */
+	public static byte[] encodePreference( int opcode, int callbackId, String key, String value, boolean stale ) {
+		Writer writer = new Writer( 64 );
+		writer.writeHeader( opcode, callbackId, stale ? STATUS_STALE : STATUS_SUCCESS );
+		writer.writeString( key );
+		if( opcode != OPCODE_DELETE_PREFERENCE ) {
+			writer.writeString( value );
+		}
+		return writer.toByteArray();
+	}
+
+	/**
+	 * @param stale <code>true</code> if the preferences come from the disk snapshot and a server result will follow.
+	 */
+	public static byte[] encodePreferences( int callbackId, Map<String, String> preferences, boolean stale ) {
+		Writer writer = new Writer( 16 + preferences.size() * 32 );
+		writer.writeHeader( OPCODE_LOAD_PREFERENCES, callbackId, stale ? STATUS_STALE : STATUS_SUCCESS );
+		writer.writeInt( preferences.size() );
+		for( Map.Entry<String, String> preference : preferences.entrySet() ) {
+			writer.writeString( preference.getKey() );
+			writer.writeString( preference.getValue() );
+		}
+		return writer.toByteArray();
+	}
+
+	public static byte[] encodePreferencesDelta( int callbackId, PreferenceDeltaTracker.Delta delta ) {
+		Writer writer = new Writer( 24 + (delta.changed.size() + delta.removed.size()) * 32 );
+		writer.writeHeader( OPCODE_PREFERENCES_DELTA, callbackId, STATUS_SUCCESS );
+		writer.writeInt( delta.version );
+		writer.writeInt( delta.baseVersion );
+		writer.writeInt( delta.changed.size() );
+		for( Map.Entry<String, String> preference : delta.changed.entrySet() ) {
+			writer.writeString( preference.getKey() );
+			writer.writeString( preference.getValue() );
+		}
+		writer.writeInt( delta.removed.size() );
+		for( String key : delta.removed ) {
+			writer.writeString( key );
+		}
+		return writer.toByteArray();
+	}
+
+	public static byte[] encodeError( int opcode, int callbackId, String errorMessage ) {
+		Writer writer = new Writer( 64 );
+		writer.writeHeader( opcode, callbackId, STATUS_ERROR );
+		writer.writeString( errorMessage );
+		return writer.toByteArray();
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private static class Writer {
+		private byte[] mBuffer;
+		private int mPosition;
+
+		Writer( int initialCapacity ) {
+			mBuffer = new byte[initialCapacity];
+		}
+
+		void writeHeader( int opcode, int callbackId, int status ) {
+			writeByte( opcode );
+			writeInt( callbackId );
+			writeByte( status );
+		}
+
+		void writeByte( int value ) {
+			ensureCapacity( 1 );
+			mBuffer[mPosition++] = (byte) value;
+		}
+
+		void writeInt( int value ) {
+			ensureCapacity( 4 );
+			mBuffer[mPosition++] = (byte) (value >>> 24);
+			mBuffer[mPosition++] = (byte) (value >>> 16);
+			mBuffer[mPosition++] = (byte) (value >>> 8);
+			mBuffer[mPosition++] = (byte) value;
+		}
+
+		void writeString( String value ) {
+			if( value == null ) {
+				writeInt( -1 );
+				return;
+			}
+			byte[] bytes = getUTFBytes( value );
+			writeInt( bytes.length );
+			ensureCapacity( bytes.length );
+			System.arraycopy( bytes, 0, mBuffer, mPosition, bytes.length );
+			mPosition += bytes.length;
+		}
+
+		byte[] toByteArray() {
+			byte[] result = new byte[mPosition];
+			System.arraycopy( mBuffer, 0, result, 0, mPosition );
+			return result;
+		}
+
+		private void ensureCapacity( int numBytes ) {
+			if( mPosition + numBytes > mBuffer.length ) {
+				byte[] buffer = new byte[Math.max( mBuffer.length * 2, mPosition + numBytes )];
+				System.arraycopy( mBuffer, 0, buffer, 0, mPosition );
+				mBuffer = buffer;
+			}
+		}
+
+		private static byte[] getUTFBytes( String value ) {
+			try {
+				return value.getBytes( "UTF-8" );
+			} catch( UnsupportedEncodingException e ) {
+				throw new IllegalStateException( e );
+			}
+		}
+	}
+
+}
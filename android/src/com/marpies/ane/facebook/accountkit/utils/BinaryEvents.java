@@ -0,0 +1,99 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
+import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
+
+import java.util.Map;
+
+/**
+ * Opt-in alternative to JSON event payloads, enabled for each extension context.
+ * Results are encoded by BinaryEventEncoder and stored in the PayloadStore of the context.
+ * The status event only carries the payload handle, the AS side retrieves the bytes as ByteArray.
+ * Unclaimed payloads are evicted by the PayloadStore.
+ */
+public class BinaryEvents {
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	/**
+	 * Dispatches result of a single preference request, <code>value</code> is ignored for delete requests.
+	 */
+	public static void dispatchPreference( AccountKitExtensionContext context, String eventName, int callbackId, String key, String value ) {
+		dispatchPreference( context, eventName, callbackId, key, value, false );
+	}
+
+	/**
+	 * @param stale <code>true</code> if the value comes from the disk snapshot and a server value will follow.
+	 */
+	public static void dispatchPreference( AccountKitExtensionContext context, String eventName, int callbackId, String key, String value, boolean stale ) {
+		context.dispatchBinaryEvent( BinaryEventEncoder.encodePreference( getOpcode( eventName ), callbackId, key, value, stale ) );
+	}
+
+	public static void dispatchPreferences( AccountKitExtensionContext context, int callbackId, Map<String, String> preferences ) {
+		dispatchPreferences( context, callbackId, preferences, false );
+	}
+
+	/**
+	 * @param stale <code>true</code> if the preferences come from the disk snapshot and a server result will follow.
+	 */
+	public static void dispatchPreferences( AccountKitExtensionContext context, int callbackId, Map<String, String> preferences, boolean stale ) {
+		context.dispatchBinaryEvent( BinaryEventEncoder.encodePreferences( callbackId, preferences, stale ) );
+	}
+
+	public static void dispatchPreferencesDelta( AccountKitExtensionContext context, int callbackId, PreferenceDeltaTracker.Delta delta ) {
+		context.dispatchBinaryEvent( BinaryEventEncoder.encodePreferencesDelta( callbackId, delta ) );
+	}
+
+	/**
+	 * @return <code>true</code> if result of the given event can be sent as binary event.
+	 */
+	public static boolean canDispatch( String eventName ) {
+		return AccountKitEvent.LOAD_PREFERENCE.equals( eventName )
+				|| AccountKitEvent.LOAD_PREFERENCES.equals( eventName )
+				|| AccountKitEvent.SET_PREFERENCE.equals( eventName )
+				|| AccountKitEvent.DELETE_PREFERENCE.equals( eventName );
+	}
+
+	public static void dispatchError( AccountKitExtensionContext context, String eventName, int callbackId, String errorMessage ) {
+		context.dispatchBinaryEvent( BinaryEventEncoder.encodeError( getOpcode( eventName ), callbackId, errorMessage ) );
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private static int getOpcode( String eventName ) {
+		if( AccountKitEvent.LOAD_PREFERENCE.equals( eventName ) ) return BinaryEventEncoder.OPCODE_LOAD_PREFERENCE;
+		if( AccountKitEvent.LOAD_PREFERENCES.equals( eventName ) ) return BinaryEventEncoder.OPCODE_LOAD_PREFERENCES;
+		if( AccountKitEvent.SET_PREFERENCE.equals( eventName ) ) return BinaryEventEncoder.OPCODE_SET_PREFERENCE;
+		if( AccountKitEvent.DELETE_PREFERENCE.equals( eventName ) ) return BinaryEventEncoder.OPCODE_DELETE_PREFERENCE;
+		throw new IllegalArgumentException( "Event " + eventName + " cannot be sent as binary event." );
+	}
+
+}
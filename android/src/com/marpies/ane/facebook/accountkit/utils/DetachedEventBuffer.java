@@ -0,0 +1,252 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Holds events dispatched to a disposed extension context, e.g. SDK responses that arrive between
+ * the context being disposed and the next one being created, and replays them in order to the next context.
+ * Any thread can add events without blocking, the buffer is a bounded ring where producers claim slots
+ * with a compare-and-set on the tail. Events are consumed on the main thread only. Events that do not fit
+ * in the buffer are dropped, events that wait longer than the maximum age are discarded. Until the held events
+ * are replayed, events dispatched to the attached context are added to the buffer as well, so that they
+ * do not overtake the held events.
+ */
+public class DetachedEventBuffer {
+
+	/* Must be a power of two */
+	private static final int CAPACITY = 256;
+	private static final int MASK = CAPACITY - 1;
+	private static final long MAX_AGE_MILLIS = 60 * 1000;
+
+	private final AtomicReferenceArray<Event> mSlots = new AtomicReferenceArray<Event>( CAPACITY );
+	private final AtomicLong mTail = new AtomicLong();
+	/* Written by the consumer only */
+	private volatile long mHead;
+
+	private final AtomicReference<AccountKitExtensionContext> mContext = new AtomicReference<AccountKitExtensionContext>();
+	/* Set while the attached context is waiting for held events to be replayed */
+	private volatile boolean mIsReplayPending;
+	private final AtomicBoolean mReplayScheduled = new AtomicBoolean();
+	private final AtomicBoolean mExpiryScheduled = new AtomicBoolean();
+	private final Handler mHandler = new Handler( Looper.getMainLooper() );
+
+	private final AtomicLong mNumHeld = new AtomicLong();
+	private final AtomicLong mNumDropped = new AtomicLong();
+	private final AtomicLong mNumReplayed = new AtomicLong();
+	private final AtomicLong mNumExpired = new AtomicLong();
+
+	private final Runnable mReplayRunnable = new Runnable() {
+		@Override
+		public void run() {
+			mReplayScheduled.set( false );
+			drain();
+		}
+	};
+
+	private final Runnable mExpiryRunnable = new Runnable() {
+		@Override
+		public void run() {
+			mExpiryScheduled.set( false );
+			drain();
+			if( mContext.get() == null && !isEmpty() ) {
+				scheduleExpiry();
+			}
+		}
+	};
+
+	private static DetachedEventBuffer mInstance = new DetachedEventBuffer();
+
+	public static DetachedEventBuffer getInstance() {
+		return mInstance;
+	}
+
+	private DetachedEventBuffer() { }
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	/**
+	 * Adds the event to the buffer, can be called from any thread.
+	 * @param payload Bytes of a binary event, or <code>null</code> for a status event with the given message.
+	 * @return <code>false</code> if the buffer is full and the event was dropped.
+	 */
+	public boolean offer( String eventName, String message, byte[] payload ) {
+		Event event = new Event( eventName, message, payload, SystemClock.elapsedRealtime() );
+		long tail;
+		do {
+			tail = mTail.get();
+			if( tail - mHead >= CAPACITY ) {
+				mNumDropped.incrementAndGet();
+				Logger.w( "DetachedEventBuffer | buffer is full, dropping event {}", eventName );
+				return false;
+			}
+		} while( !mTail.compareAndSet( tail, tail + 1 ) );
+		mSlots.set( (int) (tail & MASK), event );
+		mNumHeld.incrementAndGet();
+
+		/* Context may have been attached while the slot was being claimed */
+		if( mContext.get() != null ) {
+			scheduleReplay();
+		} else {
+			scheduleExpiry();
+		}
+		return true;
+	}
+
+	/**
+	 * Dispatches event that does not belong to a particular request (e.g. result of a background task)
+	 * to the attached context, or holds it until a context is attached. Can be called from any thread.
+	 */
+	public void dispatch( String eventName, String message ) {
+		AccountKitExtensionContext context = mContext.get();
+		if( context != null ) {
+			/* Context holds the event itself if it has been disposed in the meantime */
+			context.dispatchEvent( eventName, message );
+		} else {
+			offer( eventName, message, null );
+		}
+	}
+
+	/**
+	 * Makes the context the receiver of the buffered events. The events are replayed on the main thread
+	 * after the context has been returned to AIR, so that the AS side can start listening for them.
+	 */
+	public void attach( AccountKitExtensionContext context ) {
+		mContext.set( context );
+		mIsReplayPending = !isEmpty();
+		if( mIsReplayPending ) {
+			scheduleReplay();
+		}
+	}
+
+	/**
+	 * Events dispatched to the context after this call are held until another context is attached.
+	 */
+	public void detach( AccountKitExtensionContext context ) {
+		mContext.compareAndSet( context, null );
+	}
+
+	/**
+	 * Returns <code>true</code> if held events have not been replayed to the attached context yet,
+	 * events dispatched to the context in the meantime must be added to the buffer.
+	 */
+	public boolean isReplayPending() {
+		return mIsReplayPending;
+	}
+
+	public void writeStats( JSONWriter writer ) {
+		writer.beginObject()
+				.field( "attached", mContext.get() != null )
+				.field( "capacity", CAPACITY )
+				.field( "buffered", mTail.get() - mHead )
+				.field( "held", mNumHeld.get() )
+				.field( "dropped", mNumDropped.get() )
+				.field( "replayed", mNumReplayed.get() )
+				.field( "expired", mNumExpired.get() )
+				.endObject();
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	/**
+	 * Replays events to the attached context, or only discards expired events if there is no context.
+	 * Stops at a slot that has been claimed but not filled yet, its producer schedules another drain.
+	 */
+	private void drain() {
+		AccountKitExtensionContext context = mContext.get();
+		long now = SystemClock.elapsedRealtime();
+		long head = mHead;
+		while( true ) {
+			int index = (int) (head & MASK);
+			Event event = mSlots.get( index );
+			if( event == null ) break;
+
+			boolean isExpired = now - event.time > MAX_AGE_MILLIS;
+			if( !isExpired && context == null ) break;
+
+			mSlots.set( index, null );
+			mHead = ++head;
+			if( isExpired ) {
+				mNumExpired.incrementAndGet();
+				Logger.w( "DetachedEventBuffer | discarding expired event {}", event.name );
+			} else {
+				mNumReplayed.incrementAndGet();
+				if( event.payload != null ) {
+					context.dispatchReplayedBinaryEvent( event.payload );
+				} else {
+					context.dispatchReplayedEvent( event.name, event.message );
+				}
+			}
+		}
+		/* Events claimed but not filled yet keep the replay pending, their producers schedule another drain */
+		if( context != null && isEmpty() ) {
+			mIsReplayPending = false;
+		}
+	}
+
+	private boolean isEmpty() {
+		return mTail.get() == mHead;
+	}
+
+	private void scheduleReplay() {
+		if( mReplayScheduled.compareAndSet( false, true ) ) {
+			mHandler.post( mReplayRunnable );
+		}
+	}
+
+	private void scheduleExpiry() {
+		if( mExpiryScheduled.compareAndSet( false, true ) ) {
+			mHandler.postDelayed( mExpiryRunnable, MAX_AGE_MILLIS );
+		}
+	}
+
+	private static class Event {
+		final String name;
+		final String message;
+		final byte[] payload;
+		final long time;
+
+		Event( String name, String message, byte[] payload, long time ) {
+			this.name = name;
+			this.message = message;
+			this.payload = payload;
+			this.time = time;
+		}
+	}
+
+}
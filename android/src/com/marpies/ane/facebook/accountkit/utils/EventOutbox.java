@@ -0,0 +1,190 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
+import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects status events of an extension context and dispatches them to the AS side as a single batch event,
+ * either after the flush interval elapses or once the batch size is reached.
+ */
+public class EventOutbox {
+
+	private static final int DEFAULT_MAX_BATCH_SIZE = 32;
+	private static final int DEFAULT_MAX_QUEUE_SIZE = 256;
+
+	private final ArrayDeque<String[]> mQueue = new ArrayDeque<String[]>();
+	private final Runnable mFlushRunnable = new Runnable() {
+		@Override
+		public void run() {
+			flush();
+		}
+	};
+	private final AccountKitExtensionContext mContext;
+	private Handler mHandler;
+
+	private long mFlushIntervalMillis;
+	private int mMaxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+	private int mMaxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+	private boolean mIsFlushScheduled;
+
+	/* Stats */
+	private long mNumQueued;
+	private long mNumDropped;
+	private long mNumBatches;
+
+	public EventOutbox( AccountKitExtensionContext context ) {
+		mContext = context;
+	}
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	/**
+	 * @param flushIntervalMillis Time events are held before they are flushed, zero disables batching.
+	 * @param maxBatchSize Number of queued events that triggers immediate flush.
+	 * @param maxQueueSize Maximum number of events held in the queue, further events are dropped.
+	 */
+	public synchronized void configure( long flushIntervalMillis, int maxBatchSize, int maxQueueSize ) {
+		/* Dispatch events queued with the previous settings */
+		flush();
+		mFlushIntervalMillis = Math.max( 0, flushIntervalMillis );
+		mMaxBatchSize = Math.max( 1, maxBatchSize );
+		mMaxQueueSize = Math.max( mMaxBatchSize, maxQueueSize );
+		Logger.i( "EventOutbox::configure interval: {}ms batch: {} queue: {}", flushIntervalMillis, maxBatchSize, maxQueueSize );
+	}
+
+	public synchronized boolean isEnabled() {
+		return mFlushIntervalMillis > 0;
+	}
+
+	/**
+	 * Queues the event to be dispatched with the next batch.
+	 * @return <code>false</code> if the event could not be queued because batching is disabled.
+	 */
+	public synchronized boolean offer( String eventName, String message ) {
+		if( mFlushIntervalMillis <= 0 ) return false;
+
+		if( mQueue.size() >= mMaxQueueSize ) {
+			mNumDropped++;
+			Logger.w( "EventOutbox | queue is full, dropping event {}", eventName );
+			return true;
+		}
+		mQueue.add( new String[]{ eventName, message } );
+		mNumQueued++;
+		if( mQueue.size() >= mMaxBatchSize ) {
+			flush();
+		} else if( !mIsFlushScheduled ) {
+			mIsFlushScheduled = true;
+			getHandler().postDelayed( mFlushRunnable, mFlushIntervalMillis );
+		}
+		return true;
+	}
+
+	/**
+	 * Dispatches all queued events. Events are dispatched while holding the lock
+	 * so that batches cannot overtake each other.
+	 */
+	public synchronized void flush() {
+		if( mIsFlushScheduled ) {
+			mIsFlushScheduled = false;
+			getHandler().removeCallbacks( mFlushRunnable );
+		}
+		if( mQueue.isEmpty() ) return;
+
+		mNumBatches++;
+		/* Single event does not need to be wrapped */
+		if( mQueue.size() == 1 ) {
+			String[] event = mQueue.poll();
+			mContext.dispatchStatusEventAsync( event[0], event[1] );
+			return;
+		}
+		JSONWriter batch = JSONWriter.obtain().beginArray();
+		for( String[] event : mQueue ) {
+			batch.value( event[0] );
+			batch.value( event[1] );
+		}
+		mQueue.clear();
+		mContext.dispatchStatusEventAsync( AccountKitEvent.BATCH, batch.endArray().release() );
+	}
+
+	/**
+	 * Dispatches all queued events followed by the given event, bypassing the flush interval.
+	 */
+	public synchronized void dispatchImmediately( String eventName, String message ) {
+		flush();
+		mContext.dispatchStatusEventAsync( eventName, message );
+	}
+
+	/**
+	 * Removes the queued events without dispatching them.
+	 * @return Queued events as pairs of event name and message, in the order they were queued.
+	 */
+	public synchronized List<String[]> drain() {
+		List<String[]> events = new ArrayList<String[]>( mQueue );
+		mQueue.clear();
+		if( mIsFlushScheduled ) {
+			mIsFlushScheduled = false;
+			getHandler().removeCallbacks( mFlushRunnable );
+		}
+		return events;
+	}
+
+	public synchronized long getNumQueued() {
+		return mNumQueued;
+	}
+
+	public synchronized long getNumDropped() {
+		return mNumDropped;
+	}
+
+	public synchronized long getNumBatches() {
+		return mNumBatches;
+	}
+
+	public synchronized int getQueueSize() {
+		return mQueue.size();
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private Handler getHandler() {
+		if( mHandler == null ) {
+			mHandler = new Handler( Looper.getMainLooper() );
+		}
+		return mHandler;
+	}
+
+}
@@ -21,12 +21,23 @@ import com.adobe.fre.*;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Conversions between FRE objects and Java types. Lists of strings and key/value pairs can also
+ * be passed in bulk as a ByteArray, which takes a single call across the bridge instead of one
+ * call per element. Packed layout (big-endian, like AS3 ByteArray):
+ *   int32 count, count * (int32 byte length (-1 for null), UTF-8 bytes)
+ * Key/value pairs are packed as a list of alternating keys and values.
+ */
 public class FREObjectUtils {
 
+	private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
 	public static Integer getInt( FREObject object ) {
 		try {
 			return object.getAsInt();
@@ -82,6 +93,35 @@ public class FREObjectUtils {
 		return result;
 	}
 
+	/**
+	 * Returns strings from ByteArray with packed strings, or from Array/Vector using per-element calls.
+	 */
+	public static String[] getArrayOfString( FREObject object ) {
+		if( object instanceof FREByteArray ) return getArrayOfString( (FREByteArray) object );
+		return (object instanceof FREArray) ? getArrayOfString( (FREArray) object ) : null;
+	}
+
+	/**
+	 * Returns packed strings, or <code>null</code> if the ByteArray is not valid.
+	 */
+	public static String[] getArrayOfString( FREByteArray byteArray ) {
+		byte[] bytes;
+		try {
+			byteArray.acquire();
+			try {
+				ByteBuffer buffer = byteArray.getBytes();
+				bytes = new byte[buffer.remaining()];
+				buffer.get( bytes );
+			} finally {
+				byteArray.release();
+			}
+		} catch( Exception e ) {
+			e.printStackTrace();
+			return null;
+		}
+		return unpackStrings( bytes );
+	}
+
 	public static String[] getArrayOfString( FREArray array ) {
 		String[] result = null;
 
@@ -172,6 +212,28 @@ public class FREObjectUtils {
 		return null;
 	}
 
+	public static FREByteArray newByteArray( byte[] bytes ) {
+		FREByteArray byteArray = null;
+		try {
+			byteArray = FREByteArray.newByteArray();
+			byteArray.setProperty( "length", FREObject.newObject( bytes.length ) );
+			byteArray.acquire();
+			byteArray.getBytes().put( bytes );
+			return byteArray;
+		} catch( Exception e ) {
+			e.printStackTrace();
+			return null;
+		} finally {
+			if( byteArray != null ) {
+				try {
+					byteArray.release();
+				} catch( Exception e ) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
 	public static String getStringProperty( FREObject object, String propertyName ) {
 		try {
 			FREObject propertyValue = object.getProperty( propertyName );
@@ -195,7 +257,7 @@ public class FREObjectUtils {
 		try {
 			FREObject propertyValue = object.getProperty( propertyName );
 			if( propertyValue == null ) return null;
-			return getArrayOfString( (FREArray)propertyValue );
+			return getArrayOfString( propertyValue );
 		} catch( FRETypeMismatchException e ) {
 			e.printStackTrace();
 		} catch( FREInvalidObjectException e ) {
@@ -228,4 +290,36 @@ public class FREObjectUtils {
 		return null;
 	}
 
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	/**
+	 * Decodes strings in the packed layout.
+	 * @return Strings, or <code>null</code> if the bytes are truncated or the lengths are not valid.
+	 */
+	private static String[] unpackStrings( byte[] bytes ) {
+		ByteBuffer buffer = ByteBuffer.wrap( bytes );
+		if( buffer.remaining() < 4 ) return null;
+
+		int count = buffer.getInt();
+		/* Each string takes at least four bytes */
+		if( count < 0 || count > buffer.remaining() / 4 ) return null;
+
+		String[] result = new String[count];
+		for( int i = 0; i < count; i++ ) {
+			if( buffer.remaining() < 4 ) return null;
+			int length = buffer.getInt();
+			if( length < 0 ) continue;
+			if( length > buffer.remaining() ) return null;
+			result[i] = new String( bytes, buffer.position(), length, UTF_8 );
+			buffer.position( buffer.position() + length );
+		}
+		return result;
+	}
+
 }
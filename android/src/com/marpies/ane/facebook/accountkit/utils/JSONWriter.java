@@ -0,0 +1,226 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+/**
+ * Streaming JSON writer used to build event payloads without creating intermediate JSON trees.
+ * Writers are pooled per thread, obtain one using <code>obtain()</code> and get the result
+ * (which also returns the writer to the pool) using <code>release()</code>.
+ *
+ * <pre>
+ * String json = JSONWriter.obtain()
+ *     .beginObject()
+ *     .field( "callbackId", 1 )
+ *     .field( "key", "value" )
+ *     .endObject()
+ *     .release();
+ * </pre>
+ */
+public class JSONWriter {
+
+	private static final int INITIAL_CAPACITY = 256;
+	/* Builders that grew above this size are not kept in the pool */
+	private static final int MAX_POOLED_CAPACITY = 16 * 1024;
+
+	private static final ThreadLocal<JSONWriter> mPool = new ThreadLocal<JSONWriter>() {
+		@Override
+		protected JSONWriter initialValue() {
+			return new JSONWriter();
+		}
+	};
+
+	private StringBuilder mBuilder = new StringBuilder( INITIAL_CAPACITY );
+	private boolean mNeedsComma;
+	private boolean mInUse;
+
+	/**
+	 * Returns pooled writer for the current thread, or a new writer if the pooled one is in use.
+	 */
+	public static JSONWriter obtain() {
+		JSONWriter writer = mPool.get();
+		if( writer.mInUse ) {
+			writer = new JSONWriter();
+		}
+		writer.mInUse = true;
+		return writer;
+	}
+
+	private JSONWriter() {
+	}
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	public JSONWriter beginObject() {
+		appendSeparator();
+		mBuilder.append( '{' );
+		mNeedsComma = false;
+		return this;
+	}
+
+	public JSONWriter endObject() {
+		mBuilder.append( '}' );
+		mNeedsComma = true;
+		return this;
+	}
+
+	public JSONWriter beginArray() {
+		appendSeparator();
+		mBuilder.append( '[' );
+		mNeedsComma = false;
+		return this;
+	}
+
+	public JSONWriter endArray() {
+		mBuilder.append( ']' );
+		mNeedsComma = true;
+		return this;
+	}
+
+	/**
+	 * Writes property name, must be followed by a value, object or array.
+	 */
+	public JSONWriter name( String name ) {
+		appendSeparator();
+		appendString( name );
+		mBuilder.append( ':' );
+		mNeedsComma = false;
+		return this;
+	}
+
+	public JSONWriter value( String value ) {
+		appendSeparator();
+		if( value == null ) {
+			mBuilder.append( "null" );
+		} else {
+			appendString( value );
+		}
+		mNeedsComma = true;
+		return this;
+	}
+
+	public JSONWriter value( long value ) {
+		appendSeparator();
+		mBuilder.append( value );
+		mNeedsComma = true;
+		return this;
+	}
+
+	public JSONWriter value( boolean value ) {
+		appendSeparator();
+		mBuilder.append( value );
+		mNeedsComma = true;
+		return this;
+	}
+
+	/**
+	 * Writes string property, the property is omitted if the value is <code>null</code>.
+	 */
+	public JSONWriter field( String name, String value ) {
+		if( value == null ) return this;
+		return name( name ).value( value );
+	}
+
+	public JSONWriter field( String name, long value ) {
+		return name( name ).value( value );
+	}
+
+	public JSONWriter field( String name, boolean value ) {
+		return name( name ).value( value );
+	}
+
+	/**
+	 * Returns the JSON that has been written and returns the writer to the pool.
+	 * The writer must not be used after it is released.
+	 */
+	public String release() {
+		String result = mBuilder.toString();
+		if( mBuilder.capacity() > MAX_POOLED_CAPACITY ) {
+			mBuilder = new StringBuilder( INITIAL_CAPACITY );
+		} else {
+			mBuilder.setLength( 0 );
+		}
+		mNeedsComma = false;
+		mInUse = false;
+		return result;
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private void appendSeparator() {
+		if( mNeedsComma ) {
+			mBuilder.append( ',' );
+			mNeedsComma = false;
+		}
+	}
+
+	private void appendString( String value ) {
+		StringBuilder builder = mBuilder;
+		builder.append( '"' );
+		int length = value.length();
+		for( int i = 0; i < length; i++ ) {
+			char c = value.charAt( i );
+			switch( c ) {
+				case '"':
+					builder.append( "\\\"" );
+					break;
+				case '\\':
+					builder.append( "\\\\" );
+					break;
+				case '\n':
+					builder.append( "\\n" );
+					break;
+				case '\r':
+					builder.append( "\\r" );
+					break;
+				case '\t':
+					builder.append( "\\t" );
+					break;
+				case '\b':
+					builder.append( "\\b" );
+					break;
+				case '\f':
+					builder.append( "\\f" );
+					break;
+				default:
+					if( c < 0x20 || c == 0x2028 || c == 0x2029 ) {
+						builder.append( "\\u" );
+						String hex = Integer.toHexString( c );
+						for( int j = hex.length(); j < 4; j++ ) {
+							builder.append( '0' );
+						}
+						builder.append( hex );
+					} else {
+						builder.append( c );
+					}
+			}
+		}
+		builder.append( '"' );
+	}
+
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import android.util.Log;
+
+/**
+ * Level-gated logger. Messages use <code>{}</code> placeholders that are only formatted
+ * if the level is enabled either for logcat or for the in-memory ring buffer, so disabled
+ * log calls do not build any strings. Recent entries are kept in a fixed-size ring buffer
+ * that can be dumped from AIR.
+ */
+public class Logger {
+
+	public static final int DEBUG = Log.DEBUG;
+	public static final int INFO = Log.INFO;
+	public static final int WARN = Log.WARN;
+	public static final int ERROR = Log.ERROR;
+	public static final int NONE = Integer.MAX_VALUE;
+
+	private static final String TAG = "AccountKit";
+	private static final int DEFAULT_BUFFER_SIZE = 64;
+
+	/* Logcat output is disabled unless logs are enabled in AIR */
+	private static volatile int mLogcatLevel = NONE;
+	private static volatile int mBufferLevel = WARN;
+	/* Lowest of the two levels above */
+	private static volatile int mMinLevel = WARN;
+
+	private static final Object mLock = new Object();
+	private static long[] mBufferTimes = new long[DEFAULT_BUFFER_SIZE];
+	private static int[] mBufferLevels = new int[DEFAULT_BUFFER_SIZE];
+	private static String[] mBufferMessages = new String[DEFAULT_BUFFER_SIZE];
+	private static int mBufferHead;
+	private static int mBufferCount;
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	public static boolean isLoggable( int level ) {
+		return level >= mMinLevel;
+	}
+
+	public static void d( String message ) {
+		log( DEBUG, message, null, null, null, 0 );
+	}
+
+	public static void d( String format, Object arg ) {
+		log( DEBUG, format, arg, null, null, 1 );
+	}
+
+	public static void d( String format, Object arg1, Object arg2 ) {
+		log( DEBUG, format, arg1, arg2, null, 2 );
+	}
+
+	public static void d( String format, Object arg1, Object arg2, Object arg3 ) {
+		log( DEBUG, format, arg1, arg2, arg3, 3 );
+	}
+
+	public static void i( String message ) {
+		log( INFO, message, null, null, null, 0 );
+	}
+
+	public static void i( String format, Object arg ) {
+		log( INFO, format, arg, null, null, 1 );
+	}
+
+	public static void i( String format, Object arg1, Object arg2 ) {
+		log( INFO, format, arg1, arg2, null, 2 );
+	}
+
+	public static void i( String format, Object arg1, Object arg2, Object arg3 ) {
+		log( INFO, format, arg1, arg2, arg3, 3 );
+	}
+
+	public static void w( String message ) {
+		log( WARN, message, null, null, null, 0 );
+	}
+
+	public static void w( String format, Object arg ) {
+		log( WARN, format, arg, null, null, 1 );
+	}
+
+	public static void w( String format, Object arg1, Object arg2 ) {
+		log( WARN, format, arg1, arg2, null, 2 );
+	}
+
+	public static void w( String format, Object arg1, Object arg2, Object arg3 ) {
+		log( WARN, format, arg1, arg2, arg3, 3 );
+	}
+
+	public static void e( String message ) {
+		log( ERROR, message, null, null, null, 0 );
+	}
+
+	public static void e( String format, Object arg ) {
+		log( ERROR, format, arg, null, null, 1 );
+	}
+
+	public static void e( String format, Object arg1, Object arg2 ) {
+		log( ERROR, format, arg1, arg2, null, 2 );
+	}
+
+	public static void e( String format, Object arg1, Object arg2, Object arg3 ) {
+		log( ERROR, format, arg1, arg2, arg3, 3 );
+	}
+
+	/**
+	 * Returns buffered entries, oldest first, one entry per line.
+	 */
+	public static String dump() {
+		synchronized( mLock ) {
+			StringBuilder builder = new StringBuilder( mBufferCount * 64 );
+			int capacity = mBufferMessages.length;
+			int start = (mBufferHead - mBufferCount + capacity) % capacity;
+			for( int i = 0; i < mBufferCount; i++ ) {
+				int index = (start + i) % capacity;
+				builder.append( mBufferTimes[index] )
+						.append( ' ' )
+						.append( getLevelName( mBufferLevels[index] ) )
+						.append( ' ' )
+						.append( mBufferMessages[index] )
+						.append( '\n' );
+			}
+			return builder.toString();
+		}
+	}
+
+	/**
+	 * Sets the lowest level stored in the ring buffer and its size, existing entries are discarded.
+	 * Size of 0 disables the buffer.
+	 */
+	public static void configureBuffer( int level, int size ) {
+		synchronized( mLock ) {
+			size = Math.max( 0, size );
+			mBufferTimes = new long[size];
+			mBufferLevels = new int[size];
+			mBufferMessages = new String[size];
+			mBufferHead = 0;
+			mBufferCount = 0;
+			mBufferLevel = (size > 0) ? level : NONE;
+			updateMinLevel();
+		}
+	}
+
+	public static void setLogcatEnabled( boolean value ) {
+		mLogcatLevel = value ? DEBUG : NONE;
+		updateMinLevel();
+	}
+
+	/**
+	 * Returns level for the given name (debug, info, warn, error or none).
+	 */
+	public static int getLevel( String name ) {
+		if( "debug".equals( name ) ) return DEBUG;
+		if( "info".equals( name ) ) return INFO;
+		if( "warn".equals( name ) ) return WARN;
+		if( "error".equals( name ) ) return ERROR;
+		return NONE;
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private static void log( int level, String format, Object arg1, Object arg2, Object arg3, int numArgs ) {
+		if( level < mMinLevel ) return;
+
+		String message = (numArgs == 0) ? format : format( format, arg1, arg2, arg3, numArgs );
+		if( level >= mLogcatLevel ) {
+			Log.println( level, TAG, message );
+		}
+		if( level >= mBufferLevel ) {
+			synchronized( mLock ) {
+				int capacity = mBufferMessages.length;
+				if( capacity == 0 ) return;
+				mBufferTimes[mBufferHead] = System.currentTimeMillis();
+				mBufferLevels[mBufferHead] = level;
+				mBufferMessages[mBufferHead] = message;
+				mBufferHead = (mBufferHead + 1) % capacity;
+				if( mBufferCount < capacity ) {
+					mBufferCount++;
+				}
+			}
+		}
+	}
+
+	private static String format( String format, Object arg1, Object arg2, Object arg3, int numArgs ) {
+		StringBuilder builder = new StringBuilder( format.length() + 32 );
+		int argIndex = 0;
+		int start = 0;
+		int index;
+		while( argIndex < numArgs && (index = format.indexOf( "{}", start )) >= 0 ) {
+			builder.append( format, start, index );
+			switch( argIndex++ ) {
+				case 0:
+					builder.append( arg1 );
+					break;
+				case 1:
+					builder.append( arg2 );
+					break;
+				default:
+					builder.append( arg3 );
+			}
+			start = index + 2;
+		}
+		builder.append( format, start, format.length() );
+		return builder.toString();
+	}
+
+	private static void updateMinLevel() {
+		mMinLevel = Math.min( mLogcatLevel, mBufferLevel );
+	}
+
+	private static String getLevelName( int level ) {
+		switch( level ) {
+			case DEBUG:
+				return "D";
+			case INFO:
+				return "I";
+			case WARN:
+				return "W";
+			default:
+				return "E";
+		}
+	}
+
+}
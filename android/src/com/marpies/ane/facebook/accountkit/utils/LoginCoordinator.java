@@ -0,0 +1,238 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import com.facebook.accountkit.AccountKitLoginResult;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
+import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Makes sure only one AccountKitActivity is running at a time. Login requests made while
+ * another login is in progress are handled according to the current policy - they either join
+ * the running login and receive its result, wait for it to finish and then launch their own login,
+ * or are rejected with an error.
+ */
+public class LoginCoordinator implements ActivityResultRouter.Listener {
+
+	public enum Policy {
+		JOIN( "join" ),
+		QUEUE( "queue" ),
+		REJECT( "reject" );
+
+		private final String mName;
+
+		Policy( String name ) {
+			mName = name;
+		}
+
+		public String getName() {
+			return mName;
+		}
+
+		public static Policy fromName( String name ) {
+			for( Policy policy : values() ) {
+				if( policy.mName.equals( name ) ) return policy;
+			}
+			return JOIN;
+		}
+	}
+
+	public static final String TRACE_OPERATION = "login";
+
+	private static final int AK_APP_REQUEST_CODE = 4871;
+
+	private final Handler mHandler = new Handler( Looper.getMainLooper() );
+
+	private Policy mPolicy = Policy.JOIN;
+	/* Callback ids waiting for the result of the running login, empty if no login is running */
+	private final List<Integer> mActiveCallbacks = new ArrayList<Integer>();
+	private final LinkedList<LoginRequest> mQueue = new LinkedList<LoginRequest>();
+
+	private long mNumLaunched;
+	private long mNumJoined;
+	private long mNumQueued;
+	private long mNumRejected;
+
+	private final AccountKitExtensionContext mContext;
+
+	public LoginCoordinator( AccountKitExtensionContext context ) {
+		mContext = context;
+	}
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	public void setPolicy( Policy policy ) {
+		Logger.i( "LoginCoordinator::setPolicy {}", policy.getName() );
+		mPolicy = policy;
+	}
+
+	/**
+	 * Launches AccountKitActivity with the given intent, unless login is already running.
+	 */
+	public void login( int callbackId, Intent intent ) {
+		if( mActiveCallbacks.isEmpty() ) {
+			launch( callbackId, intent );
+			return;
+		}
+
+		switch( mPolicy ) {
+			case JOIN:
+				Logger.d( "LoginCoordinator | request {} joins running login", callbackId );
+				mNumJoined++;
+				mActiveCallbacks.add( callbackId );
+				return;
+			case QUEUE:
+				Logger.d( "LoginCoordinator | request {} waits for running login", callbackId );
+				mNumQueued++;
+				mQueue.add( new LoginRequest( callbackId, intent ) );
+				return;
+			case REJECT:
+				Logger.w( "LoginCoordinator | request {} rejected, login is already in progress", callbackId );
+				mNumRejected++;
+				mContext.dispatchEventImmediately( AccountKitEvent.LOGIN_ERROR, StringUtils.getEventErrorJSON( callbackId, "Login is already in progress." ) );
+				Tracer.getInstance().end( TRACE_OPERATION, callbackId );
+		}
+	}
+
+	@Override
+	public void onActivityResult( int resultCode, Intent data ) {
+		mContext.getActivityResultRouter().unregister( AK_APP_REQUEST_CODE, this );
+		/* Activity finished without setting a result, treated as cancelled login */
+		AccountKitLoginResult loginResult = (data != null) ? (AccountKitLoginResult) data.getParcelableExtra( AccountKitLoginResult.RESULT_KEY ) : null;
+		for( int callbackId : mActiveCallbacks ) {
+			Tracer.getInstance().phase( TRACE_OPERATION, callbackId, Tracer.ACTIVITY_RESULT );
+			dispatchResult( callbackId, loginResult );
+			Tracer.getInstance().end( TRACE_OPERATION, callbackId );
+		}
+		mActiveCallbacks.clear();
+
+		/* Launch the next login once the activity has finished */
+		if( !mQueue.isEmpty() ) {
+			mHandler.post( new Runnable() {
+				@Override
+				public void run() {
+					if( !mActiveCallbacks.isEmpty() || mQueue.isEmpty() ) return;
+
+					LoginRequest request = mQueue.removeFirst();
+					launch( request.callbackId, request.intent );
+				}
+			} );
+		}
+	}
+
+	/**
+	 * Answers queued logins with an error. The running login is kept, its result is dispatched
+	 * once the activity finishes and held until the next extension context is created.
+	 */
+	public void onContextDisposed() {
+		for( LoginRequest request : mQueue ) {
+			Logger.w( "LoginCoordinator | queued request {} dropped, context was disposed", request.callbackId );
+			mContext.dispatchEventImmediately( AccountKitEvent.LOGIN_ERROR, StringUtils.getEventErrorJSON( request.callbackId, "Extension context was disposed." ) );
+			Tracer.getInstance().end( TRACE_OPERATION, request.callbackId );
+		}
+		mQueue.clear();
+	}
+
+	public void writeStats( JSONWriter writer ) {
+		writer.beginObject()
+				.field( "policy", mPolicy.getName() )
+				.field( "waiting", mActiveCallbacks.size() )
+				.field( "queued", mQueue.size() )
+				.field( "launched", mNumLaunched )
+				.field( "joined", mNumJoined )
+				.field( "queuedTotal", mNumQueued )
+				.field( "rejected", mNumRejected )
+				.endObject();
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private void launch( int callbackId, Intent intent ) {
+		mNumLaunched++;
+		mActiveCallbacks.add( callbackId );
+		mContext.getActivityResultRouter().register( AK_APP_REQUEST_CODE, this );
+
+		Logger.d( "Starting AccountKitActivity" );
+		mContext.getActivity().startActivityForResult( intent, AK_APP_REQUEST_CODE );
+		Tracer.getInstance().phase( TRACE_OPERATION, callbackId, Tracer.ACTIVITY_STARTED );
+	}
+
+	private void dispatchResult( int callbackId, AccountKitLoginResult loginResult ) {
+		/* Error logging in */
+		if( loginResult != null && loginResult.getError() != null ) {
+			Logger.w( "AccountKit | login error: {}", loginResult.getError().getErrorType().getMessage() );
+			mContext.dispatchEventImmediately( AccountKitEvent.LOGIN_ERROR, StringUtils.getEventErrorJSON( callbackId, loginResult.getError().getErrorType().getMessage() ) );
+		}
+		/* Login cancelled */
+		else if( loginResult == null || loginResult.wasCancelled() ) {
+			Logger.d( "AccountKit | login cancelled" );
+			mContext.dispatchEventImmediately( AccountKitEvent.LOGIN_CANCEL, String.valueOf( callbackId ) );
+		}
+		/* Login success */
+		else {
+			Logger.d( "AccountKit | final auth state: {}", loginResult.getFinalAuthorizationState() );
+			JSONWriter response = JSONWriter.obtain().beginObject();
+			if( loginResult.getAccessToken() != null ) {
+				response.field( "accessToken", AccessTokenSnapshot.getInstance().getJSON( loginResult.getAccessToken() ) );
+				Logger.d( "AccountKit | login got access token: {}", loginResult.getAccessToken().getAccountId() );
+				// access token is accessible using AccountKit.getCurrentAccessToken(), no need to store it manually
+			} else if( loginResult.getAuthorizationCode() != null ) {
+				response.field( "authCode", loginResult.getAuthorizationCode() );
+				Logger.d( "AccountKit | login got auth code: {}", loginResult.getAuthorizationCode() );
+			}
+
+			Logger.d( "AccountKit | success logging in" );
+			/* Dispatch response */
+			String authState = (loginResult.getFinalAuthorizationState() == null) ? "" : loginResult.getFinalAuthorizationState();
+			response.field( "authState", authState );
+			response.field( "callbackId", callbackId );
+			String json = response.endObject().release();
+			Tracer.getInstance().phase( TRACE_OPERATION, callbackId, Tracer.SERIALIZED );
+			mContext.dispatchEventImmediately( AccountKitEvent.LOGIN_SUCCESS, json );
+		}
+	}
+
+	private static class LoginRequest {
+		final int callbackId;
+		final Intent intent;
+
+		LoginRequest( int callbackId, Intent intent ) {
+			this.callbackId = callbackId;
+			this.intent = intent;
+		}
+	}
+
+}
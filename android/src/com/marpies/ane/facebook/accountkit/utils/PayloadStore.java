@@ -0,0 +1,266 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds event payloads until they are retrieved by the AS side using their handle.
+ * Status events with a message longer than the threshold are stored here as UTF-8 bytes and
+ * dispatched as a small event carrying the handle, the original event name and the payload size.
+ * Payloads that are not claimed within the timeout are evicted, and the oldest payloads are evicted
+ * when the total size exceeds the memory budget.
+ */
+public class PayloadStore {
+
+	public static final int DEFAULT_THRESHOLD = 16 * 1024;
+	public static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+	public static final long DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+
+	/* Insertion order, the first entry is the oldest payload */
+	private final Map<Integer, Entry> mPayloads = new LinkedHashMap<Integer, Entry>();
+	private final Runnable mEvictRunnable = new Runnable() {
+		@Override
+		public void run() {
+			onEvictTimer();
+		}
+	};
+	private Handler mHandler;
+	private boolean mIsEvictScheduled;
+	private int mHandleCounter;
+	private long mNumBytes;
+
+	private int mThreshold = DEFAULT_THRESHOLD;
+	private long mTimeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+	private long mMaxBytes = DEFAULT_MAX_BYTES;
+
+	/* Stats */
+	private long mNumLargeEvents;
+	private long mNumStored;
+	private long mNumClaimed;
+	private long mNumChunks;
+	private long mNumExpired;
+	private long mNumOverBudget;
+
+	public PayloadStore() {
+	}
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	/**
+	 * @param threshold Length of event message above which the message is stored here, zero or less disables it.
+	 * @param timeoutMillis Time after which unclaimed payloads are evicted.
+	 * @param maxBytes Total size of stored payloads, oldest payloads are evicted once it is exceeded.
+	 */
+	public synchronized void configure( int threshold, long timeoutMillis, long maxBytes ) {
+		mThreshold = threshold;
+		mTimeoutMillis = Math.max( 1, timeoutMillis );
+		mMaxBytes = Math.max( 0, maxBytes );
+		evict( SystemClock.elapsedRealtime() );
+		Logger.i( "PayloadStore::configure threshold: {} timeout: {}ms budget: {}", threshold, timeoutMillis, maxBytes );
+	}
+
+	/**
+	 * Stores event message if it is longer than the threshold.
+	 * @return Message of the event that replaces the original one, or <code>null</code> if the message is small enough to be dispatched.
+	 */
+	public String putEvent( String eventName, String message ) {
+		synchronized( this ) {
+			if( mThreshold <= 0 || message.length() <= mThreshold ) return null;
+		}
+		byte[] payload;
+		try {
+			payload = message.getBytes( "UTF-8" );
+		} catch( UnsupportedEncodingException e ) {
+			return null;
+		}
+		int handle;
+		synchronized( this ) {
+			mNumLargeEvents++;
+			handle = put( payload );
+		}
+		return JSONWriter.obtain().beginObject()
+				.field( "event", eventName )
+				.field( "handle", handle )
+				.field( "size", payload.length )
+				.endObject()
+				.release();
+	}
+
+	/**
+	 * Reverts <code>putEvent</code>, removes the stored message of the event.
+	 * @param payloadMessage Message returned by <code>putEvent</code>.
+	 * @return Original event name and message, or <code>null</code> if the payload no longer exists.
+	 */
+	public String[] takeEvent( String payloadMessage ) {
+		try {
+			JSONObject json = new JSONObject( payloadMessage );
+			byte[] payload = take( json.getInt( "handle" ) );
+			if( payload == null ) return null;
+
+			return new String[]{ json.getString( "event" ), new String( payload, "UTF-8" ) };
+		} catch( JSONException e ) {
+			return null;
+		} catch( UnsupportedEncodingException e ) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the payload and returns handle that can be used to retrieve it.
+	 */
+	public synchronized int put( byte[] payload ) {
+		int handle = ++mHandleCounter;
+		long now = SystemClock.elapsedRealtime();
+		mPayloads.put( handle, new Entry( payload, now ) );
+		mNumBytes += payload.length;
+		mNumStored++;
+		evict( now );
+		return handle;
+	}
+
+	/**
+	 * Removes and returns the payload with the given handle, or <code>null</code> if no such payload exists.
+	 */
+	public synchronized byte[] take( int handle ) {
+		Entry entry = mPayloads.remove( handle );
+		if( entry == null ) return null;
+
+		mNumBytes -= entry.payload.length;
+		mNumClaimed++;
+		return entry.payload;
+	}
+
+	/**
+	 * Returns part of the payload with the given handle, the payload is removed once its last byte is read.
+	 * @return Bytes of the payload starting at the offset, or <code>null</code> if no such payload exists.
+	 */
+	public synchronized byte[] read( int handle, int offset, int length ) {
+		Entry entry = mPayloads.get( handle );
+		if( entry == null ) return null;
+
+		byte[] payload = entry.payload;
+		offset = Math.max( 0, Math.min( offset, payload.length ) );
+		length = Math.max( 0, Math.min( length, payload.length - offset ) );
+		byte[] chunk = new byte[length];
+		System.arraycopy( payload, offset, chunk, 0, length );
+		mNumChunks++;
+		if( offset + length >= payload.length ) {
+			take( handle );
+		}
+		return chunk;
+	}
+
+	public synchronized void clear() {
+		mPayloads.clear();
+		mNumBytes = 0;
+	}
+
+	public synchronized void writeStats( JSONWriter writer ) {
+		writer.beginObject()
+				.field( "threshold", mThreshold )
+				.field( "payloads", mPayloads.size() )
+				.field( "bytes", mNumBytes )
+				.field( "largeEvents", mNumLargeEvents )
+				.field( "stored", mNumStored )
+				.field( "claimed", mNumClaimed )
+				.field( "chunks", mNumChunks )
+				.field( "expired", mNumExpired )
+				.field( "overBudget", mNumOverBudget )
+				.endObject();
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private synchronized void onEvictTimer() {
+		mIsEvictScheduled = false;
+		evict( SystemClock.elapsedRealtime() );
+	}
+
+	/**
+	 * Evicts expired payloads and the oldest payloads over the memory budget,
+	 * the newest payload is kept even if it exceeds the budget alone.
+	 */
+	private void evict( long now ) {
+		Iterator<Map.Entry<Integer, Entry>> it = mPayloads.entrySet().iterator();
+		while( it.hasNext() ) {
+			Map.Entry<Integer, Entry> oldest = it.next();
+			Entry entry = oldest.getValue();
+			boolean isExpired = (now - entry.timestamp) >= mTimeoutMillis;
+			boolean isOverBudget = (mNumBytes > mMaxBytes) && (mPayloads.size() > 1);
+			if( !isExpired && !isOverBudget ) {
+				scheduleEvict( entry.timestamp + mTimeoutMillis - now );
+				return;
+			}
+
+			it.remove();
+			mNumBytes -= entry.payload.length;
+			if( isExpired ) {
+				mNumExpired++;
+			} else {
+				mNumOverBudget++;
+			}
+			Logger.w( "AccountKit | evicted {} event payload with handle {}", isExpired ? "unclaimed" : "over budget", oldest.getKey() );
+		}
+	}
+
+	private void scheduleEvict( long delayMillis ) {
+		if( mIsEvictScheduled ) return;
+
+		mIsEvictScheduled = true;
+		getHandler().postDelayed( mEvictRunnable, delayMillis );
+	}
+
+	private Handler getHandler() {
+		if( mHandler == null ) {
+			mHandler = new Handler( Looper.getMainLooper() );
+		}
+		return mHandler;
+	}
+
+	private static class Entry {
+		final byte[] payload;
+		final long timestamp;
+
+		Entry( byte[] payload, long timestamp ) {
+			this.payload = payload;
+			this.timestamp = timestamp;
+		}
+	}
+
+}
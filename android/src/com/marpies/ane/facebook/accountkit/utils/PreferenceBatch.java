@@ -0,0 +1,193 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import android.support.annotation.Nullable;
+import com.facebook.accountkit.AccountKit;
+import com.facebook.accountkit.AccountKitError;
+import com.facebook.accountkit.AccountPreferences;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
+import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
+
+/**
+ * Runs multiple set or delete preference requests with bounded concurrency
+ * and dispatches single event with the result for each key once all of them complete.
+ */
+public class PreferenceBatch {
+
+	private static final int MAX_CONCURRENT_REQUESTS = 4;
+
+	private final AccountKitExtensionContext mContext;
+	private final boolean mIsDelete;
+	private final int mCallbackId;
+	private final String[] mKeys;
+	private final String[] mValues;
+	private final String[] mErrors;
+
+	private int mNextIndex;
+	private int mNumCompleted;
+	private long mTicket;
+	private boolean mIsAborted;
+
+	public static PreferenceBatch set( AccountKitExtensionContext context, String[] keys, String[] values, int callbackId ) {
+		return new PreferenceBatch( context, false, keys, values, callbackId );
+	}
+
+	public static PreferenceBatch delete( AccountKitExtensionContext context, String[] keys, int callbackId ) {
+		return new PreferenceBatch( context, true, keys, null, callbackId );
+	}
+
+	private PreferenceBatch( AccountKitExtensionContext context, boolean isDelete, String[] keys, String[] values, int callbackId ) {
+		mContext = context;
+		mIsDelete = isDelete;
+		mKeys = keys;
+		mValues = values;
+		mCallbackId = callbackId;
+		mErrors = new String[keys.length];
+	}
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	public void start() {
+		Logger.d( "PreferenceBatch::start {} {} preference(s)", mIsDelete ? "delete" : "set", mKeys.length );
+		if( mKeys.length == 0 ) {
+			dispatchResult();
+			return;
+		}
+		/* Accept the writes locally, they are sent to the server in the background */
+		if( PreferenceWriteQueue.getInstance().isEnabled() ) {
+			for( int i = 0; i < mKeys.length; i++ ) {
+				if( mIsDelete ) {
+					mErrors[i] = PreferenceWriteQueue.getInstance().delete( mKeys[i] );
+				} else {
+					mErrors[i] = PreferenceWriteQueue.getInstance().set( mKeys[i], mValues[i] );
+				}
+			}
+			dispatchResult();
+			return;
+		}
+		/* Remaining keys are not sent if the batch times out or is cancelled */
+		mTicket = mContext.getRequestRegistry().register( getOperation(), mCallbackId, new Runnable() {
+			@Override
+			public void run() {
+				synchronized( PreferenceBatch.this ) {
+					mIsAborted = true;
+				}
+			}
+		} );
+		Tracer.getInstance().phase( getOperation(), mCallbackId, Tracer.SDK_CALLED );
+		int initialRequests = Math.min( MAX_CONCURRENT_REQUESTS, mKeys.length );
+		for( int i = 0; i < initialRequests; i++ ) {
+			executeNext();
+		}
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private void executeNext() {
+		final int index;
+		synchronized( this ) {
+			if( mIsAborted || mNextIndex >= mKeys.length ) return;
+			index = mNextIndex++;
+		}
+		if( mIsDelete ) {
+			AccountKit.getAccountPreferences().deletePreference( mKeys[index], new AccountPreferences.OnDeletePreferenceListener() {
+				@Override
+				public void onDeletePreference( String key, @Nullable AccountKitError accountKitError ) {
+					if( accountKitError == null ) {
+						PreferenceCache.getInstance().remove( key );
+						PreferenceSnapshot.getInstance().remove( key );
+					}
+					onRequestComplete( index, accountKitError );
+				}
+			} );
+		} else {
+			AccountKit.getAccountPreferences().setPreference( mKeys[index], mValues[index], new AccountPreferences.OnSetPreferenceListener() {
+				@Override
+				public void onSetPreference( String key, String value, @Nullable AccountKitError accountKitError ) {
+					if( accountKitError == null ) {
+						PreferenceCache.getInstance().put( key, value );
+						PreferenceSnapshot.getInstance().put( key, value );
+					}
+					onRequestComplete( index, accountKitError );
+				}
+			} );
+		}
+	}
+
+	private void onRequestComplete( int index, AccountKitError error ) {
+		Tracer.getInstance().phase( getOperation(), mCallbackId, Tracer.SDK_CALLBACK );
+		boolean isFinished;
+		synchronized( this ) {
+			if( error != null ) {
+				mErrors[index] = error.getErrorType().getMessage();
+			}
+			isFinished = ++mNumCompleted == mKeys.length;
+		}
+		if( isFinished ) {
+			if( mContext.getRequestRegistry().complete( mTicket ) ) {
+				dispatchResult();
+			}
+		} else {
+			executeNext();
+		}
+	}
+
+	private void dispatchResult() {
+		SerializationQueue.getInstance().execute( mCallbackId, new Runnable() {
+			@Override
+			public void run() {
+				Logger.d( "PreferenceBatch::finished {} {} preference(s)", mIsDelete ? "delete" : "set", mKeys.length );
+				JSONWriter response = JSONWriter.obtain()
+						.beginObject()
+						.field( "callbackId", mCallbackId )
+						.name( "results" )
+						.beginArray();
+				for( int i = 0; i < mKeys.length; i++ ) {
+					response.beginObject().field( "key", mKeys[i] );
+					if( mErrors[i] != null ) {
+						response.field( "errorMessage", mErrors[i] );
+					} else if( !mIsDelete ) {
+						response.field( "value", mValues[i] );
+					}
+					response.endObject();
+				}
+				String json = response.endArray().endObject().release();
+				Tracer.getInstance().phase( getOperation(), mCallbackId, Tracer.SERIALIZED );
+				mContext.dispatchEvent( getOperation(), json );
+				Tracer.getInstance().end( getOperation(), mCallbackId );
+			}
+		} );
+	}
+
+	private String getOperation() {
+		return mIsDelete ? AccountKitEvent.DELETE_PREFERENCES : AccountKitEvent.SET_PREFERENCES;
+	}
+
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import android.os.SystemClock;
+import com.facebook.accountkit.AccessToken;
+import com.facebook.accountkit.AccountKit;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Write-through, size-bounded cache of account preferences.
+ * Entries are evicted in LRU order and expire after the configured TTL.
+ * The cache is bound to the account that is currently logged in.
+ */
+public class PreferenceCache {
+
+	private static final int DEFAULT_MAX_ENTRIES = 100;
+	private static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000;
+
+	private static PreferenceCache mInstance = new PreferenceCache();
+
+	private final LinkedHashMap<String, Entry> mEntries;
+	private int mMaxEntries = DEFAULT_MAX_ENTRIES;
+	private long mTTLMillis = DEFAULT_TTL_MILLIS;
+	private String mAccountId;
+	/* Time when all preferences were loaded, or -1 if the cache holds a partial set */
+	private long mCompleteTimestamp = -1;
+
+	public static PreferenceCache getInstance() {
+		return mInstance;
+	}
+
+	private PreferenceCache() {
+		mEntries = new LinkedHashMap<String, Entry>( 16, 0.75f, true ) {
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<String, Entry> eldest ) {
+				if( size() > mMaxEntries ) {
+					/* Evicted entry means we no longer have the complete set */
+					mCompleteTimestamp = -1;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	/**
+	 * @param maxEntries Maximum number of preferences to keep in memory.
+	 * @param ttlMillis Time after which an entry is considered expired, zero disables the cache.
+	 */
+	public synchronized void configure( int maxEntries, long ttlMillis ) {
+		mMaxEntries = Math.max( 1, maxEntries );
+		mTTLMillis = Math.max( 0, ttlMillis );
+		Logger.i( "PreferenceCache::configure maxEntries: {} ttl: {}ms", mMaxEntries, mTTLMillis );
+		clear();
+	}
+
+	/**
+	 * Returns cached value for the given key, or <code>null</code> if it is not cached or has expired.
+	 */
+	public synchronized String get( String key ) {
+		if( !isEnabled() || !validateAccount() ) return null;
+
+		Entry entry = mEntries.get( key );
+		if( entry == null ) return null;
+		if( isExpired( entry.timestamp ) ) {
+			mEntries.remove( key );
+			return null;
+		}
+		return entry.value;
+	}
+
+	/**
+	 * Returns copy of all preferences, or <code>null</code> if the complete set is not cached or has expired.
+	 */
+	public synchronized Map<String, String> getAll() {
+		if( !isEnabled() || !validateAccount() ) return null;
+		if( mCompleteTimestamp < 0 || isExpired( mCompleteTimestamp ) ) return null;
+
+		Map<String, String> result = new HashMap<String, String>( mEntries.size() );
+		Iterator<Map.Entry<String, Entry>> it = mEntries.entrySet().iterator();
+		while( it.hasNext() ) {
+			Map.Entry<String, Entry> entry = it.next();
+			result.put( entry.getKey(), entry.getValue().value );
+		}
+		return result;
+	}
+
+	public synchronized void put( String key, String value ) {
+		if( !isEnabled() || !validateAccount() || key == null ) return;
+
+		if( value == null ) {
+			mEntries.remove( key );
+		} else {
+			mEntries.put( key, new Entry( value, SystemClock.elapsedRealtime() ) );
+		}
+	}
+
+	/**
+	 * Replaces the cached preferences with the complete set loaded from the server.
+	 */
+	public synchronized void putAll( Map<String, String> preferences ) {
+		if( !isEnabled() || !validateAccount() || preferences == null ) return;
+
+		mEntries.clear();
+		long now = SystemClock.elapsedRealtime();
+		mCompleteTimestamp = now;
+		for( Map.Entry<String, String> preference : preferences.entrySet() ) {
+			if( preference.getValue() != null ) {
+				mEntries.put( preference.getKey(), new Entry( preference.getValue(), now ) );
+			}
+		}
+	}
+
+	public synchronized void remove( String key ) {
+		if( !isEnabled() || !validateAccount() || key == null ) return;
+
+		mEntries.remove( key );
+	}
+
+	public synchronized void clear() {
+		mEntries.clear();
+		mCompleteTimestamp = -1;
+		mAccountId = null;
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private boolean isEnabled() {
+		return mTTLMillis > 0;
+	}
+
+	private boolean isExpired( long timestamp ) {
+		return (SystemClock.elapsedRealtime() - timestamp) > mTTLMillis;
+	}
+
+	/**
+	 * Makes sure cached entries belong to the account that is currently logged in.
+	 * @return <code>false</code> if there is no logged in account.
+	 */
+	private boolean validateAccount() {
+		AccessToken token = AccountKit.getCurrentAccessToken();
+		String accountId = (token != null) ? token.getAccountId() : null;
+		if( accountId == null ) {
+			clear();
+			return false;
+		}
+		if( !accountId.equals( mAccountId ) ) {
+			clear();
+			mAccountId = accountId;
+		}
+		return true;
+	}
+
+	private static class Entry {
+		final String value;
+		final long timestamp;
+
+		Entry( String value, long timestamp ) {
+			this.value = value;
+			this.timestamp = timestamp;
+		}
+	}
+
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the last preferences delivered to AS for each account, so that repeated loads can send
+ * only the keys that were added, changed or removed since then. Every delivered set of preferences
+ * has a version, AS passes the version of its copy with the request. If the version does not match
+ * the last delivered one (e.g. AS has no copy, or results were delivered out of order), the full set
+ * is sent instead. Versions are unique within the process, so versions of different accounts never match.
+ */
+public class PreferenceDeltaTracker {
+
+	public static final int NO_VERSION = -1;
+
+	/**
+	 * Preferences to deliver. Full result if <code>baseVersion</code> is <code>NO_VERSION</code>,
+	 * otherwise changes to the preferences delivered with <code>baseVersion</code>.
+	 */
+	public static class Delta {
+		public final int version;
+		public final int baseVersion;
+		/* Added and changed preferences, or all preferences of a full result */
+		public final Map<String, String> changed;
+		public final List<String> removed;
+
+		Delta( int version, int baseVersion, Map<String, String> changed, List<String> removed ) {
+			this.version = version;
+			this.baseVersion = baseVersion;
+			this.changed = changed;
+			this.removed = removed;
+		}
+
+		public boolean isFull() {
+			return baseVersion == NO_VERSION;
+		}
+	}
+
+	private static class Delivered {
+		final int version;
+		final Map<String, String> preferences;
+
+		Delivered( int version, Map<String, String> preferences ) {
+			this.version = version;
+			this.preferences = preferences;
+		}
+	}
+
+	/* Shared by the trackers of all extension contexts */
+	private static final AtomicInteger mVersionCounter = new AtomicInteger();
+
+	private final Map<String, Delivered> mDelivered = new HashMap<String, Delivered>();
+	private boolean mEnabled;
+
+	private long mNumFull;
+	private long mNumDeltas;
+	private long mNumKeysSent;
+	private long mNumKeysSkipped;
+
+	public PreferenceDeltaTracker() { }
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	public synchronized void setEnabled( boolean enabled ) {
+		mEnabled = enabled;
+		if( !enabled ) {
+			mDelivered.clear();
+		}
+		Logger.i( "PreferenceDeltaTracker::setEnabled {}", enabled );
+	}
+
+	public synchronized boolean isEnabled() {
+		return mEnabled;
+	}
+
+	/**
+	 * Records the preferences as delivered to AS and returns what needs to be sent.
+	 *
+	 * @param baseVersion Version of the preferences AS already has, or <code>NO_VERSION</code>.
+	 */
+	public synchronized Delta update( String accountId, int baseVersion, Map<String, String> preferences ) {
+		Delivered last = mDelivered.get( accountId );
+		if( last == null || last.version != baseVersion ) {
+			/* Keep the version if nothing changed, AS copies of that version stay valid */
+			int version = (last != null && last.preferences.equals( preferences )) ? last.version : mVersionCounter.incrementAndGet();
+			Map<String, String> copy = new HashMap<String, String>( preferences );
+			mDelivered.put( accountId, new Delivered( version, copy ) );
+			mNumFull++;
+			mNumKeysSent += copy.size();
+			return new Delta( version, NO_VERSION, copy, Collections.<String>emptyList() );
+		}
+
+		Map<String, String> changed = new LinkedHashMap<String, String>();
+		for( Map.Entry<String, String> preference : preferences.entrySet() ) {
+			String key = preference.getKey();
+			String value = preference.getValue();
+			if( !last.preferences.containsKey( key ) || !isEqual( value, last.preferences.get( key ) ) ) {
+				changed.put( key, value );
+			}
+		}
+		List<String> removed = new ArrayList<String>();
+		for( String key : last.preferences.keySet() ) {
+			if( !preferences.containsKey( key ) ) {
+				removed.add( key );
+			}
+		}
+
+		int version = last.version;
+		if( !changed.isEmpty() || !removed.isEmpty() ) {
+			version = mVersionCounter.incrementAndGet();
+			mDelivered.put( accountId, new Delivered( version, new HashMap<String, String>( preferences ) ) );
+		}
+		mNumDeltas++;
+		mNumKeysSent += changed.size() + removed.size();
+		mNumKeysSkipped += preferences.size() - changed.size();
+		return new Delta( version, baseVersion, changed, removed );
+	}
+
+	/**
+	 * Forgets the delivered preferences of all accounts, next loads send the full preferences.
+	 */
+	public synchronized void clear() {
+		mDelivered.clear();
+	}
+
+	public synchronized void writeStats( JSONWriter writer ) {
+		writer.beginObject()
+				.field( "enabled", mEnabled )
+				.field( "accounts", mDelivered.size() )
+				.field( "full", mNumFull )
+				.field( "deltas", mNumDeltas )
+				.field( "keysSent", mNumKeysSent )
+				.field( "keysSkipped", mNumKeysSkipped )
+				.endObject();
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private static boolean isEqual( String value, String otherValue ) {
+		return (value != null) ? value.equals( otherValue ) : (otherValue == null);
+	}
+
+}
@@ -0,0 +1,512 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import com.facebook.accountkit.AccessToken;
+import com.facebook.accountkit.AccountKit;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+/**
+ * Last known preferences of each account persisted in an append-only log in the app's files directory,
+ * so that preferences can be returned (as stale values) before the server responds, e.g. after a restart.
+ *
+ * Each record is written as int32 payload length, int32 CRC32 of the payload and the payload itself:
+ *   int8 type, string key, string value (set only)
+ * Strings are written as int32 byte length followed by UTF-8 bytes. A torn or corrupted record
+ * at the end of the log (e.g. after a crash) is truncated when the log is read. The log is read on the writer
+ * thread as soon as the snapshot is enabled or the access token changes, until it is loaded the snapshot
+ * is treated as missing and changes are applied once it loads. Once the log
+ * grows well beyond the number of live entries it is compacted into a temporary file that
+ * replaces the log using an atomic rename.
+ */
+public class PreferenceSnapshot {
+
+	static final String DIRECTORY_NAME = "accountkit-preferences";
+	private static final String LOG_EXTENSION = ".log";
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	private static final byte RECORD_SET = 1;
+	private static final byte RECORD_DELETE = 2;
+	/* Marks that the entries above are the complete set of preferences */
+	private static final byte RECORD_COMPLETE = 3;
+
+	private static final int COMPACTION_MIN_RECORDS = 64;
+	private static final int MAX_RECORD_LENGTH = 1024 * 1024;
+
+	private final ExecutorService mWriter;
+
+	private File mDirectory;
+	private String mAccountId;
+	private final Map<String, String> mEntries = new LinkedHashMap<String, String>();
+	private boolean mComplete;
+	private int mNumRecords;
+	private boolean mIsLoaded;
+	/* Incremented when the account changes, results of previous loads are ignored */
+	private int mLoadId;
+	/* Changes made while the log is loading as pairs of key and value (null for remove) */
+	private final List<String[]> mDeferredChanges = new ArrayList<String[]>();
+
+	/* Accessed on the writer thread only */
+	private File mOpenFile;
+	private FileOutputStream mOpenStream;
+
+	private static PreferenceSnapshot mInstance = new PreferenceSnapshot();
+
+	public static PreferenceSnapshot getInstance() {
+		return mInstance;
+	}
+
+	private PreferenceSnapshot() {
+		mWriter = Executors.newSingleThreadExecutor( new ThreadFactory() {
+			@Override
+			public Thread newThread( Runnable runnable ) {
+				Thread thread = new Thread( runnable, "AccountKit-snapshot" );
+				thread.setDaemon( true );
+				return thread;
+			}
+		} );
+	}
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	/**
+	 * @param filesDirectory App's files directory, or <code>null</code> to disable the snapshot.
+	 */
+	public synchronized void setEnabled( File filesDirectory ) {
+		mDirectory = (filesDirectory != null) ? new File( filesDirectory, DIRECTORY_NAME ) : null;
+		resetAccount( null );
+		Logger.i( "PreferenceSnapshot::setEnabled {}", mDirectory != null );
+		/* Loading starts now so that the first read can answer from the snapshot */
+		validateAccount();
+	}
+
+	/**
+	 * Starts loading the snapshot of the currently logged in account, unless it is loaded or loading already.
+	 */
+	public synchronized void preload() {
+		validateAccount();
+	}
+
+	public synchronized boolean isEnabled() {
+		return mDirectory != null;
+	}
+
+	/**
+	 * Returns last known value of the given preference, or <code>null</code> if it is not known
+	 * or the snapshot has not been loaded yet.
+	 */
+	public synchronized String get( String key ) {
+		if( !validateAccount() || !mIsLoaded ) return null;
+		return mEntries.get( key );
+	}
+
+	/**
+	 * Returns last known complete set of preferences, or <code>null</code> if it is not known
+	 * or the snapshot has not been loaded yet.
+	 */
+	public synchronized Map<String, String> getAll() {
+		if( !validateAccount() || !mIsLoaded || !mComplete ) return null;
+		return new HashMap<String, String>( mEntries );
+	}
+
+	public synchronized void put( String key, String value ) {
+		if( !validateAccount() || key == null ) return;
+		if( value == null ) {
+			remove( key );
+			return;
+		}
+		if( mIsLoaded ) {
+			applyChange( key, value );
+		} else {
+			mDeferredChanges.add( new String[]{ key, value } );
+		}
+	}
+
+	public synchronized void remove( String key ) {
+		if( !validateAccount() || key == null ) return;
+		if( mIsLoaded ) {
+			applyChange( key, null );
+		} else {
+			mDeferredChanges.add( new String[]{ key, null } );
+		}
+	}
+
+	/**
+	 * Replaces the snapshot with the complete set of preferences.
+	 */
+	public synchronized void putAll( Map<String, String> preferences ) {
+		if( !validateAccount() || preferences == null ) return;
+		if( mIsLoaded && mComplete && mEntries.equals( preferences ) ) return;
+
+		/* Complete set replaces the log that is loading, if any */
+		mIsLoaded = true;
+		mDeferredChanges.clear();
+		mEntries.clear();
+		mEntries.putAll( preferences );
+		mComplete = true;
+		compact();
+	}
+
+	/**
+	 * Deletes the snapshot of the current account.
+	 */
+	public synchronized void clear() {
+		if( !validateAccount() ) return;
+
+		final File file = getLogFile( mAccountId );
+		resetAccount( null );
+		mWriter.execute( new Runnable() {
+			@Override
+			public void run() {
+				closeStream();
+				if( file.exists() && !file.delete() ) {
+					Logger.w( "PreferenceSnapshot | failed to delete {}", file.getName() );
+				}
+			}
+		} );
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	/**
+	 * Makes sure the snapshot of the currently logged in account is loaded or loading.
+	 */
+	private boolean validateAccount() {
+		if( mDirectory == null ) return false;
+
+		AccessToken token = AccountKit.getCurrentAccessToken();
+		String accountId = (token != null) ? token.getAccountId() : null;
+		if( accountId == null ) return false;
+		if( accountId.equals( mAccountId ) ) return true;
+
+		resetAccount( accountId );
+		load( getLogFile( accountId ), mLoadId );
+		return true;
+	}
+
+	private void resetAccount( String accountId ) {
+		mAccountId = accountId;
+		mEntries.clear();
+		mComplete = false;
+		mNumRecords = 0;
+		mIsLoaded = false;
+		mDeferredChanges.clear();
+		mLoadId++;
+	}
+
+	/**
+	 * Reads the log on the writer thread, so that the caller (usually the main thread) does not wait for the disk.
+	 */
+	private void load( final File file, final int loadId ) {
+		mWriter.execute( new Runnable() {
+			@Override
+			public void run() {
+				LoadedLog log = read( file );
+				synchronized( PreferenceSnapshot.this ) {
+					onLoaded( log, loadId );
+				}
+			}
+		} );
+	}
+
+	private void onLoaded( LoadedLog log, int loadId ) {
+		if( loadId != mLoadId || mIsLoaded ) return;
+
+		mEntries.putAll( log.entries );
+		mComplete = log.complete;
+		mNumRecords = log.numRecords;
+		mIsLoaded = true;
+		Logger.d( "PreferenceSnapshot | read {} preference(s)", mEntries.size() );
+		for( String[] change : mDeferredChanges ) {
+			applyChange( change[0], change[1] );
+		}
+		mDeferredChanges.clear();
+	}
+
+	/**
+	 * Sets or removes (<code>null</code> value) the entry of the loaded snapshot and appends the change to the log.
+	 */
+	private void applyChange( String key, String value ) {
+		if( value != null ) {
+			if( value.equals( mEntries.get( key ) ) ) return;
+
+			mEntries.put( key, value );
+			append( RECORD_SET, key, value );
+		} else {
+			if( !mEntries.containsKey( key ) ) return;
+
+			mEntries.remove( key );
+			append( RECORD_DELETE, key, null );
+		}
+	}
+
+	/**
+	 * Called on the writer thread.
+	 */
+	private static LoadedLog read( File file ) {
+		LoadedLog log = new LoadedLog();
+		if( !file.exists() ) return log;
+
+		long validLength = 0;
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+			CRC32 crc = new CRC32();
+			while( true ) {
+				int length;
+				try {
+					length = input.readInt();
+				} catch( EOFException e ) {
+					break;
+				}
+				int checksum = input.readInt();
+				if( length <= 0 || length > MAX_RECORD_LENGTH ) break;
+				byte[] payload = new byte[length];
+				input.readFully( payload );
+				crc.reset();
+				crc.update( payload, 0, length );
+				if( (int) crc.getValue() != checksum ) break;
+
+				applyRecord( log, payload );
+				validLength += 8 + length;
+				log.numRecords++;
+			}
+		} catch( EOFException e ) {
+			/* Torn record at the end of the log */
+		} catch( IOException e ) {
+			e.printStackTrace();
+		} finally {
+			closeQuietly( input );
+		}
+
+		if( validLength < file.length() ) {
+			Logger.w( "PreferenceSnapshot | truncating corrupted log tail of {}", file.getName() );
+			truncate( file, validLength );
+		}
+		return log;
+	}
+
+	private static void applyRecord( LoadedLog log, byte[] payload ) throws IOException {
+		DataInputStream record = new DataInputStream( new ByteArrayInputStream( payload ) );
+		byte type = record.readByte();
+		switch( type ) {
+			case RECORD_SET:
+				log.entries.put( readString( record ), readString( record ) );
+				break;
+			case RECORD_DELETE:
+				log.entries.remove( readString( record ) );
+				break;
+			case RECORD_COMPLETE:
+				log.complete = true;
+				break;
+		}
+	}
+
+	private void append( byte type, String key, String value ) {
+		final File file = getLogFile( mAccountId );
+		final byte[] record = encodeRecord( type, key, value );
+		mNumRecords++;
+		if( mNumRecords > Math.max( COMPACTION_MIN_RECORDS, mEntries.size() * 2 ) ) {
+			compact();
+			return;
+		}
+		mWriter.execute( new Runnable() {
+			@Override
+			public void run() {
+				try {
+					openStream( file ).write( record );
+				} catch( IOException e ) {
+					e.printStackTrace();
+					closeStream();
+				}
+			}
+		} );
+	}
+
+	/**
+	 * Rewrites the log with the current entries, the new log replaces the old one using atomic rename.
+	 */
+	private void compact() {
+		final File file = getLogFile( mAccountId );
+		final File tempFile = new File( file.getParentFile(), file.getName() + TEMP_EXTENSION );
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream( 64 + mEntries.size() * 48 );
+		try {
+			for( Map.Entry<String, String> entry : mEntries.entrySet() ) {
+				buffer.write( encodeRecord( RECORD_SET, entry.getKey(), entry.getValue() ) );
+			}
+			if( mComplete ) {
+				buffer.write( encodeRecord( RECORD_COMPLETE, null, null ) );
+			}
+		} catch( IOException e ) {
+			e.printStackTrace();
+			return;
+		}
+		mNumRecords = mEntries.size() + (mComplete ? 1 : 0);
+		final byte[] contents = buffer.toByteArray();
+		mWriter.execute( new Runnable() {
+			@Override
+			public void run() {
+				closeStream();
+				FileOutputStream output = null;
+				try {
+					ensureDirectory( file.getParentFile() );
+					output = new FileOutputStream( tempFile );
+					output.write( contents );
+					output.getFD().sync();
+					output.close();
+					output = null;
+					if( !tempFile.renameTo( file ) ) {
+						Logger.w( "PreferenceSnapshot | failed to replace {}", file.getName() );
+						tempFile.delete();
+					}
+				} catch( IOException e ) {
+					e.printStackTrace();
+					tempFile.delete();
+				} finally {
+					closeQuietly( output );
+				}
+			}
+		} );
+	}
+
+	private FileOutputStream openStream( File file ) throws IOException {
+		if( mOpenStream == null || !file.equals( mOpenFile ) ) {
+			closeStream();
+			ensureDirectory( file.getParentFile() );
+			mOpenStream = new FileOutputStream( file, true );
+			mOpenFile = file;
+		}
+		return mOpenStream;
+	}
+
+	private void closeStream() {
+		closeQuietly( mOpenStream );
+		mOpenStream = null;
+		mOpenFile = null;
+	}
+
+	private File getLogFile( String accountId ) {
+		return new File( mDirectory, accountId.replaceAll( "[^A-Za-z0-9_-]", "_" ) + LOG_EXTENSION );
+	}
+
+	private static byte[] encodeRecord( byte type, String key, String value ) {
+		try {
+			ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream( 64 );
+			DataOutputStream payload = new DataOutputStream( payloadBytes );
+			payload.writeByte( type );
+			if( key != null ) {
+				writeString( payload, key );
+			}
+			if( value != null ) {
+				writeString( payload, value );
+			}
+			byte[] payloadArray = payloadBytes.toByteArray();
+			CRC32 crc = new CRC32();
+			crc.update( payloadArray, 0, payloadArray.length );
+
+			ByteArrayOutputStream recordBytes = new ByteArrayOutputStream( payloadArray.length + 8 );
+			DataOutputStream record = new DataOutputStream( recordBytes );
+			record.writeInt( payloadArray.length );
+			record.writeInt( (int) crc.getValue() );
+			record.write( payloadArray );
+			return recordBytes.toByteArray();
+		} catch( IOException e ) {
+			/* Cannot happen with in-memory streams */
+			throw new IllegalStateException( e );
+		}
+	}
+
+	static void writeString( DataOutputStream output, String value ) throws IOException {
+		byte[] bytes = value.getBytes( "UTF-8" );
+		output.writeInt( bytes.length );
+		output.write( bytes );
+	}
+
+	static String readString( DataInputStream input ) throws IOException {
+		int length = input.readInt();
+		byte[] bytes = new byte[length];
+		input.readFully( bytes );
+		return new String( bytes, "UTF-8" );
+	}
+
+	private static void truncate( File file, long length ) {
+		RandomAccessFile randomAccessFile = null;
+		try {
+			randomAccessFile = new RandomAccessFile( file, "rw" );
+			randomAccessFile.setLength( length );
+		} catch( IOException e ) {
+			e.printStackTrace();
+		} finally {
+			closeQuietly( randomAccessFile );
+		}
+	}
+
+	static void ensureDirectory( File directory ) {
+		if( !directory.exists() && !directory.mkdirs() ) {
+			Logger.w( "PreferenceSnapshot | failed to create directory {}", directory.getName() );
+		}
+	}
+
+	static void closeQuietly( Closeable closeable ) {
+		if( closeable == null ) return;
+		try {
+			closeable.close();
+		} catch( IOException e ) {
+			e.printStackTrace();
+		}
+	}
+
+	private static class LoadedLog {
+		final Map<String, String> entries = new LinkedHashMap<String, String>();
+		boolean complete;
+		int numRecords;
+	}
+
+}
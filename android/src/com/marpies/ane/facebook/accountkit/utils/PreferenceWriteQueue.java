@@ -0,0 +1,590 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+import com.facebook.accountkit.AccessToken;
+import com.facebook.accountkit.AccountKit;
+import com.facebook.accountkit.AccountKitError;
+import com.facebook.accountkit.AccountPreferences;
+import com.marpies.ane.facebook.accountkit.data.AccountKitEvent;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Pattern;
+
+/**
+ * Persistent queue of preference writes that are acknowledged locally and sent to the server in the background.
+ * Pending writes are kept per key, so repeated writes to the same key collapse into the last one and a delete
+ * replaces a pending set of the same key. The queue is drained one write at a time, shortly after the last
+ * change so that bursts of edits coalesce, and failed writes are retried with exponential backoff.
+ * Pending writes of each account are stored in the app's files directory and survive restarts. The stored writes
+ * are read on the writer thread, writes accepted in the meantime are merged with them once they are loaded.
+ * Writes that break the Account Kit limits are rejected before they are accepted, writes the server rejects
+ * after they were acknowledged, or that are discarded on logout, are reported to the AS side with
+ * the <code>preferenceWriteFailed</code> event.
+ */
+public class PreferenceWriteQueue {
+
+	private static final String QUEUE_EXTENSION = ".queue";
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	private static final long DRAIN_DELAY_MILLIS = 250;
+	private static final long MIN_BACKOFF_MILLIS = 1000;
+	private static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+
+	private static final byte WRITE_SET = 1;
+	private static final byte WRITE_DELETE = 2;
+
+	/* Account Kit preference limits */
+	private static final int MAX_KEY_LENGTH = 100;
+	private static final int MAX_VALUE_LENGTH = 1000;
+	private static final Pattern KEY_PATTERN = Pattern.compile( "[A-Za-z0-9_]+" );
+
+	private static final String DISCARDED_MESSAGE = "Pending write was discarded on logout.";
+
+	private final Handler mHandler = new Handler( Looper.getMainLooper() );
+	private final Random mRandom = new Random();
+	private final ExecutorService mWriter;
+
+	private File mDirectory;
+	private String mAccountId;
+	/* Pending writes by key, in the order they are sent */
+	private final LinkedHashMap<String, PendingWrite> mPending = new LinkedHashMap<String, PendingWrite>();
+	private PendingWrite mInFlight;
+	private long mBackoffMillis;
+	private boolean mDrainScheduled;
+	private boolean mIsLoaded;
+	/* Incremented when the account changes, results of previous loads are ignored */
+	private int mLoadId;
+
+	private long mNumAccepted;
+	private long mNumCoalesced;
+	private long mNumSent;
+	private long mNumRetries;
+	private long mNumFailed;
+	private long mNumRejected;
+	private long mNumReported;
+
+	private final Runnable mDrainRunnable = new Runnable() {
+		@Override
+		public void run() {
+			drain();
+		}
+	};
+
+	private static PreferenceWriteQueue mInstance = new PreferenceWriteQueue();
+
+	public static PreferenceWriteQueue getInstance() {
+		return mInstance;
+	}
+
+	private PreferenceWriteQueue() {
+		mWriter = Executors.newSingleThreadExecutor( new ThreadFactory() {
+			@Override
+			public Thread newThread( Runnable runnable ) {
+				Thread thread = new Thread( runnable, "AccountKit-write-queue" );
+				thread.setDaemon( true );
+				return thread;
+			}
+		} );
+	}
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	/**
+	 * @param filesDirectory App's files directory, or <code>null</code> to disable the queue.
+	 *                       Pending writes are kept on disk and sent once the queue is enabled again.
+	 */
+	public synchronized void setEnabled( File filesDirectory ) {
+		mDirectory = (filesDirectory != null) ? new File( filesDirectory, PreferenceSnapshot.DIRECTORY_NAME ) : null;
+		resetAccount( null );
+		mHandler.removeCallbacks( mDrainRunnable );
+		mDrainScheduled = false;
+		Logger.i( "PreferenceWriteQueue::setEnabled {}", mDirectory != null );
+		/* Pending writes are drained once they are loaded */
+		validateAccount();
+	}
+
+	public synchronized boolean isEnabled() {
+		return mDirectory != null;
+	}
+
+	/**
+	 * Accepts the write locally, the cached value is updated right away.
+	 * @return Error message if the write breaks the Account Kit limits and was not accepted, <code>null</code> otherwise.
+	 */
+	public synchronized String set( String key, String value ) {
+		String error = validateWrite( key, value, false );
+		if( error != null ) return error;
+
+		enqueue( key, value );
+		PreferenceCache.getInstance().put( key, value );
+		PreferenceSnapshot.getInstance().put( key, value );
+		return null;
+	}
+
+	/**
+	 * @return Error message if the key breaks the Account Kit limits and the delete was not accepted, <code>null</code> otherwise.
+	 */
+	public synchronized String delete( String key ) {
+		String error = validateWrite( key, null, true );
+		if( error != null ) return error;
+
+		enqueue( key, null );
+		PreferenceCache.getInstance().remove( key );
+		PreferenceSnapshot.getInstance().remove( key );
+		return null;
+	}
+
+	/**
+	 * Returns <code>true</code> if there is a pending write for the given key.
+	 * Stored writes are not known until they are loaded.
+	 */
+	public synchronized boolean hasPendingWrite( String key ) {
+		return validateAccount() && (mPending.containsKey( key ) || (mInFlight != null && mInFlight.key.equals( key )));
+	}
+
+	/**
+	 * Returns value of the pending write for the given key, <code>null</code> if the key is pending deletion.
+	 */
+	public synchronized String getPendingValue( String key ) {
+		if( !validateAccount() ) return null;
+		PendingWrite write = mPending.get( key );
+		if( write == null && mInFlight != null && mInFlight.key.equals( key ) ) {
+			write = mInFlight;
+		}
+		return (write != null) ? write.value : null;
+	}
+
+	/**
+	 * Returns preferences loaded from the server with pending writes applied.
+	 * The given map is returned if there are no pending writes.
+	 */
+	public synchronized Map<String, String> applyPendingWrites( Map<String, String> preferences ) {
+		if( preferences == null || !validateAccount() ) return preferences;
+		if( mInFlight == null && mPending.isEmpty() ) return preferences;
+
+		Map<String, String> result = new HashMap<String, String>( preferences );
+		if( mInFlight != null ) {
+			applyWrite( result, mInFlight );
+		}
+		for( PendingWrite write : mPending.values() ) {
+			applyWrite( result, write );
+		}
+		return result;
+	}
+
+	/**
+	 * Discards pending writes of the current account, each discarded write is reported to the AS side.
+	 * The write in flight is reported only if it fails.
+	 */
+	public synchronized void clear() {
+		if( !validateAccount() ) return;
+
+		if( !mPending.isEmpty() ) {
+			Logger.w( "PreferenceWriteQueue | discarding {} pending write(s)", mPending.size() );
+		}
+		for( PendingWrite write : mPending.values() ) {
+			reportFailure( write, DISCARDED_MESSAGE );
+		}
+		if( mIsLoaded ) {
+			mPending.clear();
+			mInFlight = null;
+			persist();
+		} else {
+			/* Stored writes are not known yet */
+			discardStored( getQueueFile( mAccountId ), new HashSet<String>( mPending.keySet() ) );
+		}
+		resetAccount( null );
+	}
+
+	public synchronized void writeStats( JSONWriter writer ) {
+		writer.beginObject()
+				.field( "enabled", mDirectory != null )
+				.field( "pending", mPending.size() + ((mInFlight != null) ? 1 : 0) )
+				.field( "accepted", mNumAccepted )
+				.field( "coalesced", mNumCoalesced )
+				.field( "sent", mNumSent )
+				.field( "retries", mNumRetries )
+				.field( "failed", mNumFailed )
+				.field( "rejected", mNumRejected )
+				.field( "reported", mNumReported )
+				.field( "backoff", mBackoffMillis )
+				.endObject();
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private void enqueue( String key, String value ) {
+		if( !validateAccount() ) return;
+
+		mNumAccepted++;
+		/* Re-insert so that the key moves to the end of the queue */
+		if( mPending.remove( key ) != null ) {
+			mNumCoalesced++;
+		}
+		mPending.put( key, new PendingWrite( key, value ) );
+		/* Writes accepted while loading are persisted together with the loaded ones */
+		if( mIsLoaded ) {
+			persist();
+		}
+		/* Drain is postponed while more writes arrive, unless waiting for backoff */
+		if( mBackoffMillis == 0 ) {
+			scheduleDrain( DRAIN_DELAY_MILLIS );
+		}
+	}
+
+	private void scheduleDrain( long delayMillis ) {
+		mHandler.removeCallbacks( mDrainRunnable );
+		mHandler.postDelayed( mDrainRunnable, delayMillis );
+		mDrainScheduled = true;
+	}
+
+	private synchronized void drain() {
+		mDrainScheduled = false;
+		if( mInFlight != null || mPending.isEmpty() || !validateAccount() || !mIsLoaded ) return;
+
+		Iterator<PendingWrite> it = mPending.values().iterator();
+		final PendingWrite write = it.next();
+		it.remove();
+		mInFlight = write;
+		final String accountId = mAccountId;
+
+		if( write.value != null ) {
+			AccountKit.getAccountPreferences().setPreference( write.key, write.value, new AccountPreferences.OnSetPreferenceListener() {
+				@Override
+				public void onSetPreference( String key, String value, @Nullable AccountKitError accountKitError ) {
+					onWriteComplete( accountId, write, accountKitError );
+				}
+			} );
+		} else {
+			AccountKit.getAccountPreferences().deletePreference( write.key, new AccountPreferences.OnDeletePreferenceListener() {
+				@Override
+				public void onDeletePreference( String key, @Nullable AccountKitError accountKitError ) {
+					onWriteComplete( accountId, write, accountKitError );
+				}
+			} );
+		}
+	}
+
+	private synchronized void onWriteComplete( String accountId, PendingWrite write, AccountKitError error ) {
+		if( mInFlight != write ) {
+			/* Queue was cleared while the write was in flight, the write cannot be retried */
+			if( error != null ) {
+				reportFailure( write, error.getErrorType().getMessage() );
+			}
+			return;
+		}
+		mInFlight = null;
+		/* Account has changed while the write was in flight */
+		if( !accountId.equals( mAccountId ) ) return;
+
+		if( error == null ) {
+			mNumSent++;
+			mBackoffMillis = 0;
+			persist();
+		} else if( isRetryable( error ) ) {
+			mNumRetries++;
+			/* Put the write back unless it has been superseded by a newer write of the same key */
+			if( !mPending.containsKey( write.key ) ) {
+				LinkedHashMap<String, PendingWrite> pending = new LinkedHashMap<String, PendingWrite>( mPending );
+				mPending.clear();
+				mPending.put( write.key, write );
+				mPending.putAll( pending );
+			}
+			mBackoffMillis = (mBackoffMillis == 0) ? MIN_BACKOFF_MILLIS : Math.min( mBackoffMillis * 2, MAX_BACKOFF_MILLIS );
+			long delay = mBackoffMillis / 2 + (long) (mRandom.nextDouble() * mBackoffMillis / 2);
+			Logger.w( "PreferenceWriteQueue | write failed, retrying in {}ms: {}", delay, error.getErrorType().getMessage() );
+			scheduleDrain( delay );
+			return;
+		} else {
+			mNumFailed++;
+			Logger.w( "PreferenceWriteQueue | dropping write of '{}': {}", write.key, error.getErrorType().getMessage() );
+			/* Locally cached value no longer reflects the server */
+			if( !mPending.containsKey( write.key ) ) {
+				PreferenceCache.getInstance().remove( write.key );
+				PreferenceSnapshot.getInstance().remove( write.key );
+			}
+			persist();
+			reportFailure( write, error.getErrorType().getMessage() );
+		}
+		if( !mPending.isEmpty() ) {
+			scheduleDrain( 0 );
+		}
+	}
+
+	/**
+	 * Checks the write against the Account Kit limits - keys of up to 100 characters (letters, numerals
+	 * and the underscore) and values of up to 1000 characters.
+	 */
+	private String validateWrite( String key, String value, boolean isDelete ) {
+		String error = null;
+		if( key == null || key.length() > MAX_KEY_LENGTH || !KEY_PATTERN.matcher( key ).matches() ) {
+			error = "Preference key must have 1 to " + MAX_KEY_LENGTH + " characters (letters, numerals or underscore).";
+		} else if( !isDelete && (value == null || value.length() > MAX_VALUE_LENGTH) ) {
+			error = "Preference value must have up to " + MAX_VALUE_LENGTH + " characters.";
+		}
+		if( error != null ) {
+			mNumRejected++;
+			Logger.w( "PreferenceWriteQueue | rejecting write of '{}': {}", key, error );
+		}
+		return error;
+	}
+
+	/**
+	 * Lets the AS side know that a write it was told succeeded has been lost.
+	 */
+	private void reportFailure( PendingWrite write, String errorMessage ) {
+		mNumReported++;
+		String json = JSONWriter.obtain()
+				.beginObject()
+				.field( "key", write.key )
+				.field( "value", write.value )
+				.field( "errorMessage", errorMessage )
+				.endObject()
+				.release();
+		DetachedEventBuffer.getInstance().dispatch( AccountKitEvent.PREFERENCE_WRITE_FAILED, json );
+	}
+
+	/**
+	 * Makes sure pending writes of the currently logged in account are loaded or loading.
+	 */
+	private boolean validateAccount() {
+		if( mDirectory == null ) return false;
+
+		AccessToken token = AccountKit.getCurrentAccessToken();
+		String accountId = (token != null) ? token.getAccountId() : null;
+		if( accountId == null ) return false;
+		if( accountId.equals( mAccountId ) ) return true;
+
+		resetAccount( accountId );
+		load( getQueueFile( accountId ), mLoadId );
+		return true;
+	}
+
+	private void resetAccount( String accountId ) {
+		mAccountId = accountId;
+		mPending.clear();
+		mInFlight = null;
+		mBackoffMillis = 0;
+		mIsLoaded = false;
+		mLoadId++;
+	}
+
+	/**
+	 * Reads the queue file on the writer thread, so that the caller (usually the main thread) does not wait for the disk.
+	 */
+	private void load( final File file, final int loadId ) {
+		mWriter.execute( new Runnable() {
+			@Override
+			public void run() {
+				LinkedHashMap<String, PendingWrite> writes = read( file );
+				synchronized( PreferenceWriteQueue.this ) {
+					onLoaded( writes, loadId );
+				}
+			}
+		} );
+	}
+
+	private void onLoaded( LinkedHashMap<String, PendingWrite> writes, int loadId ) {
+		if( loadId != mLoadId ) return;
+
+		mIsLoaded = true;
+		boolean hasNewWrites = !mPending.isEmpty();
+		/* Writes accepted while loading supersede the stored ones */
+		writes.keySet().removeAll( mPending.keySet() );
+		writes.putAll( mPending );
+		mPending.clear();
+		mPending.putAll( writes );
+		if( hasNewWrites ) {
+			persist();
+		}
+		if( !mPending.isEmpty() ) {
+			Logger.d( "PreferenceWriteQueue | resuming {} pending write(s)", mPending.size() );
+			scheduleDrain( DRAIN_DELAY_MILLIS );
+		}
+	}
+
+	/**
+	 * Reads the stored writes on the writer thread, reports those that have not been reported yet and deletes the file.
+	 */
+	private void discardStored( final File file, final Set<String> reportedKeys ) {
+		mWriter.execute( new Runnable() {
+			@Override
+			public void run() {
+				LinkedHashMap<String, PendingWrite> writes = read( file );
+				writes.keySet().removeAll( reportedKeys );
+				synchronized( PreferenceWriteQueue.this ) {
+					if( !writes.isEmpty() ) {
+						Logger.w( "PreferenceWriteQueue | discarding {} stored write(s)", writes.size() );
+					}
+					for( PendingWrite write : writes.values() ) {
+						reportFailure( write, DISCARDED_MESSAGE );
+					}
+				}
+				file.delete();
+			}
+		} );
+	}
+
+	/**
+	 * Called on the writer thread.
+	 */
+	private static LinkedHashMap<String, PendingWrite> read( File file ) {
+		LinkedHashMap<String, PendingWrite> writes = new LinkedHashMap<String, PendingWrite>();
+		if( !file.exists() ) return writes;
+
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+			int count = input.readInt();
+			for( int i = 0; i < count; i++ ) {
+				byte type = input.readByte();
+				String key = PreferenceSnapshot.readString( input );
+				String value = (type == WRITE_SET) ? PreferenceSnapshot.readString( input ) : null;
+				writes.put( key, new PendingWrite( key, value ) );
+			}
+		} catch( IOException e ) {
+			/* Queue file is written using atomic rename, this should only happen if it was tampered with */
+			e.printStackTrace();
+			writes.clear();
+		} finally {
+			PreferenceSnapshot.closeQuietly( input );
+		}
+		return writes;
+	}
+
+	/**
+	 * Writes pending writes (including the one in flight) to a temporary file that replaces the queue file.
+	 */
+	private void persist() {
+		final File file = getQueueFile( mAccountId );
+		final File tempFile = new File( file.getParentFile(), file.getName() + TEMP_EXTENSION );
+		final byte[] contents;
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream( 16 + mPending.size() * 48 );
+			DataOutputStream output = new DataOutputStream( bytes );
+			output.writeInt( mPending.size() + ((mInFlight != null) ? 1 : 0) );
+			if( mInFlight != null ) {
+				writeEntry( output, mInFlight );
+			}
+			for( PendingWrite write : mPending.values() ) {
+				writeEntry( output, write );
+			}
+			contents = bytes.toByteArray();
+		} catch( IOException e ) {
+			e.printStackTrace();
+			return;
+		}
+		final boolean isEmpty = mPending.isEmpty() && mInFlight == null;
+		mWriter.execute( new Runnable() {
+			@Override
+			public void run() {
+				if( isEmpty ) {
+					file.delete();
+					return;
+				}
+				FileOutputStream output = null;
+				try {
+					PreferenceSnapshot.ensureDirectory( file.getParentFile() );
+					output = new FileOutputStream( tempFile );
+					output.write( contents );
+					output.getFD().sync();
+					output.close();
+					output = null;
+					if( !tempFile.renameTo( file ) ) {
+						Logger.w( "PreferenceWriteQueue | failed to replace {}", file.getName() );
+						tempFile.delete();
+					}
+				} catch( IOException e ) {
+					e.printStackTrace();
+					tempFile.delete();
+				} finally {
+					PreferenceSnapshot.closeQuietly( output );
+				}
+			}
+		} );
+	}
+
+	private void writeEntry( DataOutputStream output, PendingWrite write ) throws IOException {
+		output.writeByte( (write.value != null) ? WRITE_SET : WRITE_DELETE );
+		PreferenceSnapshot.writeString( output, write.key );
+		if( write.value != null ) {
+			PreferenceSnapshot.writeString( output, write.value );
+		}
+	}
+
+	private File getQueueFile( String accountId ) {
+		return new File( mDirectory, accountId.replaceAll( "[^A-Za-z0-9_-]", "_" ) + QUEUE_EXTENSION );
+	}
+
+	private static void applyWrite( Map<String, String> preferences, PendingWrite write ) {
+		if( write.value != null ) {
+			preferences.put( write.key, write.value );
+		} else {
+			preferences.remove( write.key );
+		}
+	}
+
+	private static boolean isRetryable( AccountKitError error ) {
+		AccountKitError.Type type = error.getErrorType();
+		return type == AccountKitError.Type.NETWORK_CONNECTION_ERROR || type == AccountKitError.Type.SERVER_ERROR;
+	}
+
+	private static class PendingWrite {
+		final String key;
+		/* Null for delete */
+		final String value;
+
+		PendingWrite( String key, String value ) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+}
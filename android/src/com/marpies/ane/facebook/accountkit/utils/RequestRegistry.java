@@ -0,0 +1,288 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.marpies.ane.facebook.accountkit.AccountKitExtensionContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of requests that are waiting for SDK response. Every request is given a deadline
+ * on a timing wheel and answered with an error if the SDK does not respond in time, or when it is cancelled.
+ * Requests are identified by tickets that combine the callback id with a generation number, so that
+ * responses arriving after the request timed out, was cancelled or has already been answered are dropped.
+ */
+public class RequestRegistry {
+
+	public static final String TIMEOUT_MESSAGE = "Request timed out.";
+	public static final String CANCEL_MESSAGE = "Request was cancelled.";
+
+	private static final long DEFAULT_TIMEOUT_MILLIS = 30 * 1000;
+	private static final long TICK_MILLIS = 250;
+	/* One revolution of the wheel covers 64 seconds, longer deadlines wait for additional rounds */
+	private static final int WHEEL_SIZE = 256;
+
+	private final Handler mHandler = new Handler( Looper.getMainLooper() );
+	private final Map<Integer, Request> mRequests = new HashMap<Integer, Request>();
+	/* Head of the list of requests that expire in each slot */
+	private final Request[] mWheel = new Request[WHEEL_SIZE];
+	private int mCursor;
+	private int mNumScheduled;
+	private boolean mTicking;
+	private int mGeneration;
+	private long mTimeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+	private long mNumRegistered;
+	private long mNumTimedOut;
+	private long mNumCancelled;
+	private long mNumDropped;
+
+	private final Runnable mTickRunnable = new Runnable() {
+		@Override
+		public void run() {
+			tick();
+		}
+	};
+
+	private final AccountKitExtensionContext mContext;
+
+	public RequestRegistry( AccountKitExtensionContext context ) {
+		mContext = context;
+	}
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	/**
+	 * @param timeoutMillis Time the SDK is given to respond, or <code>0</code> to wait for the response indefinitely.
+	 *                      Applies to requests registered afterwards.
+	 */
+	public synchronized void setTimeout( long timeoutMillis ) {
+		Logger.i( "RequestRegistry::setTimeout {}", timeoutMillis );
+		mTimeoutMillis = timeoutMillis;
+	}
+
+	public long register( String operation, int callbackId ) {
+		return register( operation, callbackId, null );
+	}
+
+	/**
+	 * Registers request that is about to be sent to the SDK.
+	 * @param onAbort Called when the request times out or is cancelled, used to release resources held by the request.
+	 * @return Ticket that must be passed to <code>complete</code> before the SDK response is dispatched.
+	 */
+	public synchronized long register( String operation, int callbackId, Runnable onAbort ) {
+		/* Request without callback is not tracked */
+		if( callbackId < 0 ) return getTicket( 0, callbackId );
+
+		/* The callback id is reused, response to the previous request is no longer expected */
+		Request previous = mRequests.remove( callbackId );
+		if( previous != null ) {
+			unschedule( previous );
+		}
+
+		if( ++mGeneration == 0 ) {
+			mGeneration = 1;
+		}
+		Request request = new Request( operation, callbackId, mGeneration, onAbort );
+		mRequests.put( callbackId, request );
+		mNumRegistered++;
+		schedule( request );
+		return getTicket( request.generation, callbackId );
+	}
+
+	/**
+	 * Marks the request as answered.
+	 * @return <code>true</code> if the response should be dispatched, <code>false</code> if it comes too late
+	 *         or the request has already been answered.
+	 */
+	public synchronized boolean complete( long ticket ) {
+		int generation = (int) (ticket >>> 32);
+		if( generation == 0 ) return true;
+
+		int callbackId = getCallbackId( ticket );
+		Request request = mRequests.get( callbackId );
+		if( request == null || request.generation != generation ) {
+			mNumDropped++;
+			Logger.w( "RequestRegistry | dropping late or duplicate response to request {}", callbackId );
+			return false;
+		}
+		mRequests.remove( callbackId );
+		unschedule( request );
+		return true;
+	}
+
+	/**
+	 * Aborts the request and answers it with an error.
+	 * @return <code>true</code> if the request was pending, <code>false</code> if it is unknown or has already been answered.
+	 */
+	public boolean cancel( int callbackId ) {
+		Request request;
+		synchronized( this ) {
+			request = mRequests.remove( callbackId );
+			if( request == null ) return false;
+
+			unschedule( request );
+			mNumCancelled++;
+		}
+		abort( request, CANCEL_MESSAGE );
+		return true;
+	}
+
+	public synchronized void writeStats( JSONWriter writer ) {
+		writer.beginObject()
+				.field( "pending", mRequests.size() )
+				.field( "timeout", mTimeoutMillis )
+				.field( "registered", mNumRegistered )
+				.field( "timedOut", mNumTimedOut )
+				.field( "cancelled", mNumCancelled )
+				.field( "dropped", mNumDropped )
+				.endObject();
+	}
+
+	public static int getCallbackId( long ticket ) {
+		return (int) ticket;
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private static long getTicket( int generation, int callbackId ) {
+		return ((long) generation << 32) | (callbackId & 0xFFFFFFFFL);
+	}
+
+	private void schedule( Request request ) {
+		if( mTimeoutMillis <= 0 ) return;
+
+		long ticks = Math.max( 1, (mTimeoutMillis + TICK_MILLIS - 1) / TICK_MILLIS );
+		request.slot = (int) ((mCursor + ticks) % WHEEL_SIZE);
+		request.rounds = (int) ((ticks - 1) / WHEEL_SIZE);
+		request.next = mWheel[request.slot];
+		if( request.next != null ) {
+			request.next.previous = request;
+		}
+		mWheel[request.slot] = request;
+		mNumScheduled++;
+
+		if( !mTicking ) {
+			mTicking = true;
+			mHandler.postDelayed( mTickRunnable, TICK_MILLIS );
+		}
+	}
+
+	private void unschedule( Request request ) {
+		if( request.slot < 0 ) return;
+
+		if( request.previous != null ) {
+			request.previous.next = request.next;
+		} else {
+			mWheel[request.slot] = request.next;
+		}
+		if( request.next != null ) {
+			request.next.previous = request.previous;
+		}
+		request.previous = null;
+		request.next = null;
+		request.slot = -1;
+		mNumScheduled--;
+	}
+
+	private void tick() {
+		List<Request> expired = null;
+		synchronized( this ) {
+			mCursor = (mCursor + 1) % WHEEL_SIZE;
+			Request request = mWheel[mCursor];
+			while( request != null ) {
+				Request next = request.next;
+				if( request.rounds > 0 ) {
+					request.rounds--;
+				} else {
+					unschedule( request );
+					mRequests.remove( request.callbackId );
+					mNumTimedOut++;
+					if( expired == null ) {
+						expired = new ArrayList<Request>();
+					}
+					expired.add( request );
+				}
+				request = next;
+			}
+			mTicking = mNumScheduled > 0;
+			if( mTicking ) {
+				mHandler.postDelayed( mTickRunnable, TICK_MILLIS );
+			}
+		}
+		if( expired != null ) {
+			for( Request request : expired ) {
+				abort( request, TIMEOUT_MESSAGE );
+			}
+		}
+	}
+
+	private void abort( final Request request, final String message ) {
+		Logger.w( "RequestRegistry | request {} aborted: {}", request.callbackId, message );
+		if( request.onAbort != null ) {
+			request.onAbort.run();
+		}
+		SerializationQueue.getInstance().execute( request.callbackId, new Runnable() {
+			@Override
+			public void run() {
+				if( mContext.isBinaryEventsEnabled() && BinaryEvents.canDispatch( request.operation ) ) {
+					BinaryEvents.dispatchError( mContext, request.operation, request.callbackId, message );
+				} else {
+					mContext.dispatchEvent( request.operation, StringUtils.getEventErrorJSON( request.callbackId, message ) );
+				}
+				Tracer.getInstance().end( request.operation, request.callbackId );
+			}
+		} );
+	}
+
+	private static class Request {
+		final String operation;
+		final int callbackId;
+		final int generation;
+		final Runnable onAbort;
+
+		int slot = -1;
+		int rounds;
+		Request previous;
+		Request next;
+
+		Request( String operation, int callbackId, int generation, Runnable onAbort ) {
+			this.operation = operation;
+			this.callbackId = callbackId;
+			this.generation = generation;
+			this.onAbort = onAbort;
+		}
+	}
+
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs result serialization and dispatch off the thread the SDK calls back on (often the main thread).
+ * Tasks are striped into single-threaded lanes by callback id, so results of the same request keep their order.
+ * Every task goes through its lane, a task is never run ahead of tasks queued before it.
+ * Lanes are bounded; when a lane is full, background callers block until there is space, so serialization
+ * slows the producer down instead of growing the queue. The main thread never waits, it queues the task
+ * over the capacity right away.
+ */
+public class SerializationQueue {
+
+	private static final int NUM_LANES = 2;
+	private static final int LANE_CAPACITY = 32;
+
+	private final ThreadPoolExecutor[] mLanes;
+	/* Free slots of each lane, tasks queued over the capacity do not take a slot */
+	private final Semaphore[] mLaneSlots;
+	private final AtomicLong mNumSubmitted = new AtomicLong();
+	private final AtomicLong mNumOverflows = new AtomicLong();
+	private final AtomicInteger mMaxDepth = new AtomicInteger();
+
+	private static SerializationQueue mInstance = new SerializationQueue();
+
+	public static SerializationQueue getInstance() {
+		return mInstance;
+	}
+
+	private SerializationQueue() {
+		mLanes = new ThreadPoolExecutor[NUM_LANES];
+		mLaneSlots = new Semaphore[NUM_LANES];
+		for( int i = 0; i < NUM_LANES; i++ ) {
+			mLanes[i] = new ThreadPoolExecutor( 1, 1, 0L, TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<Runnable>(), new LaneThreadFactory( i ) );
+			mLaneSlots[i] = new Semaphore( LANE_CAPACITY );
+		}
+	}
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	/**
+	 * Runs the task on the lane of the given request, after the tasks already queued on that lane.
+	 */
+	public void execute( int callbackId, final Runnable task ) {
+		mNumSubmitted.incrementAndGet();
+		int index = (callbackId & Integer.MAX_VALUE) % NUM_LANES;
+		ThreadPoolExecutor lane = mLanes[index];
+		final Semaphore slots = mLaneSlots[index];
+		if( acquireSlot( slots ) ) {
+			lane.execute( new Runnable() {
+				@Override
+				public void run() {
+					try {
+						task.run();
+					} finally {
+						slots.release();
+					}
+				}
+			} );
+		} else {
+			lane.execute( task );
+		}
+		updateMaxDepth( lane.getQueue().size() );
+	}
+
+	/**
+	 * Writes current and maximum queue depth and task counters.
+	 */
+	public void writeStats( JSONWriter writer ) {
+		int depth = 0;
+		for( ThreadPoolExecutor lane : mLanes ) {
+			depth += lane.getQueue().size();
+		}
+		writer.beginObject()
+				.field( "lanes", NUM_LANES )
+				.field( "depth", depth )
+				.field( "maxDepth", mMaxDepth.get() )
+				.field( "submitted", mNumSubmitted.get() )
+				.field( "overflows", mNumOverflows.get() )
+				.endObject();
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	/**
+	 * Takes a free slot of the lane, blocking background callers until there is one.
+	 * The main thread does not block, it only takes a slot that is free.
+	 * @return <code>false</code> if the task is queued over the lane capacity.
+	 */
+	private boolean acquireSlot( Semaphore slots ) {
+		if( Looper.myLooper() == Looper.getMainLooper() ) {
+			/* Running the task here would overtake the tasks queued for the same request */
+			if( slots.tryAcquire() ) return true;
+		} else {
+			try {
+				slots.acquire();
+				return true;
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		mNumOverflows.incrementAndGet();
+		return false;
+	}
+
+	private void updateMaxDepth( int depth ) {
+		int max;
+		while( depth > (max = mMaxDepth.get()) ) {
+			if( mMaxDepth.compareAndSet( max, depth ) ) return;
+		}
+	}
+
+	private static class LaneThreadFactory implements ThreadFactory {
+
+		private final int mLane;
+
+		LaneThreadFactory( int lane ) {
+			mLane = lane;
+		}
+
+		@Override
+		public Thread newThread( final Runnable runnable ) {
+			Thread thread = new Thread( new Runnable() {
+				@Override
+				public void run() {
+					Process.setThreadPriority( Process.THREAD_PRIORITY_BACKGROUND );
+					runnable.run();
+				}
+			}, "AccountKit-serializer-" + mLane );
+			thread.setDaemon( true );
+			return thread;
+		}
+
+	}
+
+}
@@ -16,18 +16,63 @@
 
 package com.marpies.ane.facebook.accountkit.utils;
 
+import java.util.Map;
+
 public class StringUtils {
 
 	public static String getEventErrorJSON( final int listenerID, String errorMessage ) {
-		return String.format( "{ \"listenerID\": %d, \"errorMessage\": \"%s\" }",
-				listenerID,
-				/* The error message may contain line breaks - these need
-				 * to be removed so that JSON parsing errors do not occur */
-				removeLineBreaks( errorMessage ) );
+		return JSONWriter.obtain()
+				.beginObject()
+				.field( "listenerID", listenerID )
+				.field( "errorMessage", (errorMessage != null) ? errorMessage : "" )
+				.endObject()
+				.release();
+	}
+
+	/**
+	 * Returns preferences event JSON, the preferences are flattened to array of keys and values ( ["key1", "value1", "key2", "value2"] ).
+	 */
+	public static String getPreferencesJSON( int callbackId, Map<String, String> preferences, boolean stale ) {
+		JSONWriter response = JSONWriter.obtain()
+				.beginObject()
+				.field( "callbackId", callbackId );
+		if( stale ) {
+			response.field( "stale", true );
+		}
+		response.name( "preferences" ).beginArray();
+		for( Map.Entry<String, String> preference : preferences.entrySet() ) {
+			response.value( preference.getKey() );
+			response.value( preference.getValue() );
+		}
+		return response.endArray().endObject().release();
 	}
 
-	private static String removeLineBreaks( String message ) {
-		return message.replace( "\n", "" ).replace( "\r", "" );
+	/**
+	 * Returns versioned preferences event JSON. Full result has the same format as <code>getPreferencesJSON</code>,
+	 * a delta has <code>baseVersion</code>, flattened <code>changed</code> preferences and <code>removed</code> keys.
+	 */
+	public static String getPreferencesDeltaJSON( int callbackId, PreferenceDeltaTracker.Delta delta ) {
+		JSONWriter response = JSONWriter.obtain()
+				.beginObject()
+				.field( "callbackId", callbackId )
+				.field( "version", delta.version );
+		if( !delta.isFull() ) {
+			response.field( "baseVersion", delta.baseVersion );
+		}
+		response.name( delta.isFull() ? "preferences" : "changed" ).beginArray();
+		for( Map.Entry<String, String> preference : delta.changed.entrySet() ) {
+			response.value( preference.getKey() );
+			response.value( preference.getValue() );
+		}
+		response.endArray();
+		if( !delta.isFull() ) {
+			response.name( "removed" ).beginArray();
+			for( String key : delta.removed ) {
+				response.value( key );
+			}
+			response.endArray();
+		}
+		return response.endObject().release();
 	}
 
 }
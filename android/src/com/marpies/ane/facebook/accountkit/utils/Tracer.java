@@ -0,0 +1,212 @@
+/**
+ * Copyright 2016 Marcel Piestansky (http://marpies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.marpies.ane.facebook.accountkit.utils;
+
+import android.os.Process;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Records request phases keyed by callback id into a bounded ring buffer,
+ * which can be exported as Chrome trace-event JSON (chrome://tracing, Perfetto).
+ * Each request is a nestable async span from <code>begin()</code> to <code>end()</code>
+ * with instant events for the phases in between. Tracing is disabled by default
+ * and all methods return immediately while disabled.
+ */
+public class Tracer {
+
+	public static final String ARGS_DECODED = "args-decoded";
+	public static final String SDK_CALLED = "sdk-called";
+	public static final String SDK_CALLBACK = "sdk-callback";
+	public static final String ACTIVITY_STARTED = "activity-started";
+	public static final String ACTIVITY_RESULT = "activity-result";
+	public static final String SERIALIZED = "serialized";
+	public static final String STALE_DISPATCHED = "stale-dispatched";
+
+	public static final String TRACE_FILE_NAME = "accountkit-trace.json";
+
+	private static final int DEFAULT_CAPACITY = 2048;
+
+	private static final char TYPE_BEGIN = 'b';
+	private static final char TYPE_PHASE = 'n';
+	private static final char TYPE_END = 'e';
+
+	private volatile boolean mEnabled;
+
+	private long[] mTimes;
+	private long[] mThreads;
+	private int[] mIds;
+	private char[] mTypes;
+	private String[] mOperations;
+	private String[] mPhases;
+	private int mHead;
+	private int mCount;
+	private int mNumDropped;
+
+	private static Tracer mInstance = new Tracer();
+
+	public static Tracer getInstance() {
+		return mInstance;
+	}
+
+	private Tracer() {
+		allocate( DEFAULT_CAPACITY );
+	}
+
+	/**
+	 *
+	 *
+	 * Public API
+	 *
+	 *
+	 */
+
+	/**
+	 * Enables or disables tracing, recorded events are discarded.
+	 *
+	 * @param capacity Maximum number of recorded events, the oldest events are overwritten once it is reached.
+	 */
+	public synchronized void configure( boolean enabled, int capacity ) {
+		allocate( Math.max( 1, capacity ) );
+		mEnabled = enabled;
+		Logger.i( "Tracer::configure enabled: {} capacity: {}", enabled, capacity );
+	}
+
+	public boolean isEnabled() {
+		return mEnabled;
+	}
+
+	/**
+	 * Starts span of the request with the given callback id.
+	 */
+	public void begin( String operation, int callbackId ) {
+		if( !mEnabled ) return;
+		record( TYPE_BEGIN, operation, callbackId, null );
+	}
+
+	/**
+	 * Marks a phase of the request with the given callback id.
+	 */
+	public void phase( String operation, int callbackId, String phase ) {
+		if( !mEnabled ) return;
+		record( TYPE_PHASE, operation, callbackId, phase );
+	}
+
+	/**
+	 * Ends span of the request with the given callback id, called once the result is dispatched.
+	 */
+	public void end( String operation, int callbackId ) {
+		if( !mEnabled ) return;
+		record( TYPE_END, operation, callbackId, null );
+	}
+
+	/**
+	 * Writes recorded events to the given directory.
+	 *
+	 * @return Path of the written file, or <code>null</code> if the file could not be written.
+	 */
+	public String export( File directory ) {
+		String json = toJSON();
+		File file = new File( directory, TRACE_FILE_NAME );
+		Writer writer = null;
+		try {
+			writer = new OutputStreamWriter( new FileOutputStream( file ), "UTF-8" );
+			writer.write( json );
+			return file.getAbsolutePath();
+		} catch( IOException e ) {
+			e.printStackTrace();
+			return null;
+		} finally {
+			if( writer != null ) {
+				try {
+					writer.close();
+				} catch( IOException e ) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	public synchronized String toJSON() {
+		int pid = Process.myPid();
+		JSONWriter writer = JSONWriter.obtain()
+				.beginObject()
+				.field( "displayTimeUnit", "ms" )
+				.name( "otherData" ).beginObject()
+				.field( "droppedEvents", mNumDropped )
+				.endObject()
+				.name( "traceEvents" )
+				.beginArray();
+		int capacity = mTimes.length;
+		int start = (mHead - mCount + capacity) % capacity;
+		for( int i = 0; i < mCount; i++ ) {
+			int index = (start + i) % capacity;
+			writer.beginObject()
+					.field( "name", (mTypes[index] == TYPE_PHASE) ? mPhases[index] : mOperations[index] )
+					.field( "cat", mOperations[index] )
+					.field( "ph", String.valueOf( mTypes[index] ) )
+					.field( "id", mIds[index] )
+					.field( "ts", mTimes[index] )
+					.field( "pid", pid )
+					.field( "tid", mThreads[index] )
+					.endObject();
+		}
+		return writer.endArray().endObject().release();
+	}
+
+	/**
+	 *
+	 *
+	 * Private API
+	 *
+	 *
+	 */
+
+	private synchronized void record( char type, String operation, int callbackId, String phase ) {
+		int capacity = mTimes.length;
+		/* Timestamps in microseconds, as expected by the trace viewer */
+		mTimes[mHead] = System.nanoTime() / 1000;
+		mThreads[mHead] = Thread.currentThread().getId();
+		mIds[mHead] = callbackId;
+		mTypes[mHead] = type;
+		mOperations[mHead] = operation;
+		mPhases[mHead] = phase;
+		mHead = (mHead + 1) % capacity;
+		if( mCount < capacity ) {
+			mCount++;
+		} else {
+			mNumDropped++;
+		}
+	}
+
+	private void allocate( int capacity ) {
+		mTimes = new long[capacity];
+		mThreads = new long[capacity];
+		mIds = new int[capacity];
+		mTypes = new char[capacity];
+		mOperations = new String[capacity];
+		mPhases = new String[capacity];
+		mHead = 0;
+		mCount = 0;
+		mNumDropped = 0;
+	}
+
+}